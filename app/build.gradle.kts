@@ -35,6 +35,8 @@ android {
 }
 
 dependencies {
+    implementation(project(":matching-core"))
+
     implementation(libs.appcompat)
     implementation(libs.material)
     implementation(libs.activity)
@@ -0,0 +1,255 @@
+package com.booknest.campusridenest.data.firestore;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.booknest.campusridenest.matching.CandidateSource;
+import com.booknest.campusridenest.model.RideOffer;
+import com.booknest.campusridenest.model.RideRequest;
+import com.booknest.campusridenest.util.GeoHash;
+import com.booknest.campusridenest.util.MatchStats;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * CandidateSource backed by the "offers" and "requests" collections.
+ * Radius lookups run one query per geohash cell and merge the results;
+ * each call blocks on the queries, so it must not run on the main thread.
+ * Documents that fail to map are logged and skipped.
+ */
+public class FirestoreCandidateSource implements CandidateSource {
+
+    private static final String TAG = "FirestoreCandidateSource";
+
+    // Firestore's limit on values in one whereIn or array-contains-any filter
+    private static final int MAX_IN_VALUES = 30;
+
+    private final FirebaseFirestore db;
+
+    public FirestoreCandidateSource(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    @Override
+    public List<RideOffer> offersNear(List<String> cells, long earliestMillis, long latestMillis)
+            throws IOException {
+        return offersNear(cells, earliestMillis, latestMillis, new MatchStats());
+    }
+
+    @Override
+    public List<RideOffer> offersNear(List<String> cells, long earliestMillis, long latestMillis,
+                                      MatchStats stats) throws IOException {
+        return toOffers(await(offerQueries(cells, earliestMillis, latestMillis)), stats);
+    }
+
+    @Override
+    public List<RideOffer> offersNearPage(String cell, long earliestMillis, long latestMillis,
+                                          @Nullable RideOffer startAfter, int pageSize)
+            throws IOException {
+        return offersNearPage(cell, earliestMillis, latestMillis, startAfter, pageSize,
+                new MatchStats());
+    }
+
+    @Override
+    public List<RideOffer> offersNearPage(String cell, long earliestMillis, long latestMillis,
+                                          @Nullable RideOffer startAfter, int pageSize,
+                                          MatchStats stats) throws IOException {
+        Query query = db.collection("offers")
+                .whereEqualTo("status", "open")
+                .whereGreaterThanOrEqualTo("timeMillis", earliestMillis)
+                .whereLessThanOrEqualTo("timeMillis", latestMillis)
+                .orderBy("startGeohash")
+                .orderBy(FieldPath.documentId());
+        query = startAfter == null
+                ? query.startAt(cell)
+                : query.startAfter(startAfter.startGeohash, startAfter.id);
+        query = query.endAt(GeoHash.rangeEnd(cell)).limit(pageSize);
+
+        return toOffers(await(Collections.singletonList(query)), stats);
+    }
+
+    @Override
+    public List<RideRequest> requestsNear(List<String> cells, long earliestMillis,
+                                          long latestMillis) throws IOException {
+        List<Query> queries = radiusQueries("requests", "pickupGeohash",
+                cells, earliestMillis, latestMillis);
+
+        List<RideRequest> requests = new ArrayList<>();
+        for (DocumentSnapshot doc : await(queries)) {
+            addRequest(requests, doc);
+        }
+        return requests;
+    }
+
+    @Override
+    public List<RideOffer> offersAlongRoute(String routeCell, long earliestMillis,
+                                            long latestMillis) throws IOException {
+        Query query = db.collection("offers")
+                .whereArrayContains("routeCells", routeCell)
+                .whereEqualTo("status", "open")
+                .whereGreaterThanOrEqualTo("timeMillis", earliestMillis)
+                .whereLessThanOrEqualTo("timeMillis", latestMillis);
+
+        List<RideOffer> offers = new ArrayList<>();
+        for (DocumentSnapshot doc : await(Collections.singletonList(query))) {
+            addOffer(offers, doc);
+        }
+        return offers;
+    }
+
+    @Override
+    public List<RideOffer> offersBetween(List<String> odKeys, long earliestMillis,
+                                         long latestMillis) throws IOException {
+        // One equality query per MAX_IN_VALUES keys; a single key in practice
+        List<Query> queries = new ArrayList<>();
+        for (int from = 0; from < odKeys.size(); from += MAX_IN_VALUES) {
+            List<String> keys = odKeys.subList(from, Math.min(from + MAX_IN_VALUES, odKeys.size()));
+            queries.add(db.collection("offers")
+                    .whereIn("odKey", keys)
+                    .whereEqualTo("status", "open")
+                    .whereGreaterThanOrEqualTo("timeMillis", earliestMillis)
+                    .whereLessThanOrEqualTo("timeMillis", latestMillis));
+        }
+
+        List<RideOffer> offers = new ArrayList<>();
+        for (DocumentSnapshot doc : await(queries)) {
+            addOffer(offers, doc);
+        }
+        return offers;
+    }
+
+    @Override
+    public List<RideOffer> offersInWeek(List<String> weekKeys, long earliestMillis)
+            throws IOException {
+        List<RideOffer> offers = new ArrayList<>();
+        for (DocumentSnapshot doc : await(weekQueries("offers", weekKeys, earliestMillis))) {
+            addOffer(offers, doc);
+        }
+        return offers;
+    }
+
+    @Override
+    public List<RideRequest> requestsInWeek(List<String> weekKeys, long earliestMillis)
+            throws IOException {
+        List<RideRequest> requests = new ArrayList<>();
+        for (DocumentSnapshot doc : await(weekQueries("requests", weekKeys, earliestMillis))) {
+            addRequest(requests, doc);
+        }
+        return requests;
+    }
+
+    /**
+     * One query per geohash cell: OPEN offers starting in that cell and
+     * departing within the window. Also used for live snapshot listeners.
+     */
+    public List<Query> offerQueries(List<String> cells, long earliestMillis, long latestMillis) {
+        return radiusQueries("offers", "startGeohash", cells, earliestMillis, latestMillis);
+    }
+
+    private List<Query> radiusQueries(String collection, String geohashField, List<String> cells,
+                                      long earliestMillis, long latestMillis) {
+        List<Query> queries = new ArrayList<>();
+        for (String cell : cells) {
+            queries.add(db.collection(collection)
+                    .whereEqualTo("status", "open")
+                    .whereGreaterThanOrEqualTo("timeMillis", earliestMillis)
+                    .whereLessThanOrEqualTo("timeMillis", latestMillis)
+                    .orderBy(geohashField)
+                    .startAt(cell)
+                    .endAt(GeoHash.rangeEnd(cell)));
+        }
+        return queries;
+    }
+
+    private List<Query> weekQueries(String collection, List<String> weekKeys,
+                                    long earliestMillis) {
+        // array-contains-any takes MAX_IN_VALUES keys, so one query per chunk;
+        // await drops recurring posts found under several keys
+        List<Query> queries = new ArrayList<>();
+        for (int from = 0; from < weekKeys.size(); from += MAX_IN_VALUES) {
+            List<String> keys = weekKeys.subList(from,
+                    Math.min(from + MAX_IN_VALUES, weekKeys.size()));
+            queries.add(db.collection(collection)
+                    .whereArrayContainsAny("weekKeys", keys)
+                    .whereEqualTo("status", "open")
+                    .whereGreaterThanOrEqualTo("lastDepartureMillis", earliestMillis));
+        }
+        return queries;
+    }
+
+    /**
+     * Run the queries together and flatten their results, dropping documents
+     * returned by more than one of them
+     */
+    private static List<QueryDocumentSnapshot> await(List<Query> queries) throws IOException {
+        List<Task<QuerySnapshot>> tasks = new ArrayList<>();
+        for (Query query : queries) {
+            tasks.add(query.get());
+        }
+
+        List<QuerySnapshot> snapshots;
+        try {
+            snapshots = Tasks.await(Tasks.whenAllSuccess(tasks));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new IOException(cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading candidates");
+        }
+
+        List<QueryDocumentSnapshot> docs = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (QuerySnapshot snapshot : snapshots) {
+            for (QueryDocumentSnapshot doc : snapshot) {
+                if (seen.add(doc.getId())) {
+                    docs.add(doc);
+                }
+            }
+        }
+        return docs;
+    }
+
+    // Map documents to offers, adding the time it takes to stats
+    private static List<RideOffer> toOffers(List<QueryDocumentSnapshot> docs, MatchStats stats) {
+        long start = System.nanoTime();
+        List<RideOffer> offers = new ArrayList<>(docs.size());
+        for (DocumentSnapshot doc : docs) {
+            addOffer(offers, doc);
+        }
+        stats.parseNanos += System.nanoTime() - start;
+        return offers;
+    }
+
+    private static void addOffer(List<RideOffer> offers, DocumentSnapshot doc) {
+        try {
+            offers.add(RideDocuments.toOffer(doc));
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Error processing offer: " + doc.getId(), e);
+        }
+    }
+
+    private static void addRequest(List<RideRequest> requests, DocumentSnapshot doc) {
+        try {
+            requests.add(RideDocuments.toRequest(doc));
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Error processing request: " + doc.getId(), e);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.booknest.campusridenest.data.firestore;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.booknest.campusridenest.model.LatLon;
+import com.booknest.campusridenest.model.RideOffer;
+import com.booknest.campusridenest.model.RideRequest;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.GeoPoint;
+
+import java.util.List;
+
+/**
+ * Maps offer and request documents onto the matching-core models.
+ * The models hold LatLon instead of GeoPoint, so toObject() can't fill them;
+ * fields are copied one by one instead. A field missing from the document
+ * keeps the model's default, like toObject() does.
+ */
+public final class RideDocuments {
+
+    private RideDocuments() {
+    }
+
+    @NonNull
+    public static RideOffer toOffer(@NonNull DocumentSnapshot doc) {
+        RideOffer offer = new RideOffer();
+        offer.id = doc.getId();
+        offer.type = getString(doc, "type", offer.type);
+        offer.ownerUid = doc.getString("ownerUid");
+        offer.setFrom(doc.getString("from"));
+        offer.setTo(doc.getString("to"));
+        offer.origin = getString(doc, "origin", offer.origin);
+        offer.destination = getString(doc, "destination", offer.destination);
+        offer.timeMillis = getLong(doc, "timeMillis");
+        offer.seats = (int) getLong(doc, "seats");
+        offer.dateTime = doc.get("dateTime");
+        offer.createdAt = doc.get("createdAt");
+        offer.status = doc.get("status");
+        offer.updatedAt = doc.get("updatedAt");
+
+        offer.startLocation = toLatLon(doc.getGeoPoint("startLocation"));
+        offer.endLocation = toLatLon(doc.getGeoPoint("endLocation"));
+        offer.startGeohash = doc.getString("startGeohash");
+        offer.endGeohash = doc.getString("endGeohash");
+        offer.routeCells = getStringList(doc, "routeCells");
+        offer.odKey = doc.getString("odKey");
+        offer.weekdayMask = (int) getLong(doc, "weekdayMask");
+        offer.minuteOfDay = (int) getLong(doc, "minuteOfDay");
+        offer.timeZone = doc.getString("timeZone");
+        offer.weekKeys = getStringList(doc, "weekKeys");
+
+        offer.allowsSmoking = getBoolean(doc, "allowsSmoking");
+        offer.allowsPets = getBoolean(doc, "allowsPets");
+        offer.musicPreference = getString(doc, "musicPreference", offer.musicPreference);
+        offer.conversationLevel = getString(doc, "conversationLevel", offer.conversationLevel);
+        offer.preferenceMask = getInteger(doc, "preferenceMask");
+
+        offer.driverRating = getDouble(doc, "driverRating", offer.driverRating);
+        offer.pricePerSeat = getDouble(doc, "pricePerSeat", offer.pricePerSeat);
+        return offer;
+    }
+
+    @NonNull
+    public static RideRequest toRequest(@NonNull DocumentSnapshot doc) {
+        RideRequest request = new RideRequest();
+        request.id = doc.getId();
+        request.type = getString(doc, "type", request.type);
+        request.ownerUid = doc.getString("ownerUid");
+        request.setFrom(doc.getString("from"));
+        request.setTo(doc.getString("to"));
+        request.origin = getString(doc, "origin", request.origin);
+        request.destination = getString(doc, "destination", request.destination);
+        request.timeMillis = getLong(doc, "timeMillis");
+        request.seats = (int) getLong(doc, "seats");
+        request.dateTime = doc.get("dateTime");
+        request.status = doc.get("status");
+        request.createdAt = doc.get("createdAt");
+        request.updatedAt = doc.get("updatedAt");
+
+        request.pickupLocation = toLatLon(doc.getGeoPoint("pickupLocation"));
+        request.dropoffLocation = toLatLon(doc.getGeoPoint("dropoffLocation"));
+        request.pickupGeohash = doc.getString("pickupGeohash");
+        request.dropoffGeohash = doc.getString("dropoffGeohash");
+        request.weekdayMask = (int) getLong(doc, "weekdayMask");
+        request.minuteOfDay = (int) getLong(doc, "minuteOfDay");
+        request.timeZone = doc.getString("timeZone");
+        request.weekKeys = getStringList(doc, "weekKeys");
+
+        request.needsNonSmoking = getBoolean(doc, "needsNonSmoking");
+        request.needsNoPets = getBoolean(doc, "needsNoPets");
+        request.musicPreference = getString(doc, "musicPreference", request.musicPreference);
+        request.conversationLevel = getString(doc, "conversationLevel", request.conversationLevel);
+        request.preferenceMask = getInteger(doc, "preferenceMask");
+
+        request.maxBudget = getDouble(doc, "maxBudget", request.maxBudget);
+        return request;
+    }
+
+    @Nullable
+    public static LatLon toLatLon(@Nullable GeoPoint point) {
+        return point == null ? null : new LatLon(point.getLatitude(), point.getLongitude());
+    }
+
+    @Nullable
+    public static GeoPoint toGeoPoint(@Nullable LatLon point) {
+        return point == null ? null : new GeoPoint(point.getLatitude(), point.getLongitude());
+    }
+
+    @Nullable
+    private static String getString(DocumentSnapshot doc, String field, @Nullable String fallback) {
+        return doc.contains(field) ? doc.getString(field) : fallback;
+    }
+
+    private static long getLong(DocumentSnapshot doc, String field) {
+        Long value = doc.getLong(field);
+        return value != null ? value : 0L;
+    }
+
+    @Nullable
+    private static Integer getInteger(DocumentSnapshot doc, String field) {
+        Long value = doc.getLong(field);
+        return value != null ? value.intValue() : null;
+    }
+
+    private static double getDouble(DocumentSnapshot doc, String field, double fallback) {
+        Double value = doc.getDouble(field);
+        return value != null ? value : fallback;
+    }
+
+    private static boolean getBoolean(DocumentSnapshot doc, String field) {
+        return Boolean.TRUE.equals(doc.getBoolean(field));
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private static List<String> getStringList(DocumentSnapshot doc, String field) {
+        Object value = doc.get(field);
+        return value instanceof List ? (List<String>) value : null;
+    }
+}
@@ -0,0 +1,47 @@
+package com.booknest.campusridenest.data.repo
+
+import com.booknest.campusridenest.model.RideMatch
+import com.booknest.campusridenest.model.RideRequest
+import com.booknest.campusridenest.services.RideMatchingService
+import kotlinx.coroutines.channels.awaitClose
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.callbackFlow
+
+class MatchRepository(
+    private val matchingService: RideMatchingService = RideMatchingService()
+) {
+
+    // One emission of the match list; complete is false while some cells are still loading
+    data class MatchUpdate(val matches: List<RideMatch>, val complete: Boolean)
+
+    // Live top matches for a request; emits partial lists while loading, then again whenever a candidate offer changes.
+    // Recurring requests are matched by time of week and emit once
+    fun observeMatches(
+        request: RideRequest,
+        limit: Int = RideMatchingService.DEFAULT_MATCH_LIMIT
+    ): Flow<MatchUpdate> = callbackFlow {
+        val callback = object : RideMatchingService.MatchCallback {
+            override fun onPartialMatches(matches: List<RideMatch>) {
+                trySend(MatchUpdate(matches, complete = false))
+            }
+
+            override fun onMatchesFound(matches: List<RideMatch>) {
+                trySend(MatchUpdate(matches, complete = true))
+            }
+
+            override fun onError(error: String) {
+                close(IllegalStateException(error))
+            }
+        }
+        val handle = if (request.weekdayMask != 0) {
+            matchingService.findRecurringMatches(request, limit, callback)
+        } else {
+            matchingService.watchMatchesForRequest(request, limit, callback)
+        }
+        awaitClose { handle.cancel() }
+    }
+
+    fun shutdown() {
+        matchingService.shutdown()
+    }
+}
@@ -1,7 +1,11 @@
 package com.booknest.campusridenest.data.repo
 
 import android.util.Log
+import com.booknest.campusridenest.data.firestore.RideDocuments
 import com.booknest.campusridenest.model.RideOffer
+import com.booknest.campusridenest.util.GeoHash
+import com.booknest.campusridenest.util.RideMatchScorer
+import com.booknest.campusridenest.util.TimeOfWeek
 import com.google.android.gms.tasks.Task
 import com.google.firebase.auth.ktx.auth
 import com.google.firebase.firestore.ktx.firestore
@@ -10,10 +14,12 @@ import com.google.firebase.firestore.Query
 import com.google.firebase.firestore.DocumentSnapshot
 import com.google.firebase.firestore.FieldValue
 import com.google.firebase.firestore.FirebaseFirestore
+import com.google.firebase.firestore.GeoPoint
 import kotlinx.coroutines.channels.awaitClose
 import kotlinx.coroutines.flow.callbackFlow
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.tasks.await
+import java.util.TimeZone
 
 class OfferRepository {
 
@@ -29,7 +35,9 @@ class OfferRepository {
         to: String,
         dateTime: Long,
         seats: Int,
-        status: String = "open"
+        status: String = "open",
+        startLocation: GeoPoint? = null,
+        endLocation: GeoPoint? = null
     ): Task<String> {
         val resolvedOwner = if (ownerUid.trim().isEmpty()) {
             Firebase.auth.currentUser?.uid ?: ""
@@ -37,7 +45,7 @@ class OfferRepository {
 
         val now = System.currentTimeMillis()
 
-        val payload = hashMapOf(
+        val payload = hashMapOf<String, Any>(
             "type" to "offer",
             "ownerUid" to resolvedOwner,
             "from" to from,
@@ -49,6 +57,34 @@ class OfferRepository {
             "updatedAt" to now
         )
 
+        // Geohashes let RideMatchingService query only nearby offers
+        startLocation?.let {
+            payload["startLocation"] = it
+            payload["startGeohash"] = GeoHash.encode(it.latitude, it.longitude, GeoHash.STORAGE_PRECISION)
+        }
+        endLocation?.let {
+            payload["endLocation"] = it
+            payload["endGeohash"] = GeoHash.encode(it.latitude, it.longitude, GeoHash.STORAGE_PRECISION)
+        }
+        if (startLocation != null && endLocation != null) {
+            payload["routeCells"] = GeoHash.routeCells(
+                startLocation.latitude, startLocation.longitude,
+                endLocation.latitude, endLocation.longitude,
+                RideMatchScorer.CORRIDOR_WIDTH_KM
+            )
+            payload["odKey"] = GeoHash.odKey(
+                startLocation.latitude, startLocation.longitude,
+                endLocation.latitude, endLocation.longitude
+            )
+        }
+        // Recurring requests find one-off offers through their time-of-week keys too
+        startLocation?.let {
+            val timeZone = TimeZone.getDefault().id
+            payload["timeZone"] = timeZone
+            payload["lastDepartureMillis"] = TimeOfWeek.lastDepartureMillis(0, dateTime)
+            payload["weekKeys"] = TimeOfWeek.weekKeys(0, 0, dateTime, timeZone, it.latitude, it.longitude)
+        }
+
         return col.add(payload).continueWith { it.result.id }
     }
 
@@ -84,8 +120,7 @@ class OfferRepository {
 
     // --- mapper used above ---
     private fun DocumentSnapshot.toRideOffer(): RideOffer? = try {
-        val base = this.toObject(RideOffer::class.java)
-        base?.apply { id = this@toRideOffer.id }
+        RideDocuments.toOffer(this)
     } catch (_: Exception) {
         null
     }
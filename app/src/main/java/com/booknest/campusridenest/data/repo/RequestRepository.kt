@@ -1,12 +1,16 @@
 package com.booknest.campusridenest.data.repo
 
 import android.util.Log
+import com.booknest.campusridenest.data.firestore.RideDocuments
 import com.booknest.campusridenest.model.RideRequest
+import com.booknest.campusridenest.util.GeoHash
+import com.booknest.campusridenest.util.TimeOfWeek
 import com.google.android.gms.tasks.Task
 import com.google.firebase.auth.ktx.auth
 import com.google.firebase.firestore.DocumentSnapshot
 import com.google.firebase.firestore.FieldValue
 import com.google.firebase.firestore.FirebaseFirestore
+import com.google.firebase.firestore.GeoPoint
 import com.google.firebase.firestore.Query
 import com.google.firebase.firestore.ktx.firestore
 import com.google.firebase.ktx.Firebase
@@ -14,6 +18,7 @@ import kotlinx.coroutines.channels.awaitClose
 import kotlinx.coroutines.flow.callbackFlow
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.tasks.await
+import java.util.TimeZone
 
 class RequestRepository {
 
@@ -29,7 +34,9 @@ class RequestRepository {
         to: String,
         dateTime: Long,
         seats: Int,
-        status: String = "open"
+        status: String = "open",
+        pickupLocation: GeoPoint? = null,
+        dropoffLocation: GeoPoint? = null
     ): Task<String> {
         val resolvedOwner = if (ownerUid.trim().isEmpty()) {
             Firebase.auth.currentUser?.uid ?: ""
@@ -37,7 +44,7 @@ class RequestRepository {
 
         val now = System.currentTimeMillis()
 
-        val payload = hashMapOf(
+        val payload = hashMapOf<String, Any>(
             "type" to "request",
             "ownerUid" to resolvedOwner,
             "from" to from,
@@ -49,6 +56,23 @@ class RequestRepository {
             "updatedAt" to now
         )
 
+        // Geohashes let RideMatchingService.findMatchesForOffer query only nearby requests
+        pickupLocation?.let {
+            payload["pickupLocation"] = it
+            payload["pickupGeohash"] = GeoHash.encode(it.latitude, it.longitude, GeoHash.STORAGE_PRECISION)
+        }
+        dropoffLocation?.let {
+            payload["dropoffLocation"] = it
+            payload["dropoffGeohash"] = GeoHash.encode(it.latitude, it.longitude, GeoHash.STORAGE_PRECISION)
+        }
+        // Recurring offers find one-off requests on any of their days through these keys
+        pickupLocation?.let {
+            val timeZone = TimeZone.getDefault().id
+            payload["timeZone"] = timeZone
+            payload["lastDepartureMillis"] = TimeOfWeek.lastDepartureMillis(0, dateTime)
+            payload["weekKeys"] = TimeOfWeek.weekKeys(0, 0, dateTime, timeZone, it.latitude, it.longitude)
+        }
+
         return col.add(payload).continueWith { it.result.id }
     }
 
@@ -104,8 +128,7 @@ class RequestRepository {
 
     // --- mapper used above ---
     private fun DocumentSnapshot.toRideRequest(): RideRequest? = try {
-        val base = this.toObject(RideRequest::class.java)
-        base?.apply { id = this@toRideRequest.id }
+        RideDocuments.toRequest(this)
     } catch (_: Exception) {
         null
     }
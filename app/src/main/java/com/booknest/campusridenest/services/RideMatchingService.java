@@ -1,84 +1,617 @@
 package com.booknest.campusridenest.services;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
+import androidx.annotation.Nullable;
+
+import com.booknest.campusridenest.data.firestore.FirestoreCandidateSource;
+import com.booknest.campusridenest.data.firestore.RideDocuments;
+import com.booknest.campusridenest.matching.MatchEngine;
+import com.booknest.campusridenest.model.PoolProposal;
 import com.booknest.campusridenest.model.RideMatch;
 import com.booknest.campusridenest.model.RideOffer;
 import com.booknest.campusridenest.model.RideRequest;
+import com.booknest.campusridenest.util.MatchCache;
+import com.booknest.campusridenest.util.MatchStats;
 import com.booknest.campusridenest.util.RideMatchScorer;  // UPDATED IMPORT
+import com.booknest.campusridenest.util.StandingMatchSet;
+import com.google.firebase.firestore.DocumentChange;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Android front end for MatchEngine: runs it over Firestore on background
+ * threads and posts results to the main thread. Live mode keeps Firestore
+ * snapshot listeners, so it lives here rather than in the engine.
+ */
 public class RideMatchingService {
 
     private static final String TAG = "RideMatchingService";
-    private final FirebaseFirestore db;
+
+    // Number of matches returned when the caller does not ask for a specific count
+    public static final int DEFAULT_MATCH_LIMIT = 10;
+
+    // Threads for blocking one-shot queries; a screen runs one or two at a time
+    private static final int QUERY_THREADS = 2;
+
+    private final FirestoreCandidateSource candidateSource;
     private final RideMatchScorer scorer;
+    private final MatchEngine engine;
+    private final MatchCache matchCache;
+
+    // Snapshot listeners and live re-scoring run here; callbacks are posted back to the main thread
+    private final ExecutorService executorService;
+    private final Handler mainHandler;
+
+    private final Executor backgroundExecutor;
+
+    // One-shot engine calls block on their queries, so they get their own threads
+    private final ExecutorService queryExecutor;
+
+    @Nullable private volatile MetricsListener metricsListener;
 
     public RideMatchingService() {
-        this.db = FirebaseFirestore.getInstance();
+        this(FirebaseFirestore.getInstance());
+    }
+
+    public RideMatchingService(FirebaseFirestore db) {
+        this.candidateSource = new FirestoreCandidateSource(db);
         this.scorer = new RideMatchScorer();
+        this.matchCache = MatchCache.getInstance();
+        this.engine = new MatchEngine(candidateSource, scorer, matchCache);
+        this.executorService = Executors.newSingleThreadExecutor();
+        this.queryExecutor = Executors.newFixedThreadPool(QUERY_THREADS);
+        this.mainHandler = new Handler(Looper.getMainLooper());
+
+        // Queries can still complete after shutdown(); their results are dropped
+        this.backgroundExecutor = command -> execute(executorService, command);
+    }
+
+    /**
+     * Stage timings and counts of each request search (one-shot, or the
+     * initial load of live mode), on the main thread. Each is also logged
+     * as one line under this class's tag.
+     */
+    public interface MetricsListener {
+        void onMatchStats(String label, MatchStats stats);
     }
+
     public interface MatchCallback {
         void onMatchesFound(List<RideMatch> matches);
         void onError(String error);
+
+        /**
+         * Best matches so far while a search is still loading; onMatchesFound
+         * follows with the final list. Ignored unless overridden.
+         */
+        default void onPartialMatches(List<RideMatch> matches) {
+        }
+    }
+
+    public interface PoolCallback {
+        void onPoolFound(PoolProposal pool);
+        void onError(String error);
+    }
+
+    /**
+     * Handle for an in-flight match query. Once cancelled, remaining work is
+     * skipped and the callback is never invoked, so stale results from an
+     * earlier query can't overwrite newer ones.
+     */
+    public static class MatchHandle {
+        private final AtomicBoolean cancelled = new AtomicBoolean(false);
+        private final List<Runnable> cancelActions = new ArrayList<>();
+
+        public void cancel() {
+            if (cancelled.getAndSet(true)) {
+                return;
+            }
+            synchronized (cancelActions) {
+                for (Runnable action : cancelActions) {
+                    action.run();
+                }
+                cancelActions.clear();
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+
+        // Run on cancel(), e.g. to remove snapshot listeners
+        void addCancelAction(Runnable action) {
+            synchronized (cancelActions) {
+                if (isCancelled()) {
+                    action.run();
+                } else {
+                    cancelActions.add(action);
+                }
+            }
+        }
+    }
+
+    /**
+     * Receive the stats of every request search from now on, or stop with null
+     */
+    public void setMetricsListener(@Nullable MetricsListener listener) {
+        this.metricsListener = listener;
     }
 
-    public void findMatchesForRequest(RideRequest request, MatchCallback callback) {
+    public MatchHandle findMatchesForRequest(RideRequest request, MatchCallback callback) {
+        return findMatchesForRequest(request, DEFAULT_MATCH_LIMIT, callback);
+    }
+
+    /**
+     * One-shot search with progressive delivery: offers are read a page at a
+     * time per geohash cell (limit plus a startAfter cursor) and the top
+     * matches so far go to onPartialMatches after each page, so a screen can
+     * show the first good matches while the rest load. onMatchesFound gets
+     * the final list. Cancelling the handle stops reading pages.
+     */
+    public MatchHandle findMatchesForRequest(RideRequest request, int limit, MatchCallback callback) {
         Log.d(TAG, "Finding matches for request: " + request.id);
+        MatchHandle handle = new MatchHandle();
+        MatchStats stats = new MatchStats();
+        runMatches(handle, callback, "top matches", "rides", stats,
+                () -> engine.streamMatchesForRequest(request, limit, MatchEngine.DEFAULT_PAGE_SIZE,
+                        partial -> {
+                            deliverPartialMatches(handle, callback, partial);
+                            return !handle.isCancelled();
+                        }, stats));
+        return handle;
+    }
+
+    public MatchHandle findCorridorMatchesForRequest(RideRequest request, MatchCallback callback) {
+        return findCorridorMatchesForRequest(request, DEFAULT_MATCH_LIMIT, callback);
+    }
+
+    /**
+     * Corridor mode: offers whose route passes near the rider, not just ones
+     * starting and ending near them. The offers' routeCells act as an index of
+     * route segments by grid cell, so one array-contains query on the pickup's
+     * cell finds them. Scored with RideMatchScorer.scoreCorridorInto.
+     * No screen calls it yet; the matches screen uses the live radius search.
+     */
+    public MatchHandle findCorridorMatchesForRequest(RideRequest request, int limit,
+                                                     MatchCallback callback) {
+        Log.d(TAG, "Finding corridor matches for request: " + request.id);
+        MatchHandle handle = new MatchHandle();
+        runMatches(handle, callback, "corridor matches", "rides",
+                () -> engine.findCorridorMatchesForRequest(request, limit));
+        return handle;
+    }
+
+    public MatchHandle findOriginDestinationMatches(RideRequest request, MatchCallback callback) {
+        return findOriginDestinationMatches(request, DEFAULT_MATCH_LIMIT, callback);
+    }
+
+    /**
+     * Origin-destination mode for the common campus-to-city trips: offers
+     * whose odKey (start and end cell pair) matches the rider's or a
+     * neighbouring pair, fetched with one whereIn query on odKey instead of
+     * one range query per pickup cell. Returns what a full scan of the
+     * window's offers would. No screen calls it yet; the matches screen uses
+     * the live radius search.
+     */
+    public MatchHandle findOriginDestinationMatches(RideRequest request, int limit,
+                                                    MatchCallback callback) {
+        Log.d(TAG, "Finding origin-destination matches for request: " + request.id);
+        MatchHandle handle = new MatchHandle();
+        runMatches(handle, callback, "origin-destination matches", "rides",
+                () -> engine.findOriginDestinationMatches(request, limit));
+        return handle;
+    }
+
+    public MatchHandle findRecurringMatches(RideRequest request, MatchCallback callback) {
+        return findRecurringMatches(request, DEFAULT_MATCH_LIMIT, callback);
+    }
 
-        // Query all OPEN offers from Firestore
-        db.collection("offers")
-                .whereEqualTo("status", "open")  // CHANGED: "active" → "open"
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    List<RideMatch> matches = new ArrayList<>();
-
-                    for (QueryDocumentSnapshot doc : querySnapshot) {
-                        try {
-                            RideOffer offer = doc.toObject(RideOffer.class);
-                            offer.id = doc.getId();
-
-                            // Skip offers from the same user
-                            if (offer.ownerUid != null && offer.ownerUid.equals(request.ownerUid)) {
-                                continue;
+    /**
+     * Recurring mode for weekly commutes: offers compared by time of week, so
+     * a request repeating Monday to Friday matches recurring offers and the
+     * one-off offers still to come on those days. Candidates are fetched by
+     * the offers' weekKeys (hour-of-week bucket and start cell) with
+     * array-contains-any queries. Each match's weekdayMask holds the days it
+     * works for.
+     */
+    public MatchHandle findRecurringMatches(RideRequest request, int limit,
+                                            MatchCallback callback) {
+        Log.d(TAG, "Finding recurring matches for request: " + request.id);
+        MatchHandle handle = new MatchHandle();
+        runMatches(handle, callback, "recurring matches", "rides",
+                () -> engine.findRecurringMatches(request, limit, System.currentTimeMillis()));
+        return handle;
+    }
+
+    public MatchHandle findMatchesForOffer(RideOffer offer, MatchCallback callback) {
+        return findMatchesForOffer(offer, DEFAULT_MATCH_LIMIT, callback);
+    }
+
+    /**
+     * Reverse matching for drivers: open requests that fit this offer's route,
+     * best first. Uses the requests' pickup geohash and the same time window,
+     * plus the weekKeys of recurring requests (and, for a recurring offer, of
+     * one-off requests on its later days), and scores with the same
+     * RideMatchScorer rules. Each returned match has {@code request} set.
+     */
+    public MatchHandle findMatchesForOffer(RideOffer offer, int limit, MatchCallback callback) {
+        Log.d(TAG, "Finding riders for offer: " + offer.id);
+        MatchHandle handle = new MatchHandle();
+        runMatches(handle, callback, "matching requests", "requests",
+                () -> engine.findMatchesForOffer(offer, limit, System.currentTimeMillis()));
+        return handle;
+    }
+
+    /**
+     * Pool proposal for drivers with more than one seat: the set of open
+     * requests near the offer's start that fits its seats with the highest
+     * total score, so the car can be filled in one round instead of one
+     * match and checkout per rider.
+     */
+    public MatchHandle proposePool(RideOffer offer, PoolCallback callback) {
+        Log.d(TAG, "Planning pool for offer: " + offer.id);
+        MatchHandle handle = new MatchHandle();
+
+        execute(queryExecutor, () -> {
+            if (handle.isCancelled()) {
+                return;
+            }
+            try {
+                PoolProposal pool = engine.proposePool(offer);
+                Log.d(TAG, "Pool of " + pool.riders.size() + " riders fills "
+                        + pool.seatsFilled + "/" + offer.seats + " seats");
+
+                mainHandler.post(() -> {
+                    if (!handle.isCancelled()) {
+                        callback.onPoolFound(pool);
+                    }
+                });
+            } catch (IOException e) {
+                Log.e(TAG, "Error fetching requests", e);
+                mainHandler.post(() -> {
+                    if (!handle.isCancelled()) {
+                        callback.onError("Failed to fetch requests: " + e.getMessage());
+                    }
+                });
+            }
+        });
+
+        return handle;
+    }
+
+    public MatchHandle watchMatchesForRequest(RideRequest request, MatchCallback callback) {
+        return watchMatchesForRequest(request, DEFAULT_MATCH_LIMIT, callback);
+    }
+
+    /**
+     * Live mode: keeps snapshot listeners on the candidate queries and pushes
+     * a fresh top list whenever offers are added, modified or removed. Only
+     * the changed offers are re-scored. The initial load widens like
+     * MatchEngine.findMatchesForRequest: while the limit-th match is below
+     * GOOD_MATCH_SCORE it listens to the next ring of cells too and re-scores
+     * at that ring's radius. Until the load settles, the matches from the
+     * cells loaded so far go to onPartialMatches; the first full list
+     * follows. Recurring offers, which the cell queries only see near their
+     * first departure, are fetched once by time of week and merged in.
+     * Cancel the handle to stop listening.
+     */
+    public MatchHandle watchMatchesForRequest(RideRequest request, int limit, MatchCallback callback) {
+        Log.d(TAG, "Watching matches for request: " + request.id);
+        MatchHandle handle = new MatchHandle();
+
+        if (request.pickupLocation == null) {
+            deliverMatches(handle, callback, new ArrayList<>());
+            return handle;
+        }
+
+        // Show the last results right away; the listeners below refresh them
+        List<RideMatch> cached = matchCache.get(MatchCache.SEARCH_LIVE, request, limit);
+        if (cached != null) {
+            deliverMatches(handle, callback, cached);
+        }
+
+        LiveSearch search = new LiveSearch(request, limit, handle, callback, cached != null);
+        backgroundExecutor.execute(search::widen);
+        search.loadRecurring();
+        return handle;
+    }
+
+    /**
+     * Listeners and standing matches of one live search, widened a ring at a
+     * time until the initial load settles. Only touched on
+     * backgroundExecutor, which is single-threaded.
+     */
+    private final class LiveSearch {
+        private final RideRequest request;
+        private final int limit;
+        private final MatchHandle handle;
+        private final MatchCallback callback;
+        private final boolean showedCached;
+
+        private final List<List<String>> rings;
+        private final StandingMatchSet standing;
+        private final Map<String, Object> offerVersions = new HashMap<>();
+        private final List<String> searchedCells = new ArrayList<>();
+
+        // Recurring offer matches, fetched once; null until loaded
+        @Nullable private List<RideMatch> recurring;
+
+        // Rings listened to so far, their queries, and the queries that have reported
+        private int ringCount;
+        private int queryCount;
+        private final Set<Integer> initialized = new HashSet<>();
+        private boolean loading = true;
+
+        // Stats cover the initial load; fetching is whatever the wait wasn't spent on
+        private final MatchStats stats = new MatchStats();
+        private final long watchStart = System.nanoTime();
+
+        LiveSearch(RideRequest request, int limit, MatchHandle handle, MatchCallback callback,
+                   boolean showedCached) {
+            this.request = request;
+            this.limit = limit;
+            this.handle = handle;
+            this.callback = callback;
+            this.showedCached = showedCached;
+            this.rings = MatchEngine.searchRings(request.pickupLocation);
+            this.standing = new StandingMatchSet(scorer, request, MatchEngine.searchRadiusKm(0));
+            standing.recordInto(stats);
+        }
+
+        // Listen to the next ring's cells and re-score what's loaded at its radius
+        void widen() {
+            if (handle.isCancelled()) {
+                return;
+            }
+            List<String> ring = rings.get(ringCount);
+            standing.widen(MatchEngine.searchRadiusKm(ringCount));
+            ringCount++;
+            searchedCells.addAll(ring);
+
+            List<Query> queries = candidateSource.offerQueries(ring,
+                    request.timeMillis - MatchEngine.TIME_WINDOW_MILLIS,
+                    request.timeMillis + MatchEngine.TIME_WINDOW_MILLIS);
+            if (queries.isEmpty()) {
+                publish(true);
+                return;
+            }
+            for (Query query : queries) {
+                int queryIndex = queryCount++;
+                ListenerRegistration registration = query.addSnapshotListener(
+                        backgroundExecutor, (snapshot, error) -> {
+                            if (handle.isCancelled()) {
+                                return;
+                            }
+                            if (error != null) {
+                                Log.e(TAG, "Error watching rides", error);
+                                deliverError(handle, callback,
+                                        "Failed to watch rides: " + error.getMessage());
+                                return;
                             }
 
-                            // Score the match
-                            RideMatch match = scorer.scoreMatch(request, offer);
+                            boolean changed = applyChanges(standing, offerVersions, snapshot,
+                                    loading ? stats : null);
+                            initialized.add(queryIndex);
 
-                            // Only include matches with score > 0
-                            if (match.matchScore > 0) {
-                                matches.add(match);
+                            if (initialized.size() == queryCount) {
+                                publish(changed);
+                            } else if (changed && !showedCached) {
+                                // Some cells are still loading: show what they have so far
+                                deliverPartialMatches(handle, callback, top());
                             }
-                        } catch (Exception e) {
-                            Log.e(TAG, "Error processing offer: " + doc.getId(), e);
-                        }
-                    }
+                        });
+                handle.addCancelAction(registration::remove);
+            }
+        }
 
-                    // Sort by match score (highest first)
-                    Collections.sort(matches, new Comparator<RideMatch>() {
-                        @Override
-                        public int compare(RideMatch m1, RideMatch m2) {
-                            return Double.compare(m2.matchScore, m1.matchScore);
-                        }
-                    });
-
-                    // Return top 10 matches
-                    List<RideMatch> topMatches = matches.subList(
-                            0, Math.min(10, matches.size()));
-
-                    Log.d(TAG, "Returning " + topMatches.size() + " top matches");
-                    callback.onMatchesFound(topMatches);
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error fetching rides", e);
-                    callback.onError("Failed to fetch rides: " + e.getMessage());
+        // Fetch the recurring offers on a query thread, then publish with them
+        void loadRecurring() {
+            execute(queryExecutor, () -> {
+                if (handle.isCancelled()) {
+                    return;
+                }
+                List<RideMatch> matches;
+                try {
+                    matches = engine.findRecurringOfferMatches(request, limit);
+                } catch (IOException | RuntimeException e) {
+                    // The live matches stand on their own without them
+                    Log.e(TAG, "Error fetching recurring rides", e);
+                    matches = new ArrayList<>();
+                }
+
+                List<RideMatch> loaded = matches;
+                backgroundExecutor.execute(() -> {
+                    if (handle.isCancelled()) {
+                        return;
+                    }
+                    recurring = loaded;
+                    for (RideMatch match : loaded) {
+                        offerVersions.put(match.offer.id, match.offer.updatedAt);
+                    }
+                    if (initialized.size() == queryCount) {
+                        publish(!loaded.isEmpty());
+                    }
                 });
+            });
+        }
+
+        private List<RideMatch> top() {
+            List<RideMatch> matches = standing.top(limit);
+            return recurring != null ? MatchEngine.mergeMatches(matches, recurring, limit) : matches;
+        }
+
+        // Every query so far has reported: widen the load further or deliver the full list
+        private void publish(boolean changed) {
+            List<RideMatch> matches = top();
+            if (loading) {
+                if (!MatchEngine.isGoodEnough(matches, limit) && ringCount < rings.size()) {
+                    if (!showedCached) {
+                        deliverPartialMatches(handle, callback, matches);
+                    }
+                    widen();
+                    return;
+                }
+                if (recurring == null) {
+                    // loadRecurring publishes again once they're in
+                    if (!showedCached) {
+                        deliverPartialMatches(handle, callback, matches);
+                    }
+                    return;
+                }
+                loading = false;
+                standing.recordInto(null);
+                stats.returned = matches.size();
+                stats.fetchNanos = System.nanoTime() - watchStart
+                        - stats.parseNanos - stats.scoreNanos - stats.sortNanos;
+                reportStats("live matches", stats);
+                changed = true;
+            }
+
+            matchCache.put(MatchCache.SEARCH_LIVE, request, limit, matches, offerVersions,
+                    searchedCells);
+            if (changed) {
+                deliverMatches(handle, callback, matches);
+            }
+        }
+    }
+
+    /**
+     * Feed one listener snapshot into the standing set, tracking each offer's
+     * updatedAt and invalidating cached results the changes affect. Counts
+     * and parse time go to stats, if given.
+     */
+    private boolean applyChanges(StandingMatchSet standing, Map<String, Object> offerVersions,
+                                 QuerySnapshot snapshot, @Nullable MatchStats stats) {
+        boolean changed = false;
+
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            QueryDocumentSnapshot doc = change.getDocument();
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                offerVersions.remove(doc.getId());
+                matchCache.onOfferChanged(doc.getId(), null);
+                changed |= standing.remove(doc.getId());
+                continue;
+            }
+            try {
+                long start = System.nanoTime();
+                RideOffer offer = RideDocuments.toOffer(doc);
+                if (stats != null) {
+                    stats.parseNanos += System.nanoTime() - start;
+                    stats.fetched++;
+                }
+                offerVersions.put(offer.id, offer.updatedAt);
+                matchCache.onOfferChanged(offer.id, offer);
+                changed |= standing.upsert(offer);
+            } catch (Exception e) {
+                Log.e(TAG, "Error processing offer: " + doc.getId(), e);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Stop the background executors; call from the owning activity's onDestroy
+     */
+    public void shutdown() {
+        executorService.shutdown();
+        queryExecutor.shutdown();
+    }
+
+    private interface MatchQuery {
+        List<RideMatch> run() throws IOException;
+    }
+
+    private void runMatches(MatchHandle handle, MatchCallback callback, String label,
+                            String source, MatchQuery query) {
+        runMatches(handle, callback, label, source, null, query);
+    }
+
+    /**
+     * Run an engine call on the query executor and deliver its matches,
+     * or an error naming what failed to load. Reports stats, if given,
+     * once the call succeeds.
+     */
+    private void runMatches(MatchHandle handle, MatchCallback callback, String label,
+                            String source, @Nullable MatchStats stats, MatchQuery query) {
+        execute(queryExecutor, () -> {
+            if (handle.isCancelled()) {
+                return;
+            }
+            try {
+                List<RideMatch> matches = query.run();
+                Log.d(TAG, "Returning " + matches.size() + " " + label);
+                if (stats != null) {
+                    reportStats(label, stats);
+                }
+                deliverMatches(handle, callback, matches);
+            } catch (IOException e) {
+                Log.e(TAG, "Error fetching " + source, e);
+                deliverError(handle, callback, "Failed to fetch " + source + ": " + e.getMessage());
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error scoring " + source, e);
+                deliverError(handle, callback, "Failed to score " + source + ": " + e.getMessage());
+            }
+        });
+    }
+
+    // One log line per search, and the stats to the metrics listener if there is one.
+    // Info level, so the line survives in release builds where debug logging is stripped.
+    private void reportStats(String label, MatchStats stats) {
+        Log.i(TAG, "Stats for " + label + ": " + stats);
+        MetricsListener listener = metricsListener;
+        if (listener != null) {
+            mainHandler.post(() -> listener.onMatchStats(label, stats));
+        }
+    }
+
+    private void execute(ExecutorService executor, Runnable command) {
+        try {
+            executor.execute(command);
+        } catch (RejectedExecutionException e) {
+            Log.d(TAG, "Service shut down, dropping match results");
+        }
+    }
+
+    private void deliverMatches(MatchHandle handle, MatchCallback callback, List<RideMatch> matches) {
+        mainHandler.post(() -> {
+            if (!handle.isCancelled()) {
+                callback.onMatchesFound(matches);
+            }
+        });
+    }
+
+    private void deliverPartialMatches(MatchHandle handle, MatchCallback callback,
+                                       List<RideMatch> matches) {
+        mainHandler.post(() -> {
+            if (!handle.isCancelled()) {
+                callback.onPartialMatches(matches);
+            }
+        });
+    }
+
+    private void deliverError(MatchHandle handle, MatchCallback callback, String error) {
+        mainHandler.post(() -> {
+            if (!handle.isCancelled()) {
+                callback.onError(error);
+            }
+        });
     }
-}
\ No newline at end of file
+}
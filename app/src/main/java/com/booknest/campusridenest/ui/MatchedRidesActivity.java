@@ -10,19 +10,20 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.booknest.campusridenest.R;
+import com.booknest.campusridenest.model.LatLon;
 import com.booknest.campusridenest.model.RideMatch;
 import com.booknest.campusridenest.model.RideRequest;
-import com.booknest.campusridenest.services.RideMatchingService;
 import com.booknest.campusridenest.ui.adapters.MatchedRidesAdapter;
+import com.booknest.campusridenest.viewmodel.MatchedRidesViewModel;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.GeoPoint;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -35,7 +36,7 @@ public class MatchedRidesActivity extends AppCompatActivity implements MatchedRi
 
     private RecyclerView recyclerView;
     private MatchedRidesAdapter adapter;
-    private RideMatchingService matchingService;
+    private MatchedRidesViewModel viewModel;
     private RideRequest currentRequest;
 
     private LinearLayout loadingLayout;
@@ -69,7 +70,7 @@ public class MatchedRidesActivity extends AppCompatActivity implements MatchedRi
         btnRetry = findViewById(R.id.btnRetry);
 
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
-        matchingService = new RideMatchingService();
+        viewModel = new ViewModelProvider(this).get(MatchedRidesViewModel.class);
 
         // Reconstructed RideRequest from individual extras
         Intent intent = getIntent();
@@ -91,6 +92,9 @@ public class MatchedRidesActivity extends AppCompatActivity implements MatchedRi
         String musicPref = intent.getStringExtra("musicPreference");
         String conversationPref = intent.getStringExtra("conversationLevel");
         String ownerUid = intent.getStringExtra("ownerUid");
+        int weekdayMask = intent.getIntExtra("weekdayMask", 0);
+        int minuteOfDay = intent.getIntExtra("minuteOfDay", 0);
+        String timeZone = intent.getStringExtra("timeZone");
 
         // Reconstructed RideRequest
         currentRequest = new RideRequest();
@@ -102,13 +106,16 @@ public class MatchedRidesActivity extends AppCompatActivity implements MatchedRi
         currentRequest.destination = to;
         currentRequest.timeMillis = timeMillis;
         currentRequest.seats = seats;
-        currentRequest.pickupLocation = new GeoPoint(pickupLat, pickupLon);
-        currentRequest.dropoffLocation = new GeoPoint(dropoffLat, dropoffLon);
+        currentRequest.pickupLocation = new LatLon(pickupLat, pickupLon);
+        currentRequest.dropoffLocation = new LatLon(dropoffLat, dropoffLon);
         currentRequest.needsNonSmoking = needsNonSmoking;
         currentRequest.needsNoPets = needsNoPets;
         currentRequest.musicPreference = musicPref;
         currentRequest.conversationLevel = conversationPref;
         currentRequest.maxBudget = maxBudget;
+        currentRequest.weekdayMask = weekdayMask;
+        currentRequest.minuteOfDay = minuteOfDay;
+        currentRequest.timeZone = timeZone;
 
         if (currentRequest.from == null || currentRequest.to == null) {
             Toast.makeText(this, "Error: Invalid request data", Toast.LENGTH_SHORT).show();
@@ -119,11 +126,12 @@ public class MatchedRidesActivity extends AppCompatActivity implements MatchedRi
         // Display request info
         displayRequestInfo();
 
-        // Retry button
-        btnRetry.setOnClickListener(v -> findMatches());
+        // Retry button restarts the live query
+        btnRetry.setOnClickListener(v -> viewModel.watchMatches(currentRequest));
 
-        // Start finding matches
-        findMatches();
+        // Live matches: re-rendered whenever a candidate offer changes
+        viewModel.getState().observe(this, this::renderMatchState);
+        viewModel.watchMatchesIfIdle(currentRequest);
     }
 
     private void displayRequestInfo() {
@@ -131,33 +139,44 @@ public class MatchedRidesActivity extends AppCompatActivity implements MatchedRi
         String dateStr = sdf.format(new Date(currentRequest.timeMillis));
 
         String info = currentRequest.from + " → " + currentRequest.to + "\n" + dateStr;
+        if (currentRequest.weekdayMask != 0) {
+            info += " (repeats weekly)";
+        }
         tvRequestInfo.setText(info);
     }
 
-    private void findMatches() {
-        showLoading(true);
-
-        matchingService.findMatchesForRequest(currentRequest, new RideMatchingService.MatchCallback() {
-            @Override
-            public void onMatchesFound(List<RideMatch> matches) {
-                showLoading(false);
+    private void renderMatchState(MatchedRidesViewModel.MatchState state) {
+        if (state instanceof MatchedRidesViewModel.MatchState.Loading) {
+            showLoading(true);
+        } else if (state instanceof MatchedRidesViewModel.MatchState.Results) {
+            MatchedRidesViewModel.MatchState.Results results =
+                    (MatchedRidesViewModel.MatchState.Results) state;
+            List<RideMatch> matches = results.getMatches();
+
+            // Render the first matches as soon as some cells have loaded; keep the
+            // spinner only while there is nothing to show yet
+            if (matches.isEmpty() && !results.getComplete()) {
+                showLoading(true);
+                return;
+            }
+            showLoading(false);
 
-                if (matches.isEmpty()) {
-                    showEmpty(true);
-                } else {
-                    showEmpty(false);
+            if (matches.isEmpty()) {
+                showEmpty(true);
+            } else {
+                showEmpty(false);
+                if (adapter == null) {
                     // UPDATED: Pass 'this' as the click listener
                     adapter = new MatchedRidesAdapter(matches, MatchedRidesActivity.this);
                     recyclerView.setAdapter(adapter);
+                } else {
+                    adapter.setMatches(matches);
                 }
             }
-
-            @Override
-            public void onError(String error) {
-                showLoading(false);
-                showError(error);
-            }
-        });
+        } else if (state instanceof MatchedRidesViewModel.MatchState.Error) {
+            showLoading(false);
+            showError(((MatchedRidesViewModel.MatchState.Error) state).getMessage());
+        }
     }
 
     // NEW: Handle match click from adapter
@@ -298,4 +317,4 @@ public class MatchedRidesActivity extends AppCompatActivity implements MatchedRi
         emptyLayout.setVisibility(View.GONE);
         tvErrorMessage.setText(message);
     }
-}
\ No newline at end of file
+}
@@ -8,20 +8,35 @@ import android.widget.ProgressBar;
 import android.widget.RadioGroup;
 import android.widget.Toast;
 
+import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.booknest.campusridenest.R;
+import com.booknest.campusridenest.data.firestore.RideDocuments;
+import com.booknest.campusridenest.model.PoolProposal;
+import com.booknest.campusridenest.model.RideMatch;
+import com.booknest.campusridenest.model.RideOffer;
+import com.booknest.campusridenest.services.RideMatchingService;
+import com.booknest.campusridenest.util.GeoHash;
 import com.booknest.campusridenest.util.GeocodingService;
+import com.booknest.campusridenest.util.PreferenceMask;
+import com.booknest.campusridenest.util.RideMatchScorer;
+import com.booknest.campusridenest.util.TimeOfWeek;
+import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.firebase.Timestamp;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.GeoPoint;
 
+import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.TimeZone;
 
 public class OfferCreateActivity extends AppCompatActivity {
 
@@ -30,11 +45,16 @@ public class OfferCreateActivity extends AppCompatActivity {
     private ProgressBar progressBar;
 
     // NEW: Preference UI elements
-    private CheckBox cbAllowSmoking, cbAllowPets;
+    private CheckBox cbAllowSmoking, cbAllowPets, cbRepeatWeekdays;
     private RadioGroup rgMusic, rgConversation;
 
     private FirebaseFirestore db;
     private GeocodingService geocodingService;
+    private RideMatchingService matchingService;
+
+    // Rider search or pool plan for the saved offer; cancelled with the activity
+    // so no dialog outlives it
+    @Nullable private RideMatchingService.MatchHandle ridersHandle;
 
     private Calendar selectedDateTime;
 
@@ -45,6 +65,7 @@ public class OfferCreateActivity extends AppCompatActivity {
 
         db = FirebaseFirestore.getInstance();
         geocodingService = new GeocodingService(this);
+        matchingService = new RideMatchingService();
         selectedDateTime = Calendar.getInstance();
 
         // Initialize views
@@ -60,6 +81,7 @@ public class OfferCreateActivity extends AppCompatActivity {
         // NEW: Initialize preference views
         cbAllowSmoking = findViewById(R.id.cbAllowSmoking);
         cbAllowPets = findViewById(R.id.cbAllowPets);
+        cbRepeatWeekdays = findViewById(R.id.cbRepeatWeekdays);
         rgMusic = findViewById(R.id.rgMusic);
         rgConversation = findViewById(R.id.rgConversation);
 
@@ -127,6 +149,7 @@ public class OfferCreateActivity extends AppCompatActivity {
 
         String userId = FirebaseAuth.getInstance().getCurrentUser().getUid();
         long timeMillis = selectedDateTime.getTimeInMillis();
+        int weekdayMask = cbRepeatWeekdays.isChecked() ? TimeOfWeek.WEEKDAYS : 0;
 
         showLoading(true);
 
@@ -135,7 +158,8 @@ public class OfferCreateActivity extends AppCompatActivity {
             @Override
             public void onSuccess(GeoPoint startLocation, GeoPoint endLocation) {
                 saveOfferToFirestore(userId, from, to, startLocation, endLocation,
-                        timeMillis, seats, price, allowsSmoking, allowsPets, musicPref, conversationPref);
+                        timeMillis, weekdayMask, seats, price, allowsSmoking, allowsPets,
+                        musicPref, conversationPref);
             }
 
             @Override
@@ -162,11 +186,13 @@ public class OfferCreateActivity extends AppCompatActivity {
 
     private void saveOfferToFirestore(String userId, String origin, String dest,
                                       GeoPoint startLocation, GeoPoint endLocation,
-                                      long timeMillis, int seats, double price,
+                                      long timeMillis, int weekdayMask, int seats, double price,
                                       boolean allowsSmoking, boolean allowsPets,
                                       String musicPref, String conversationPref) {
 
         String rideId = db.collection("offers").document().getId();
+        String timeZone = TimeZone.getDefault().getID();
+        int minuteOfDay = TimeOfWeek.minuteOfDay(timeMillis, TimeOfWeek.zone(timeZone));
 
         Map<String, Object> offerData = new HashMap<>();
         offerData.put("id", rideId);
@@ -177,6 +203,10 @@ public class OfferCreateActivity extends AppCompatActivity {
         offerData.put("origin", origin);
         offerData.put("destination", dest);
         offerData.put("timeMillis", timeMillis);
+        offerData.put("weekdayMask", weekdayMask);
+        offerData.put("minuteOfDay", minuteOfDay);
+        offerData.put("timeZone", timeZone);
+        offerData.put("lastDepartureMillis", TimeOfWeek.lastDepartureMillis(weekdayMask, timeMillis));
         offerData.put("seats", seats);
         offerData.put("dateTime", new Timestamp(new Date(timeMillis)));
         offerData.put("createdAt", FieldValue.serverTimestamp());
@@ -186,10 +216,25 @@ public class OfferCreateActivity extends AppCompatActivity {
         // NEW: Matching algorithm fields
         offerData.put("startLocation", startLocation);
         offerData.put("endLocation", endLocation);
+        offerData.put("startGeohash", GeoHash.encode(startLocation.getLatitude(),
+                startLocation.getLongitude(), GeoHash.STORAGE_PRECISION));
+        offerData.put("endGeohash", GeoHash.encode(endLocation.getLatitude(),
+                endLocation.getLongitude(), GeoHash.STORAGE_PRECISION));
+        offerData.put("routeCells", GeoHash.routeCells(
+                startLocation.getLatitude(), startLocation.getLongitude(),
+                endLocation.getLatitude(), endLocation.getLongitude(),
+                RideMatchScorer.CORRIDOR_WIDTH_KM));
+        offerData.put("odKey", GeoHash.odKey(
+                startLocation.getLatitude(), startLocation.getLongitude(),
+                endLocation.getLatitude(), endLocation.getLongitude()));
+        offerData.put("weekKeys", TimeOfWeek.weekKeys(weekdayMask, minuteOfDay, timeMillis,
+                timeZone, startLocation.getLatitude(), startLocation.getLongitude()));
         offerData.put("allowsSmoking", allowsSmoking);
         offerData.put("allowsPets", allowsPets);
         offerData.put("musicPreference", musicPref);
         offerData.put("conversationLevel", conversationPref);
+        offerData.put("preferenceMask", PreferenceMask.encode(
+                allowsSmoking, allowsPets, musicPref, conversationPref));
         offerData.put("driverRating", 5.0);
         offerData.put("pricePerSeat", price);
 
@@ -206,8 +251,15 @@ public class OfferCreateActivity extends AppCompatActivity {
                                 android.util.Log.e("OfferCreateActivity", "Failed to update profile stats", e);
                             });
 
-                    showLoading(false);
-                    finish();
+                    // Show riders whose requests fit this route before closing
+                    RideOffer offer = new RideOffer(rideId, userId, origin, dest, timeMillis, seats,
+                            null, null, "open", null,
+                            RideDocuments.toLatLon(startLocation), RideDocuments.toLatLon(endLocation),
+                            allowsSmoking, allowsPets, musicPref, conversationPref, 5.0, price);
+                    offer.weekdayMask = weekdayMask;
+                    offer.minuteOfDay = minuteOfDay;
+                    offer.timeZone = timeZone;
+                    showMatchingRiders(offer);
                 })
                 .addOnFailureListener(e -> {
                     showLoading(false);
@@ -215,6 +267,80 @@ public class OfferCreateActivity extends AppCompatActivity {
                 });
     }
 
+    private void showMatchingRiders(RideOffer offer) {
+        if (offer.seats > 1) {
+            showPoolProposal(offer);
+            return;
+        }
+
+        ridersHandle = matchingService.findMatchesForOffer(offer, new RideMatchingService.MatchCallback() {
+            @Override
+            public void onMatchesFound(List<RideMatch> matches) {
+                showLoading(false);
+
+                if (matches.isEmpty() || isFinishing()) {
+                    finish();
+                    return;
+                }
+
+                showRidersDialog(matches.size() + " riders match your route", matches);
+            }
+
+            @Override
+            public void onError(String error) {
+                // The offer is already saved; matching riders is best effort
+                android.util.Log.e("OfferCreateActivity", "Failed to find matching riders: " + error);
+                showLoading(false);
+                finish();
+            }
+        });
+    }
+
+    // Several seats: suggest the set of riders that fills the car best
+    private void showPoolProposal(RideOffer offer) {
+        ridersHandle = matchingService.proposePool(offer, new RideMatchingService.PoolCallback() {
+            @Override
+            public void onPoolFound(PoolProposal pool) {
+                showLoading(false);
+
+                if (pool.isEmpty() || isFinishing()) {
+                    finish();
+                    return;
+                }
+
+                showRidersDialog(String.format(Locale.getDefault(),
+                        "Suggested pool: %d riders fill %d of %d seats",
+                        pool.riders.size(), pool.seatsFilled, offer.seats), pool.riders);
+            }
+
+            @Override
+            public void onError(String error) {
+                android.util.Log.e("OfferCreateActivity", "Failed to plan pool: " + error);
+                showLoading(false);
+                finish();
+            }
+        });
+    }
+
+    private void showRidersDialog(String title, List<RideMatch> matches) {
+        SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, h:mm a", Locale.getDefault());
+        StringBuilder message = new StringBuilder();
+        for (RideMatch match : matches) {
+            message.append(String.format(Locale.getDefault(), "%s → %s\n%s • %d%% match\n\n",
+                    match.request.from,
+                    match.request.to,
+                    sdf.format(new Date(match.request.timeMillis)),
+                    (int) match.matchScore));
+        }
+
+        new MaterialAlertDialogBuilder(this)
+                .setTitle(title)
+                .setMessage(message.toString().trim())
+                .setPositiveButton("Done", (dialog, which) -> finish())
+                .setCancelable(false)
+                .show();
+    }
+
     private void showLoading(boolean show) {
         progressBar.setVisibility(show ? android.view.View.VISIBLE : android.view.View.GONE);
         btnSubmit.setEnabled(!show);
@@ -223,6 +349,10 @@ public class OfferCreateActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        if (ridersHandle != null) {
+            ridersHandle.cancel();
+        }
         geocodingService.shutdown();
+        matchingService.shutdown();
     }
 }
\ No newline at end of file
@@ -12,7 +12,10 @@ import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.booknest.campusridenest.R;
+import com.booknest.campusridenest.util.GeoHash;
 import com.booknest.campusridenest.util.GeocodingService;
+import com.booknest.campusridenest.util.PreferenceMask;
+import com.booknest.campusridenest.util.TimeOfWeek;
 import com.google.firebase.Timestamp;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.FieldValue;
@@ -23,6 +26,7 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TimeZone;
 
 public class RequestCreateActivity extends AppCompatActivity {
 
@@ -31,7 +35,7 @@ public class RequestCreateActivity extends AppCompatActivity {
     private ProgressBar progressBar;
 
     // NEW: Preference UI elements
-    private CheckBox cbNeedNonSmoking, cbNeedNoPets;
+    private CheckBox cbNeedNonSmoking, cbNeedNoPets, cbRepeatWeekdays;
     private RadioGroup rgMusic, rgConversation;
 
     private FirebaseFirestore db;
@@ -61,6 +65,7 @@ public class RequestCreateActivity extends AppCompatActivity {
         // NEW: Initialize preference views
         cbNeedNonSmoking = findViewById(R.id.cbNeedNonSmoking);
         cbNeedNoPets = findViewById(R.id.cbNeedNoPets);
+        cbRepeatWeekdays = findViewById(R.id.cbRepeatWeekdays);
         rgMusic = findViewById(R.id.rgMusic);
         rgConversation = findViewById(R.id.rgConversation);
 
@@ -128,6 +133,7 @@ public class RequestCreateActivity extends AppCompatActivity {
 
         String userId = FirebaseAuth.getInstance().getCurrentUser().getUid();
         long timeMillis = selectedDateTime.getTimeInMillis();
+        int weekdayMask = cbRepeatWeekdays.isChecked() ? TimeOfWeek.WEEKDAYS : 0;
 
         showLoading(true);
 
@@ -136,7 +142,8 @@ public class RequestCreateActivity extends AppCompatActivity {
             @Override
             public void onSuccess(GeoPoint pickupLocation, GeoPoint dropoffLocation) {
                 saveRequestToFirestore(userId, from, to, pickupLocation, dropoffLocation,
-                        timeMillis, seats, maxBudget, needsNonSmoking, needsNoPets, musicPref, conversationPref);
+                        timeMillis, weekdayMask, seats, maxBudget, needsNonSmoking, needsNoPets,
+                        musicPref, conversationPref);
             }
 
             @Override
@@ -163,11 +170,13 @@ public class RequestCreateActivity extends AppCompatActivity {
 
     private void saveRequestToFirestore(String userId, String origin, String dest,
                                         GeoPoint pickupLocation, GeoPoint dropoffLocation,
-                                        long timeMillis, int seats, double maxBudget,
+                                        long timeMillis, int weekdayMask, int seats, double maxBudget,
                                         boolean needsNonSmoking, boolean needsNoPets,
                                         String musicPref, String conversationPref) {
 
         String requestId = db.collection("requests").document().getId();
+        String timeZone = TimeZone.getDefault().getID();
+        int minuteOfDay = TimeOfWeek.minuteOfDay(timeMillis, TimeOfWeek.zone(timeZone));
 
         Map<String, Object> requestData = new HashMap<>();
         requestData.put("id", requestId);
@@ -178,6 +187,10 @@ public class RequestCreateActivity extends AppCompatActivity {
         requestData.put("origin", origin);
         requestData.put("destination", dest);
         requestData.put("timeMillis", timeMillis);
+        requestData.put("weekdayMask", weekdayMask);
+        requestData.put("minuteOfDay", minuteOfDay);
+        requestData.put("timeZone", timeZone);
+        requestData.put("lastDepartureMillis", TimeOfWeek.lastDepartureMillis(weekdayMask, timeMillis));
         requestData.put("seats", seats);
         requestData.put("dateTime", new Timestamp(new Date(timeMillis)));
         requestData.put("status", "open");
@@ -187,10 +200,18 @@ public class RequestCreateActivity extends AppCompatActivity {
         // NEW: Matching algorithm fields
         requestData.put("pickupLocation", pickupLocation);
         requestData.put("dropoffLocation", dropoffLocation);
+        requestData.put("pickupGeohash", GeoHash.encode(pickupLocation.getLatitude(),
+                pickupLocation.getLongitude(), GeoHash.STORAGE_PRECISION));
+        requestData.put("dropoffGeohash", GeoHash.encode(dropoffLocation.getLatitude(),
+                dropoffLocation.getLongitude(), GeoHash.STORAGE_PRECISION));
+        requestData.put("weekKeys", TimeOfWeek.weekKeys(weekdayMask, minuteOfDay, timeMillis,
+                timeZone, pickupLocation.getLatitude(), pickupLocation.getLongitude()));
         requestData.put("needsNonSmoking", needsNonSmoking);
         requestData.put("needsNoPets", needsNoPets);
         requestData.put("musicPreference", musicPref);
         requestData.put("conversationLevel", conversationPref);
+        requestData.put("preferenceMask", PreferenceMask.encode(
+                needsNonSmoking, needsNoPets, musicPref, conversationPref));
         requestData.put("maxBudget", maxBudget);
 
         db.collection("requests")
@@ -214,6 +235,9 @@ public class RequestCreateActivity extends AppCompatActivity {
                     intent.putExtra("from", origin);
                     intent.putExtra("to", dest);
                     intent.putExtra("timeMillis", timeMillis);
+                    intent.putExtra("weekdayMask", weekdayMask);
+                    intent.putExtra("minuteOfDay", minuteOfDay);
+                    intent.putExtra("timeZone", timeZone);
                     intent.putExtra("seats", seats);
                     intent.putExtra("maxBudget", maxBudget);
                     intent.putExtra("pickupLat", pickupLocation.getLatitude());
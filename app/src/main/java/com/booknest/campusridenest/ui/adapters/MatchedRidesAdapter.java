@@ -18,7 +18,7 @@ import java.util.Locale;
 
 public class MatchedRidesAdapter extends RecyclerView.Adapter<MatchedRidesAdapter.ViewHolder> {
 
-    private final List<RideMatch> matches;
+    private List<RideMatch> matches;
     private final OnMatchClickListener listener;
 
     // NEW: Click listener interface
@@ -32,6 +32,12 @@ public class MatchedRidesAdapter extends RecyclerView.Adapter<MatchedRidesAdapte
         this.listener = listener;
     }
 
+    // Replace the list when live results change, keeping the RecyclerView in place
+    public void setMatches(List<RideMatch> matches) {
+        this.matches = matches;
+        notifyDataSetChanged();
+    }
+
     @NonNull
     @Override
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -87,7 +93,7 @@ public class MatchedRidesAdapter extends RecyclerView.Adapter<MatchedRidesAdapte
                     match.pickupDistanceKm, match.dropoffDistanceKm);
             tvDistance.setText(distanceText);
 
-            tvCompatibility.setText(match.compatibilityReason);
+            tvCompatibility.setText(match.getCompatibilityReason());
 
             // NEW: Button click
             btnConfirmRide.setOnClickListener(v -> {
@@ -1,6 +1,6 @@
 package com.booknest.campusridenest.ui.posts
 
-import com.google.firebase.firestore.GeoPoint
+import com.booknest.campusridenest.model.LatLon
 import java.io.Serializable
 import java.text.SimpleDateFormat
 import java.util.*
@@ -20,8 +20,8 @@ data class PostUi(
     // NEW: Fields for matching algorithm
     val timeMillis: Long? = null,
     val createdAt: Any? = null,
-    val pickupLocation: GeoPoint? = null,
-    val dropoffLocation: GeoPoint? = null,
+    val pickupLocation: LatLon? = null,
+    val dropoffLocation: LatLon? = null,
     val needsNonSmoking: Boolean? = null,
     val needsNoPets: Boolean? = null,
     val musicPreference: String? = null,
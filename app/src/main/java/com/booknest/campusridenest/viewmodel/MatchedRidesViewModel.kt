@@ -0,0 +1,54 @@
+package com.booknest.campusridenest.viewmodel
+
+import androidx.lifecycle.LiveData
+import androidx.lifecycle.MutableLiveData
+import androidx.lifecycle.ViewModel
+import androidx.lifecycle.viewModelScope
+import com.booknest.campusridenest.data.repo.MatchRepository
+import com.booknest.campusridenest.model.RideMatch
+import com.booknest.campusridenest.model.RideRequest
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.flow.catch
+import kotlinx.coroutines.launch
+
+//ViewModel for the matches screen; keeps the live match query running across rotation
+class MatchedRidesViewModel : ViewModel() {
+
+    private val repository = MatchRepository()
+
+    sealed class MatchState {
+        object Loading : MatchState()
+        // complete is false while more offers are loading and better matches may still arrive
+        data class Results(val matches: List<RideMatch>, val complete: Boolean = true) : MatchState()
+        data class Error(val message: String) : MatchState()
+    }
+
+    private val _state = MutableLiveData<MatchState>()
+    val state: LiveData<MatchState> = _state
+
+    private var watchJob: Job? = null
+
+    //Start (or restart) live matching; the previous query is cancelled first
+    fun watchMatches(request: RideRequest) {
+        watchJob?.cancel()
+        _state.value = MatchState.Loading
+
+        watchJob = viewModelScope.launch {
+            repository.observeMatches(request)
+                .catch { e -> _state.value = MatchState.Error(e.message ?: "Failed to load matches") }
+                .collect { update -> _state.value = MatchState.Results(update.matches, update.complete) }
+        }
+    }
+
+    //Only start if nothing is running yet, e.g. after a configuration change
+    fun watchMatchesIfIdle(request: RideRequest) {
+        if (watchJob == null) {
+            watchMatches(request)
+        }
+    }
+
+    override fun onCleared() {
+        super.onCleared()
+        repository.shutdown()
+    }
+}
@@ -0,0 +1,26 @@
+// Headless matcher over JSONL exports of the offers and requests collections.
+//   ./gradlew :batch-matcher:installDist
+//   batch-matcher/build/install/batch-matcher/bin/batch-matcher \
+//       --offers offers.jsonl --requests requests.jsonl --out matches.jsonl
+plugins {
+    application
+}
+
+java {
+    toolchain {
+        languageVersion.set(JavaLanguageVersion.of(17))
+    }
+}
+
+application {
+    mainClass.set("com.booknest.campusridenest.batch.BatchMatcher")
+    applicationDefaultJvmArgs = listOf("-Xmx2g")
+}
+
+dependencies {
+    implementation(project(":matching-core"))
+    implementation("com.google.code.gson:gson:2.11.0")
+    compileOnly("org.jetbrains:annotations:24.1.0")
+
+    testImplementation(libs.junit)
+}
@@ -0,0 +1,330 @@
+package com.booknest.campusridenest.batch;
+
+import com.booknest.campusridenest.model.RideMatch;
+import com.booknest.campusridenest.model.RideOffer;
+import com.booknest.campusridenest.model.RideRequest;
+import com.booknest.campusridenest.util.OfferBucketIndex;
+import com.booknest.campusridenest.util.RideMatchScorer;
+import com.booknest.campusridenest.util.SeatAssignmentSolver;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Offline matcher over JSONL exports of the offers and requests collections.
+ * Offers are parsed once into an OfferBucketIndex. Requests are streamed in
+ * chunks: each chunk is parsed, matched and formatted in parallel, then
+ * written in input order, so memory holds the offer index plus one chunk.
+ * With --assign, every request is loaded instead and SeatAssignmentSolver
+ * pairs each with at most one offer seat, maximising the total score; each
+ * pairing is written as a rank 1 line.
+ *
+ * <pre>
+ *   batch-matcher --offers offers.jsonl --requests requests.jsonl
+ *                 [--out matches.jsonl] [--limit 10] [--threads N]
+ *                 [--chunk 8192] [--include-closed] [--assign]
+ * </pre>
+ *
+ * Matches go to stdout unless --out is given; progress and the throughput
+ * summary go to stderr.
+ */
+public final class BatchMatcher {
+
+    private static final String USAGE = "Usage: batch-matcher --offers FILE --requests FILE"
+            + " [--out FILE] [--limit N] [--threads N] [--chunk N] [--include-closed] [--assign]";
+
+    // Progress line at most this often
+    private static final long PROGRESS_INTERVAL_NANOS = 5_000_000_000L;
+
+    private final Options options;
+    private final ForkJoinPool pool;
+    final ThroughputStats stats = new ThroughputStats();
+    private final AtomicLong skippedLines = new AtomicLong();
+
+    BatchMatcher(Options options) {
+        this.options = options;
+        this.pool = new ForkJoinPool(options.threads);
+    }
+
+    public static void main(String[] args) {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        BatchMatcher matcher = new BatchMatcher(options);
+        try {
+            matcher.run();
+        } catch (IOException e) {
+            System.err.println("Batch matching failed: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            matcher.pool.shutdown();
+        }
+    }
+
+    void run() throws IOException {
+        if (options.assign) {
+            assignSeats();
+            return;
+        }
+        OfferBucketIndex index = loadOffers();
+
+        try (BufferedReader in = Files.newBufferedReader(
+                Paths.get(options.requestsPath), StandardCharsets.UTF_8);
+             Writer out = openOutput()) {
+            matchRequests(in, out, index);
+        }
+
+        stats.candidatesScanned = index.candidatesScanned();
+        stats.skippedLines = skippedLines.get();
+        stats.printSummary(System.err);
+    }
+
+    private OfferBucketIndex loadOffers() throws IOException {
+        long start = System.nanoTime();
+        List<RideOffer> offers = readOffers();
+
+        OfferBucketIndex index = new OfferBucketIndex(new RideMatchScorer(), offers);
+        stats.offersIndexed = index.size();
+        stats.offerLoadNanos = System.nanoTime() - start;
+        return index;
+    }
+
+    private List<RideOffer> readOffers() throws IOException {
+        List<RideOffer> offers = new ArrayList<>();
+
+        try (BufferedReader in = Files.newBufferedReader(
+                Paths.get(options.offersPath), StandardCharsets.UTF_8)) {
+            List<String> lines;
+            while (!(lines = readChunk(in)).isEmpty()) {
+                List<String> chunk = lines;
+                RideOffer[] parsed = new RideOffer[lines.size()];
+                parallel(chunk.size(), i -> parsed[i] = parseOffer(chunk.get(i)));
+
+                stats.offersRead += lines.size();
+                for (RideOffer offer : parsed) {
+                    if (offer != null) {
+                        offers.add(offer);
+                    }
+                }
+            }
+        }
+        return offers;
+    }
+
+    // --assign: needs every request at once, so nothing is streamed
+    private void assignSeats() throws IOException {
+        long start = System.nanoTime();
+        List<RideOffer> offers = readOffers();
+        stats.offersIndexed = offers.size();
+        stats.offerLoadNanos = System.nanoTime() - start;
+
+        List<RideRequest> requests = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(
+                Paths.get(options.requestsPath), StandardCharsets.UTF_8)) {
+            List<String> lines;
+            while (!(lines = readChunk(in)).isEmpty()) {
+                List<String> chunk = lines;
+                RideRequest[] parsed = new RideRequest[lines.size()];
+                parallel(chunk.size(), i -> parsed[i] = parseRequest(chunk.get(i)));
+
+                stats.requestsRead += lines.size();
+                for (RideRequest request : parsed) {
+                    if (request != null) {
+                        requests.add(request);
+                    }
+                }
+            }
+        }
+
+        start = System.nanoTime();
+        List<RideMatch> assignments =
+                new SeatAssignmentSolver(new RideMatchScorer()).assign(requests, offers);
+        stats.matchNanos = System.nanoTime() - start;
+
+        try (Writer out = openOutput()) {
+            for (RideMatch assignment : assignments) {
+                out.write(MatchJson.format(assignment.request,
+                        Collections.singletonList(assignment)));
+            }
+        }
+
+        stats.requestsMatched = assignments.size();
+        stats.matchesWritten = assignments.size();
+        stats.skippedLines = skippedLines.get();
+        stats.printSummary(System.err);
+    }
+
+    private void matchRequests(BufferedReader in, Writer out, OfferBucketIndex index)
+            throws IOException {
+        long lastProgress = System.nanoTime();
+        List<String> lines;
+
+        while (!(lines = readChunk(in)).isEmpty()) {
+            long start = System.nanoTime();
+            String[] output = new String[lines.size()];
+            int[] matchCounts = new int[lines.size()];
+            List<String> chunk = lines;
+
+            parallel(chunk.size(), i -> {
+                RideRequest request = parseRequest(chunk.get(i));
+                if (request == null) {
+                    return;
+                }
+                List<RideMatch> matches = index.topMatches(request, options.limit);
+                matchCounts[i] = matches.size();
+                output[i] = MatchJson.format(request, matches);
+            });
+
+            for (int i = 0; i < output.length; i++) {
+                if (output[i] != null) {
+                    out.write(output[i]);
+                }
+                if (matchCounts[i] > 0) {
+                    stats.requestsMatched++;
+                    stats.matchesWritten += matchCounts[i];
+                }
+            }
+
+            stats.requestsRead += lines.size();
+            long now = System.nanoTime();
+            stats.matchNanos += now - start;
+            if (now - lastProgress > PROGRESS_INTERVAL_NANOS) {
+                stats.printProgress(System.err);
+                lastProgress = now;
+            }
+        }
+    }
+
+    private RideOffer parseOffer(String line) {
+        try {
+            RideOffer offer = PostJson.parseOffer(line);
+            return options.includeClosed || "open".equals(offer.status) ? offer : null;
+        } catch (PostJson.MalformedPostException e) {
+            skip(e);
+            return null;
+        }
+    }
+
+    private RideRequest parseRequest(String line) {
+        try {
+            RideRequest request = PostJson.parseRequest(line);
+            return options.includeClosed || "open".equals(request.status) ? request : null;
+        } catch (PostJson.MalformedPostException e) {
+            skip(e);
+            return null;
+        }
+    }
+
+    private void skip(Exception e) {
+        if (skippedLines.getAndIncrement() == 0) {
+            System.err.println("Skipping malformed line: " + e.getMessage());
+        }
+    }
+
+    // Up to options.chunkSize non-blank lines; empty at the end of the file
+    private List<String> readChunk(BufferedReader in) throws IOException {
+        List<String> lines = new ArrayList<>(options.chunkSize);
+        String line;
+        while (lines.size() < options.chunkSize && (line = in.readLine()) != null) {
+            if (!line.trim().isEmpty()) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    private Writer openOutput() throws IOException {
+        if (options.outPath == null) {
+            return new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8),
+                    1 << 16);
+        }
+        return Files.newBufferedWriter(Paths.get(options.outPath), StandardCharsets.UTF_8);
+    }
+
+    private interface IndexTask {
+        void run(int i);
+    }
+
+    // Run task for 0..count-1 on the matcher's pool and wait for all of them
+    private void parallel(int count, IndexTask task) throws IOException {
+        try {
+            pool.submit(() -> IntStream.range(0, count).parallel().forEach(task::run)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    static final class Options {
+        String offersPath;
+        String requestsPath;
+        String outPath;
+        int limit = 10;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int chunkSize = 8192;
+        boolean includeClosed;
+        boolean assign;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--offers": options.offersPath = value(args, ++i); break;
+                    case "--requests": options.requestsPath = value(args, ++i); break;
+                    case "--out": options.outPath = value(args, ++i); break;
+                    case "--limit": options.limit = positive(args, ++i); break;
+                    case "--threads": options.threads = positive(args, ++i); break;
+                    case "--chunk": options.chunkSize = positive(args, ++i); break;
+                    case "--include-closed": options.includeClosed = true; break;
+                    case "--assign": options.assign = true; break;
+                    default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            if (options.offersPath == null || options.requestsPath == null) {
+                throw new IllegalArgumentException("--offers and --requests are required");
+            }
+            return options;
+        }
+
+        private static String value(String[] args, int i) {
+            if (i >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[i - 1]);
+            }
+            return args[i];
+        }
+
+        private static int positive(String[] args, int i) {
+            try {
+                int value = Integer.parseInt(value(args, i));
+                if (value > 0) {
+                    return value;
+                }
+            } catch (NumberFormatException e) {
+                // reported below
+            }
+            throw new IllegalArgumentException(args[i - 1] + " needs a positive number");
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.booknest.campusridenest.batch;
+
+import com.booknest.campusridenest.model.RideMatch;
+import com.booknest.campusridenest.model.RideRequest;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Formats ranked matches as JSONL, one line per request/offer pair:
+ * {"requestId", "rank", "offerId", "score", "pickupDistanceKm",
+ * "dropoffDistanceKm", "timeDifferenceMinutes", "reasons"}.
+ * Rank 1 is the request's best offer. Stateless, so matches can be
+ * formatted on the thread that scored them.
+ */
+final class MatchJson {
+
+    private MatchJson() {
+    }
+
+    /**
+     * All lines for one request, each ending in a newline; empty without matches
+     */
+    static String format(RideRequest request, List<RideMatch> matches) {
+        StringWriter lines = new StringWriter(matches.size() * 200);
+        try {
+            for (int rank = 0; rank < matches.size(); rank++) {
+                RideMatch match = matches.get(rank);
+
+                JsonWriter json = new JsonWriter(lines);
+                json.beginObject();
+                json.name("requestId").value(request.id);
+                json.name("rank").value(rank + 1);
+                json.name("offerId").value(match.offer.id);
+                json.name("score").value(round(match.matchScore, 100));
+                json.name("pickupDistanceKm").value(round(match.pickupDistanceKm, 1000));
+                json.name("dropoffDistanceKm").value(round(match.dropoffDistanceKm, 1000));
+                json.name("timeDifferenceMinutes").value(match.timeDifferenceMinutes);
+                json.name("reasons").value(match.getCompatibilityReason());
+                json.endObject();
+                json.flush();
+
+                lines.write('\n');
+            }
+        } catch (IOException e) {
+            // StringWriter never throws
+            throw new UncheckedIOException(e);
+        }
+        return lines.toString();
+    }
+
+    private static double round(double value, double scale) {
+        return Math.round(value * scale) / scale;
+    }
+}
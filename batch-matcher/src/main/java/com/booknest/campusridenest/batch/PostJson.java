@@ -0,0 +1,143 @@
+package com.booknest.campusridenest.batch;
+
+import com.booknest.campusridenest.model.LatLon;
+import com.booknest.campusridenest.model.RideOffer;
+import com.booknest.campusridenest.model.RideRequest;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * Parses one line of a JSONL export of the offers or requests collection,
+ * i.e. one Firestore document as JSON. Locations may be written as
+ * {"latitude": .., "longitude": ..} or as the Admin SDK's
+ * {"_latitude": .., "_longitude": ..}. Fields the matcher doesn't read are
+ * skipped without being materialized. Stateless, so lines can be parsed on
+ * any thread.
+ */
+final class PostJson {
+
+    private PostJson() {
+    }
+
+    /**
+     * Offer in the line; throws MalformedPostException if it isn't a valid document
+     */
+    static RideOffer parseOffer(String line) {
+        try {
+            return readOffer(new JsonReader(new StringReader(line)));
+        } catch (IOException | RuntimeException e) {
+            throw new MalformedPostException(e);
+        }
+    }
+
+    /**
+     * Request in the line; throws MalformedPostException if it isn't a valid document
+     */
+    static RideRequest parseRequest(String line) {
+        try {
+            return readRequest(new JsonReader(new StringReader(line)));
+        } catch (IOException | RuntimeException e) {
+            throw new MalformedPostException(e);
+        }
+    }
+
+    static final class MalformedPostException extends RuntimeException {
+        MalformedPostException(Exception cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
+
+    private static RideOffer readOffer(JsonReader json) throws IOException {
+        RideOffer offer = new RideOffer();
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (json.peek() == JsonToken.NULL) {
+                json.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "id": offer.id = json.nextString(); break;
+                case "ownerUid": offer.ownerUid = json.nextString(); break;
+                case "status": offer.status = json.nextString(); break;
+                case "timeMillis": offer.timeMillis = json.nextLong(); break;
+                case "seats": offer.seats = json.nextInt(); break;
+                case "weekdayMask": offer.weekdayMask = json.nextInt(); break;
+                case "minuteOfDay": offer.minuteOfDay = json.nextInt(); break;
+                case "timeZone": offer.timeZone = json.nextString(); break;
+                case "startLocation": offer.startLocation = readLocation(json); break;
+                case "endLocation": offer.endLocation = readLocation(json); break;
+                case "allowsSmoking": offer.allowsSmoking = json.nextBoolean(); break;
+                case "allowsPets": offer.allowsPets = json.nextBoolean(); break;
+                case "musicPreference": offer.musicPreference = json.nextString(); break;
+                case "conversationLevel": offer.conversationLevel = json.nextString(); break;
+                case "preferenceMask": offer.preferenceMask = json.nextInt(); break;
+                case "driverRating": offer.driverRating = json.nextDouble(); break;
+                case "pricePerSeat": offer.pricePerSeat = json.nextDouble(); break;
+                default: json.skipValue();
+            }
+        }
+        json.endObject();
+        return offer;
+    }
+
+    private static RideRequest readRequest(JsonReader json) throws IOException {
+        RideRequest request = new RideRequest();
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (json.peek() == JsonToken.NULL) {
+                json.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "id": request.id = json.nextString(); break;
+                case "ownerUid": request.ownerUid = json.nextString(); break;
+                case "status": request.status = json.nextString(); break;
+                case "timeMillis": request.timeMillis = json.nextLong(); break;
+                case "seats": request.seats = json.nextInt(); break;
+                case "weekdayMask": request.weekdayMask = json.nextInt(); break;
+                case "minuteOfDay": request.minuteOfDay = json.nextInt(); break;
+                case "timeZone": request.timeZone = json.nextString(); break;
+                case "pickupLocation": request.pickupLocation = readLocation(json); break;
+                case "dropoffLocation": request.dropoffLocation = readLocation(json); break;
+                case "needsNonSmoking": request.needsNonSmoking = json.nextBoolean(); break;
+                case "needsNoPets": request.needsNoPets = json.nextBoolean(); break;
+                case "musicPreference": request.musicPreference = json.nextString(); break;
+                case "conversationLevel": request.conversationLevel = json.nextString(); break;
+                case "preferenceMask": request.preferenceMask = json.nextInt(); break;
+                case "maxBudget": request.maxBudget = json.nextDouble(); break;
+                default: json.skipValue();
+            }
+        }
+        json.endObject();
+        return request;
+    }
+
+    private static LatLon readLocation(JsonReader json) throws IOException {
+        double latitude = Double.NaN;
+        double longitude = Double.NaN;
+
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "latitude":
+                case "_latitude":
+                    latitude = json.nextDouble();
+                    break;
+                case "longitude":
+                case "_longitude":
+                    longitude = json.nextDouble();
+                    break;
+                default:
+                    json.skipValue();
+            }
+        }
+        json.endObject();
+
+        return new LatLon(latitude, longitude);
+    }
+}
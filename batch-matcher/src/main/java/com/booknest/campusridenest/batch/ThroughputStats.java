@@ -0,0 +1,57 @@
+package com.booknest.campusridenest.batch;
+
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * Counters for one batch run and the summary printed at the end.
+ * Only updated from the coordinating thread, between parallel chunks.
+ */
+final class ThroughputStats {
+
+    long offersRead;
+    long offersIndexed;
+    long offerLoadNanos;
+
+    long requestsRead;
+    long requestsMatched;
+    long matchesWritten;
+    long matchNanos;
+
+    long candidatesScanned;
+    long skippedLines;
+
+    /**
+     * One line for periodic progress output
+     */
+    void printProgress(PrintStream out) {
+        double seconds = matchNanos / 1e9;
+        out.printf(Locale.US, "%,d requests, %,d matches, %.1f s, %,.0f requests/s%n",
+                requestsRead, matchesWritten, seconds, perSecond(requestsRead, matchNanos));
+    }
+
+    void printSummary(PrintStream out) {
+        out.printf(Locale.US, "Offers:     %,d read, %,d indexed in %.1f s (%,.0f offers/s)%n",
+                offersRead, offersIndexed, offerLoadNanos / 1e9,
+                perSecond(offersRead, offerLoadNanos));
+        out.printf(Locale.US, "Requests:   %,d read, %,d with matches, %,d matches written%n",
+                requestsRead, requestsMatched, matchesWritten);
+        out.printf(Locale.US, "Matching:   %.1f s, %,.0f requests/s%n",
+                matchNanos / 1e9, perSecond(requestsRead, matchNanos));
+
+        // Pairs the index let us skip versus the full offers x requests space
+        double space = (double) offersIndexed * requestsRead;
+        out.printf(Locale.US, "Candidates: %,d scanned of %.3g pairs (%.3f%%), %,.0f scanned/s, "
+                        + "%.3g pairs/s effective%n",
+                candidatesScanned, space, space > 0 ? 100.0 * candidatesScanned / space : 0.0,
+                perSecond(candidatesScanned, matchNanos), space / Math.max(matchNanos / 1e9, 1e-9));
+
+        if (skippedLines > 0) {
+            out.printf(Locale.US, "Skipped:    %,d malformed lines%n", skippedLines);
+        }
+    }
+
+    private static double perSecond(long count, long nanos) {
+        return nanos > 0 ? count * 1e9 / nanos : 0.0;
+    }
+}
@@ -0,0 +1,103 @@
+package com.booknest.campusridenest.batch;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * A small JSONL export through BatchMatcher.run and back.
+ */
+public class BatchMatcherTest {
+
+    private static final long NOW = 1_760_000_000_000L;
+
+    @Test
+    public void run_writesMatchesInRequestOrderAndCountsMalformedLines() throws IOException {
+        Path dir = Files.createTempDirectory("batch-matcher");
+        Path offers = dir.resolve("offers.jsonl");
+        Path requests = dir.resolve("requests.jsonl");
+        Path out = dir.resolve("matches.jsonl");
+        try {
+            Files.write(offers, Arrays.asList(
+                    offer("near", "driver1", NOW, "latitude", 40.7967, -77.8617),
+                    // Admin SDK location keys
+                    offer("later", "driver2", NOW + 45 * 60000L, "_latitude", 40.8057, -77.8617),
+                    offer("closed", "driver3", NOW, "latitude", 40.7967, -77.8617)
+                            .replace("\"open\"", "\"closed\""),
+                    "{\"id\": \"broken\", ",
+                    "",
+                    offer("own", "rider1", NOW + 40 * 60000L, "latitude", 40.7967, -77.8617)),
+                    StandardCharsets.UTF_8);
+            Files.write(requests, Arrays.asList(
+                    request("r1", "rider1", 40.7967, -77.8617),
+                    "not json",
+                    request("far", "rider2", 41.5, -77.8617),
+                    request("r3", "rider3", 40.7967, -77.8617)),
+                    StandardCharsets.UTF_8);
+
+            // Chunks of two, so order has to hold across chunks as well as within them
+            BatchMatcher matcher = new BatchMatcher(BatchMatcher.Options.parse(new String[]{
+                    "--offers", offers.toString(), "--requests", requests.toString(),
+                    "--out", out.toString(), "--chunk", "2", "--threads", "4"}));
+            matcher.run();
+
+            List<String> lines = new ArrayList<>();
+            for (String line : Files.readAllLines(out, StandardCharsets.UTF_8)) {
+                JsonObject match = JsonParser.parseString(line).getAsJsonObject();
+                lines.add(match.get("requestId").getAsString() + " "
+                        + match.get("rank").getAsInt() + " "
+                        + match.get("offerId").getAsString());
+            }
+            // The closed offer is filtered out and rider1's own offer isn't matched to them
+            assertEquals(Arrays.asList(
+                    "r1 1 near", "r1 2 later",
+                    "r3 1 near", "r3 2 own", "r3 3 later"), lines);
+
+            assertEquals(5, matcher.stats.offersRead);
+            assertEquals(3, matcher.stats.offersIndexed);
+            assertEquals(4, matcher.stats.requestsRead);
+            assertEquals(2, matcher.stats.requestsMatched);
+            assertEquals(5, matcher.stats.matchesWritten);
+            // One offer and one request line; the closed offer and the blank line aren't malformed
+            assertEquals(2, matcher.stats.skippedLines);
+        } finally {
+            Files.deleteIfExists(out);
+            Files.deleteIfExists(requests);
+            Files.deleteIfExists(offers);
+            Files.delete(dir);
+        }
+    }
+
+    private static String offer(String id, String ownerUid, long timeMillis,
+                                String latitudeKey, double startLat, double startLon) {
+        return "{\"id\": \"" + id + "\", \"ownerUid\": \"" + ownerUid + "\", \"status\": \"open\", "
+                + "\"timeMillis\": " + timeMillis + ", \"seats\": 3, \"pricePerSeat\": 5, "
+                + "\"startLocation\": " + location(latitudeKey, startLat, startLon) + ", "
+                + "\"endLocation\": " + location(latitudeKey, 40.85, -77.80) + "}";
+    }
+
+    private static String request(String id, String ownerUid, double pickupLat, double pickupLon) {
+        return "{\"id\": \"" + id + "\", \"ownerUid\": \"" + ownerUid + "\", \"status\": \"open\", "
+                + "\"timeMillis\": " + NOW + ", \"seats\": 1, \"maxBudget\": 10, "
+                + "\"pickupLocation\": " + location("latitude", pickupLat, pickupLon) + ", "
+                + "\"dropoffLocation\": " + location("latitude", 40.85, -77.80) + "}";
+    }
+
+    // Plain or Admin SDK ("_latitude") keys
+    private static String location(String latitudeKey, double latitude, double longitude) {
+        String longitudeKey = latitudeKey.replace("latitude", "longitude");
+        return "{\"" + latitudeKey + "\": " + latitude + ", \""
+                + longitudeKey + "\": " + longitude + "}";
+    }
+}
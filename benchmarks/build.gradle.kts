@@ -0,0 +1,27 @@
+// JMH benchmarks for the matching code, run on a plain JVM:
+//   ./gradlew :benchmarks:jmh
+// Results (throughput, allocation rate from the gc profiler, and p99 from
+// sample mode) are written to benchmarks/build/results/jmh/results.json.
+plugins {
+    java
+    id("me.champeau.jmh")
+}
+
+java {
+    toolchain {
+        languageVersion.set(JavaLanguageVersion.of(17))
+    }
+}
+
+dependencies {
+    jmhImplementation(project(":matching-core"))
+}
+
+jmh {
+    jmhVersion.set("1.37")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    profilers.set(listOf("gc"))
+    resultFormat.set("JSON")
+}
@@ -0,0 +1,118 @@
+package com.booknest.campusridenest.benchmarks;
+
+import com.booknest.campusridenest.model.LatLon;
+import com.booknest.campusridenest.model.RideOffer;
+import com.booknest.campusridenest.model.RideRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic offers and requests shaped like the app's data: trips start
+ * around campus landmarks (GeocodingService's fallback locations) and head to
+ * a handful of cities, departing over one week with a Friday afternoon peak.
+ * Seeded, so every run and every branch sees the same dataset.
+ */
+public class CampusDataset {
+
+    // Week starting Monday 2025-01-06 00:00 local
+    private static final long WEEK_START_MILLIS = 1736139600000L;
+    private static final long HOUR_MILLIS = 3600000L;
+
+    private static final double[][] CAMPUS_SPOTS = {
+            {40.7982, -77.8599},  // Penn State
+            {40.7967, -77.8617},  // HUB
+            {40.7994, -77.8611},  // Pattee Library
+            {40.8122, -77.8563},  // Beaver Stadium
+            {40.8020, -77.8570},  // Gym
+            {40.7950, -77.8630},  // Mall
+    };
+
+    // Destination and share of trips going there
+    private static final double[][] DESTINATIONS = {
+            {40.2737, -76.8844, 0.40},  // Harrisburg
+            {39.9526, -75.1652, 0.30},  // Philadelphia
+            {40.4406, -79.9959, 0.25},  // Pittsburgh
+            {40.7982, -77.8599, 0.05},  // Across campus
+    };
+
+    private static final String[] MUSIC = {"yes", "no", "no-preference"};
+    private static final String[] CONVERSATION = {"chatty", "quiet", "no-preference"};
+
+    private final Random random;
+
+    public CampusDataset(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public List<RideOffer> offers(int count) {
+        List<RideOffer> offers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            RideOffer offer = new RideOffer();
+            offer.id = "offer-" + i;
+            offer.ownerUid = "driver-" + random.nextInt(Math.max(1, count / 3));
+            offer.startLocation = near(CAMPUS_SPOTS[random.nextInt(CAMPUS_SPOTS.length)], 1.5);
+            offer.endLocation = near(destination(), 3.0);
+            offer.timeMillis = departureTime();
+            offer.seats = 1 + random.nextInt(4);
+            offer.pricePerSeat = 5 + random.nextInt(36);
+            offer.allowsSmoking = random.nextInt(10) == 0;
+            offer.allowsPets = random.nextInt(4) == 0;
+            offer.musicPreference = MUSIC[random.nextInt(MUSIC.length)];
+            offer.conversationLevel = CONVERSATION[random.nextInt(CONVERSATION.length)];
+            offer.status = "open";
+            offers.add(offer);
+        }
+        return offers;
+    }
+
+    public List<RideRequest> requests(int count) {
+        List<RideRequest> requests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            RideRequest request = new RideRequest();
+            request.id = "request-" + i;
+            request.ownerUid = "rider-" + i;
+            request.pickupLocation = near(CAMPUS_SPOTS[random.nextInt(CAMPUS_SPOTS.length)], 1.5);
+            request.dropoffLocation = near(destination(), 3.0);
+            request.timeMillis = departureTime();
+            request.seats = 1;
+            request.maxBudget = random.nextBoolean() ? 0.0 : 15 + random.nextInt(30);
+            request.needsNonSmoking = random.nextBoolean();
+            request.needsNoPets = random.nextInt(5) == 0;
+            request.musicPreference = MUSIC[random.nextInt(MUSIC.length)];
+            request.conversationLevel = CONVERSATION[random.nextInt(CONVERSATION.length)];
+            request.status = "open";
+            requests.add(request);
+        }
+        return requests;
+    }
+
+    private double[] destination() {
+        double pick = random.nextDouble();
+        for (double[] destination : DESTINATIONS) {
+            pick -= destination[2];
+            if (pick <= 0) {
+                return destination;
+            }
+        }
+        return DESTINATIONS[0];
+    }
+
+    // Gaussian scatter with the given standard deviation in km
+    private LatLon near(double[] center, double sigmaKm) {
+        double lat = center[0] + random.nextGaussian() * sigmaKm / 111.32;
+        double lon = center[1] + random.nextGaussian() * sigmaKm
+                / (111.32 * Math.cos(Math.toRadians(center[0])));
+        return new LatLon(lat, lon);
+    }
+
+    // A third of trips leave Friday 14:00-18:00, the rest spread over the week
+    private long departureTime() {
+        if (random.nextInt(3) == 0) {
+            return WEEK_START_MILLIS + 4 * 24 * HOUR_MILLIS + 14 * HOUR_MILLIS
+                    + (long) (random.nextDouble() * 4 * HOUR_MILLIS);
+        }
+        return WEEK_START_MILLIS + (long) (random.nextDouble() * 7 * 24 * HOUR_MILLIS);
+    }
+}
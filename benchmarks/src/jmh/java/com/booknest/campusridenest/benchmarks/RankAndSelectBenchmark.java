@@ -0,0 +1,78 @@
+package com.booknest.campusridenest.benchmarks;
+
+import com.booknest.campusridenest.model.RideMatch;
+import com.booknest.campusridenest.model.RideOffer;
+import com.booknest.campusridenest.model.RideRequest;
+import com.booknest.campusridenest.util.OfferSnapshot;
+import com.booknest.campusridenest.util.ParallelSnapshotScorer;
+import com.booknest.campusridenest.util.RideMatchScorer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The step RideMatchingService runs once candidate offers are deserialized:
+ * build the columnar snapshot and select the top matches. Every offer in the
+ * dataset is treated as a candidate, the worst case for one query.
+ * Sample mode reports the latency distribution, including p99.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RankAndSelectBenchmark {
+
+    // RideMatchingService.DEFAULT_MATCH_LIMIT
+    private static final int MATCH_LIMIT = 10;
+
+    @Param({"1000", "10000", "100000"})
+    public int offerCount;
+
+    private final RideMatchScorer scorer = new RideMatchScorer();
+    private final ParallelSnapshotScorer parallelScorer = new ParallelSnapshotScorer(scorer);
+    private List<RideOffer> offers;
+    private OfferSnapshot snapshot;
+    private RideRequest[] requests;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CampusDataset dataset = new CampusDataset(42);
+        offers = dataset.offers(offerCount);
+        snapshot = OfferSnapshot.of(offers);
+        requests = dataset.requests(64).toArray(new RideRequest[0]);
+    }
+
+    private RideRequest nextRequest() {
+        RideRequest request = requests[next++];
+        if (next == requests.length) {
+            next = 0;
+        }
+        return request;
+    }
+
+    /**
+     * Service path: snapshot build plus fork-join top-K
+     */
+    @Benchmark
+    public List<RideMatch> rankAndSelect() {
+        return parallelScorer.topMatches(nextRequest(), OfferSnapshot.of(offers), MATCH_LIMIT);
+    }
+
+    /**
+     * Scoring kernel alone on a prebuilt snapshot, single thread
+     */
+    @Benchmark
+    public List<RideMatch> topMatchesSequential() {
+        return scorer.topMatches(nextRequest(), snapshot, MATCH_LIMIT);
+    }
+}
@@ -0,0 +1,77 @@
+package com.booknest.campusridenest.benchmarks;
+
+import com.booknest.campusridenest.model.RideMatch;
+import com.booknest.campusridenest.model.RideOffer;
+import com.booknest.campusridenest.model.RideRequest;
+import com.booknest.campusridenest.util.GeoUtils;
+import com.booknest.campusridenest.util.RideMatchScorer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-pair costs: one scoreMatch call and one haversine distance.
+ * Pairs are walked round-robin over the dataset so branch prediction and
+ * caches see a realistic mix of matches and rejections.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ScoreMatchBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int offerCount;
+
+    private final RideMatchScorer scorer = new RideMatchScorer();
+    private RideOffer[] offers;
+    private RideRequest[] requests;
+    private double[] coordinates;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CampusDataset dataset = new CampusDataset(42);
+        List<RideOffer> offerList = dataset.offers(offerCount);
+        offers = offerList.toArray(new RideOffer[0]);
+        requests = dataset.requests(256).toArray(new RideRequest[0]);
+
+        // start lat/lon, end lat/lon per offer
+        coordinates = new double[offerCount * 4];
+        for (int i = 0; i < offerCount; i++) {
+            coordinates[i * 4] = offers[i].startLocation.getLatitude();
+            coordinates[i * 4 + 1] = offers[i].startLocation.getLongitude();
+            coordinates[i * 4 + 2] = offers[i].endLocation.getLatitude();
+            coordinates[i * 4 + 3] = offers[i].endLocation.getLongitude();
+        }
+    }
+
+    @Benchmark
+    public RideMatch scoreMatch() {
+        int i = next++;
+        if (next == offers.length) {
+            next = 0;
+        }
+        return scorer.scoreMatch(requests[i & (requests.length - 1)], offers[i]);
+    }
+
+    @Benchmark
+    public double calculateDistance() {
+        int i = next++;
+        if (next == offers.length) {
+            next = 0;
+        }
+        int c = i * 4;
+        return GeoUtils.calculateDistance(coordinates[c], coordinates[c + 1],
+                coordinates[c + 2], coordinates[c + 3]);
+    }
+}
@@ -0,0 +1,95 @@
+package com.booknest.campusridenest.benchmarks;
+
+import com.booknest.campusridenest.model.RideMatch;
+import com.booknest.campusridenest.model.RideOffer;
+import com.booknest.campusridenest.model.RideRequest;
+import com.booknest.campusridenest.util.OfferKdTree;
+import com.booknest.campusridenest.util.OfferSnapshot;
+import com.booknest.campusridenest.util.RideMatchScorer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OfferKdTree against a full snapshot scan for one request, and the cost of
+ * keeping the tree current while checkouts change seats and fill offers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SpatialIndexBenchmark {
+
+    // RideMatchingService.DEFAULT_MATCH_LIMIT
+    private static final int MATCH_LIMIT = 10;
+
+    @Param({"10000", "100000"})
+    public int offerCount;
+
+    private final RideMatchScorer scorer = new RideMatchScorer();
+    private OfferKdTree tree;
+    private OfferSnapshot snapshot;
+    private RideOffer[] offers;
+    private RideRequest[] requests;
+    private int nextRequest;
+    private int nextOffer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CampusDataset dataset = new CampusDataset(42);
+        List<RideOffer> offerList = dataset.offers(offerCount);
+        offers = offerList.toArray(new RideOffer[0]);
+        snapshot = OfferSnapshot.of(offerList);
+        tree = new OfferKdTree(scorer);
+        tree.upsertAll(offerList);
+        requests = dataset.requests(64).toArray(new RideRequest[0]);
+    }
+
+    private RideRequest nextRequest() {
+        RideRequest request = requests[nextRequest++];
+        if (nextRequest == requests.length) {
+            nextRequest = 0;
+        }
+        return request;
+    }
+
+    @Benchmark
+    public List<RideMatch> kdTreeTopMatches() {
+        return tree.topMatches(nextRequest(), MATCH_LIMIT);
+    }
+
+    @Benchmark
+    public List<RideMatch> snapshotScan() {
+        return scorer.topMatches(nextRequest(), snapshot, MATCH_LIMIT);
+    }
+
+    /**
+     * One checkout: a seat is taken, and one in eight offers fills up and is
+     * later reopened by a cancellation
+     */
+    @Benchmark
+    public int checkoutChurn() {
+        RideOffer offer = offers[nextOffer];
+        nextOffer = (nextOffer + 1) % offers.length;
+
+        RideOffer updated = offer.copy(offer.id);
+        updated.seats = Math.max(0, offer.seats - 1);
+        if (nextOffer % 8 == 0) {
+            updated.status = "full";
+            tree.upsert(updated);
+            tree.upsert(offer);
+        } else {
+            tree.upsert(updated);
+        }
+        return tree.size();
+    }
+}
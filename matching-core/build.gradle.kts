@@ -0,0 +1,18 @@
+// Matching engine shared by the app, the benchmarks and batch tools.
+// Plain Java with no Android or Firebase dependencies, so it runs on any JVM:
+//   ./gradlew :matching-core:test
+plugins {
+    `java-library`
+}
+
+java {
+    toolchain {
+        languageVersion.set(JavaLanguageVersion.of(17))
+    }
+}
+
+dependencies {
+    compileOnly("org.jetbrains:annotations:24.1.0")
+
+    testImplementation(libs.junit)
+}
@@ -0,0 +1,92 @@
+package com.booknest.campusridenest.matching;
+
+import com.booknest.campusridenest.model.RideOffer;
+import com.booknest.campusridenest.model.RideRequest;
+import com.booknest.campusridenest.util.MatchStats;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Where MatchEngine gets its candidates from: Firestore on the device, a
+ * file or an in-memory list elsewhere. Every method returns only OPEN posts,
+ * with {@code id} set, and blocks until the data is loaded, so callers run
+ * them off the main thread.
+ */
+public interface CandidateSource {
+
+    /**
+     * Offers whose start geohash begins with one of {@code cells}, departing
+     * between {@code earliestMillis} and {@code latestMillis} inclusive.
+     * An offer matching several cells is returned once.
+     */
+    List<RideOffer> offersNear(List<String> cells, long earliestMillis, long latestMillis)
+            throws IOException;
+
+    /**
+     * offersNear that adds the time spent turning documents into offers to
+     * stats. Sources that don't decode anything leave it at zero.
+     */
+    default List<RideOffer> offersNear(List<String> cells, long earliestMillis, long latestMillis,
+                                       MatchStats stats) throws IOException {
+        return offersNear(cells, earliestMillis, latestMillis);
+    }
+
+    /**
+     * One page of offersNear for a single cell, ordered by start geohash and
+     * then id: at most {@code pageSize} offers after {@code startAfter}, the
+     * last offer of the previous page, or from the start of the cell if it is
+     * null. A page shorter than {@code pageSize} is the cell's last.
+     */
+    List<RideOffer> offersNearPage(String cell, long earliestMillis, long latestMillis,
+                                   @Nullable RideOffer startAfter, int pageSize)
+            throws IOException;
+
+    /**
+     * offersNearPage that adds its decoding time to stats, as offersNear does
+     */
+    default List<RideOffer> offersNearPage(String cell, long earliestMillis, long latestMillis,
+                                           @Nullable RideOffer startAfter, int pageSize,
+                                           MatchStats stats) throws IOException {
+        return offersNearPage(cell, earliestMillis, latestMillis, startAfter, pageSize);
+    }
+
+    /**
+     * Requests whose pickup geohash begins with one of {@code cells}, departing
+     * between {@code earliestMillis} and {@code latestMillis} inclusive.
+     * A request matching several cells is returned once.
+     */
+    List<RideRequest> requestsNear(List<String> cells, long earliestMillis, long latestMillis)
+            throws IOException;
+
+    /**
+     * Offers with {@code routeCell} in their routeCells, departing between
+     * {@code earliestMillis} and {@code latestMillis} inclusive
+     */
+    List<RideOffer> offersAlongRoute(String routeCell, long earliestMillis, long latestMillis)
+            throws IOException;
+
+    /**
+     * Offers whose odKey is one of {@code odKeys}, departing between
+     * {@code earliestMillis} and {@code latestMillis} inclusive
+     */
+    List<RideOffer> offersBetween(List<String> odKeys, long earliestMillis, long latestMillis)
+            throws IOException;
+
+    /**
+     * Offers, recurring or one-off, with one of {@code weekKeys} among their
+     * TimeOfWeek.weekKeys and a last departure at or after {@code earliestMillis}.
+     * An offer matching several keys is returned once.
+     */
+    List<RideOffer> offersInWeek(List<String> weekKeys, long earliestMillis) throws IOException;
+
+    /**
+     * Requests with one of {@code weekKeys} among their TimeOfWeek.weekKeys
+     * and a last departure at or after {@code earliestMillis}. A request
+     * matching several keys is returned once.
+     */
+    List<RideRequest> requestsInWeek(List<String> weekKeys, long earliestMillis)
+            throws IOException;
+}
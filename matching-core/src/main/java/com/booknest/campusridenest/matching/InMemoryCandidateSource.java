@@ -0,0 +1,327 @@
+package com.booknest.campusridenest.matching;
+
+import com.booknest.campusridenest.model.LatLon;
+import com.booknest.campusridenest.model.RideOffer;
+import com.booknest.campusridenest.model.RideRequest;
+import com.booknest.campusridenest.util.GeoHash;
+import com.booknest.campusridenest.util.RideMatchScorer;
+import com.booknest.campusridenest.util.TimeOfWeek;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * CandidateSource over posts held in memory, for benchmarks and batch runs.
+ * Offers and requests are sorted by geohash and id, so each searched cell is
+ * one binary-searched range, the in-memory equivalent of the per-cell queries.
+ * Route cells, origin-destination keys and time-of-week keys map to their
+ * posts through hash indexes. Geohashes, route cells and keys missing from a post are derived
+ * from its locations the same way the app writes them. Only OPEN posts are kept.
+ */
+public class InMemoryCandidateSource implements CandidateSource {
+
+    private final GeohashIndex<RideOffer> offersByStart;
+    private final GeohashIndex<RideRequest> requestsByPickup;
+    private final Map<String, List<RideOffer>> offersByRouteCell = new HashMap<>();
+    private final Map<String, List<RideOffer>> offersByOdKey = new HashMap<>();
+    private final Map<String, List<RideOffer>> offersByWeekKey = new HashMap<>();
+    private final Map<String, List<RideRequest>> requestsByWeekKey = new HashMap<>();
+
+    public InMemoryCandidateSource(Collection<RideOffer> offers,
+                                   Collection<RideRequest> requests) {
+        List<String> offerHashes = new ArrayList<>();
+        List<RideOffer> locatedOffers = new ArrayList<>();
+        for (RideOffer offer : offers) {
+            if (!"open".equals(offer.status)) {
+                continue;
+            }
+
+            String geohash = geohash(offer.startGeohash, offer.startLocation);
+            if (geohash != null) {
+                offerHashes.add(geohash);
+                locatedOffers.add(offer);
+            }
+            for (String cell : routeCells(offer)) {
+                addTo(offersByRouteCell, cell, offer);
+            }
+            String odKey = odKey(offer);
+            if (odKey != null) {
+                addTo(offersByOdKey, odKey, offer);
+            }
+            List<String> weekKeys = TimeOfWeek.weekKeys(offer);
+            if (weekKeys != null) {
+                for (String weekKey : weekKeys) {
+                    addTo(offersByWeekKey, weekKey, offer);
+                }
+            }
+        }
+        offersByStart = new GeohashIndex<>(offerHashes, locatedOffers,
+                offer -> offer.id, offer -> offer.timeMillis);
+
+        List<String> requestHashes = new ArrayList<>();
+        List<RideRequest> locatedRequests = new ArrayList<>();
+        for (RideRequest request : requests) {
+            if (!"open".equals(request.status)) {
+                continue;
+            }
+
+            String geohash = geohash(request.pickupGeohash, request.pickupLocation);
+            if (geohash != null) {
+                requestHashes.add(geohash);
+                locatedRequests.add(request);
+            }
+            List<String> weekKeys = TimeOfWeek.weekKeys(request);
+            if (weekKeys != null) {
+                for (String weekKey : weekKeys) {
+                    addTo(requestsByWeekKey, weekKey, request);
+                }
+            }
+        }
+        requestsByPickup = new GeohashIndex<>(requestHashes, locatedRequests,
+                request -> request.id, request -> request.timeMillis);
+    }
+
+    @Override
+    public List<RideOffer> offersNear(List<String> cells, long earliestMillis, long latestMillis) {
+        return offersByStart.find(cells, earliestMillis, latestMillis);
+    }
+
+    @Override
+    public List<RideOffer> offersNearPage(String cell, long earliestMillis, long latestMillis,
+                                          @Nullable RideOffer startAfter, int pageSize) {
+        String afterGeohash = startAfter == null ? null
+                : geohash(startAfter.startGeohash, startAfter.startLocation);
+        return offersByStart.page(cell, earliestMillis, latestMillis,
+                afterGeohash, startAfter == null ? null : startAfter.id, pageSize);
+    }
+
+    @Override
+    public List<RideRequest> requestsNear(List<String> cells, long earliestMillis,
+                                          long latestMillis) {
+        return requestsByPickup.find(cells, earliestMillis, latestMillis);
+    }
+
+    @Override
+    public List<RideOffer> offersAlongRoute(String routeCell, long earliestMillis,
+                                            long latestMillis) {
+        List<RideOffer> result = new ArrayList<>();
+        addDeparting(result, offersByRouteCell.get(routeCell), earliestMillis, latestMillis);
+        return result;
+    }
+
+    @Override
+    public List<RideOffer> offersBetween(List<String> odKeys, long earliestMillis,
+                                         long latestMillis) {
+        // Each offer has one key, so buckets never share an offer
+        List<RideOffer> result = new ArrayList<>();
+        for (String odKey : odKeys) {
+            addDeparting(result, offersByOdKey.get(odKey), earliestMillis, latestMillis);
+        }
+        return result;
+    }
+
+    @Override
+    public List<RideOffer> offersInWeek(List<String> weekKeys, long earliestMillis) {
+        return inWeek(offersByWeekKey, weekKeys, earliestMillis,
+                offer -> TimeOfWeek.lastDepartureMillis(offer.weekdayMask, offer.timeMillis));
+    }
+
+    @Override
+    public List<RideRequest> requestsInWeek(List<String> weekKeys, long earliestMillis) {
+        return inWeek(requestsByWeekKey, weekKeys, earliestMillis,
+                request -> TimeOfWeek.lastDepartureMillis(request.weekdayMask, request.timeMillis));
+    }
+
+    private static <T> void addTo(Map<String, List<T>> index, String key, T post) {
+        List<T> bucket = index.get(key);
+        if (bucket == null) {
+            bucket = new ArrayList<>();
+            index.put(key, bucket);
+        }
+        bucket.add(post);
+    }
+
+    private static <T> List<T> inWeek(Map<String, List<T>> index, List<String> weekKeys,
+                                      long earliestMillis, ToLongFunction<T> lastDepartureMillis) {
+        // A recurring post sits under one key per day, so dedupe across keys
+        List<T> result = new ArrayList<>();
+        Set<T> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (String weekKey : weekKeys) {
+            List<T> bucket = index.get(weekKey);
+            if (bucket == null) {
+                continue;
+            }
+            for (T post : bucket) {
+                if (lastDepartureMillis.applyAsLong(post) >= earliestMillis && seen.add(post)) {
+                    result.add(post);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void addDeparting(List<RideOffer> result, @Nullable List<RideOffer> bucket,
+                                     long earliestMillis, long latestMillis) {
+        if (bucket == null) {
+            return;
+        }
+        for (RideOffer offer : bucket) {
+            if (offer.timeMillis >= earliestMillis && offer.timeMillis <= latestMillis) {
+                result.add(offer);
+            }
+        }
+    }
+
+    @Nullable
+    private static String geohash(@Nullable String stored, @Nullable LatLon location) {
+        if (stored != null) {
+            return stored;
+        }
+        return location == null ? null : GeoHash.encode(location.getLatitude(),
+                location.getLongitude(), GeoHash.STORAGE_PRECISION);
+    }
+
+    private static List<String> routeCells(RideOffer offer) {
+        if (offer.routeCells != null) {
+            return offer.routeCells;
+        }
+        if (offer.startLocation == null || offer.endLocation == null) {
+            return Collections.emptyList();
+        }
+        return GeoHash.routeCells(
+                offer.startLocation.getLatitude(), offer.startLocation.getLongitude(),
+                offer.endLocation.getLatitude(), offer.endLocation.getLongitude(),
+                RideMatchScorer.CORRIDOR_WIDTH_KM);
+    }
+
+    @Nullable
+    private static String odKey(RideOffer offer) {
+        if (offer.odKey != null) {
+            return offer.odKey;
+        }
+        if (offer.startLocation == null || offer.endLocation == null) {
+            return null;
+        }
+        return GeoHash.odKey(
+                offer.startLocation.getLatitude(), offer.startLocation.getLongitude(),
+                offer.endLocation.getLatitude(), offer.endLocation.getLongitude());
+    }
+
+    /**
+     * Posts sorted by geohash and then id, the order Firestore pages them in;
+     * a cell's posts are the contiguous range of geohashes starting with it
+     */
+    private static final class GeohashIndex<T> {
+        private static final Comparator<String> IDS =
+                Comparator.nullsFirst(Comparator.naturalOrder());
+
+        private final String[] geohashes;
+        private final String[] ids;
+        private final List<T> posts;
+        private final ToLongFunction<T> timeMillis;
+
+        GeohashIndex(List<String> geohashes, List<T> posts, Function<T, String> id,
+                     ToLongFunction<T> timeMillis) {
+            Integer[] order = new Integer[posts.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> {
+                int byGeohash = geohashes.get(a).compareTo(geohashes.get(b));
+                return byGeohash != 0 ? byGeohash
+                        : IDS.compare(id.apply(posts.get(a)), id.apply(posts.get(b)));
+            });
+
+            this.geohashes = new String[order.length];
+            this.ids = new String[order.length];
+            this.posts = new ArrayList<>(order.length);
+            for (int k = 0; k < order.length; k++) {
+                this.geohashes[k] = geohashes.get(order[k]);
+                this.ids[k] = id.apply(posts.get(order[k]));
+                this.posts.add(posts.get(order[k]));
+            }
+            this.timeMillis = timeMillis;
+        }
+
+        /**
+         * Up to pageSize posts of the cell in the window, after the post with
+         * the given geohash and id, or from the cell's start if afterGeohash is null
+         */
+        List<T> page(String cell, long earliestMillis, long latestMillis,
+                     @Nullable String afterGeohash, @Nullable String afterId, int pageSize) {
+            int start = afterGeohash == null ? lowerBound(cell)
+                    : Math.max(lowerBound(cell), upperBound(afterGeohash, afterId));
+            int end = lowerBound(GeoHash.rangeEnd(cell));
+
+            List<T> result = new ArrayList<>(Math.min(pageSize, Math.max(end - start, 0)));
+            for (int k = start; k < end && result.size() < pageSize; k++) {
+                T post = posts.get(k);
+                long time = timeMillis.applyAsLong(post);
+                if (time >= earliestMillis && time <= latestMillis) {
+                    result.add(post);
+                }
+            }
+            return result;
+        }
+
+        List<T> find(List<String> cells, long earliestMillis, long latestMillis) {
+            List<T> result = new ArrayList<>();
+            Set<T> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+
+            for (String cell : cells) {
+                int end = lowerBound(GeoHash.rangeEnd(cell));
+                for (int k = lowerBound(cell); k < end; k++) {
+                    T post = posts.get(k);
+                    long time = timeMillis.applyAsLong(post);
+                    if (time >= earliestMillis && time <= latestMillis && seen.add(post)) {
+                        result.add(post);
+                    }
+                }
+            }
+            return result;
+        }
+
+        // First position whose geohash is not less than key
+        private int lowerBound(String key) {
+            int lo = 0;
+            int hi = geohashes.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (geohashes[mid].compareTo(key) < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        // First position after the post with this geohash and id
+        private int upperBound(String geohash, @Nullable String id) {
+            int lo = 0;
+            int hi = geohashes.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                int cmp = geohashes[mid].compareTo(geohash);
+                if (cmp < 0 || (cmp == 0 && IDS.compare(ids[mid], id) <= 0)) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+}
@@ -0,0 +1,571 @@
+package com.booknest.campusridenest.matching;
+
+import com.booknest.campusridenest.model.LatLon;
+import com.booknest.campusridenest.model.PoolProposal;
+import com.booknest.campusridenest.model.RideMatch;
+import com.booknest.campusridenest.model.RideOffer;
+import com.booknest.campusridenest.model.RideRequest;
+import com.booknest.campusridenest.util.GeoHash;
+import com.booknest.campusridenest.util.MatchCache;
+import com.booknest.campusridenest.util.MatchScratch;
+import com.booknest.campusridenest.util.MatchStats;
+import com.booknest.campusridenest.util.OfferSnapshot;
+import com.booknest.campusridenest.util.ParallelSnapshotScorer;
+import com.booknest.campusridenest.util.PoolPlanner;
+import com.booknest.campusridenest.util.RideMatchScorer;
+import com.booknest.campusridenest.util.TimeOfWeek;
+import com.booknest.campusridenest.util.TopKCollector;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The matching flows without any storage or threading: candidates come from
+ * a CandidateSource, then RideMatchScorer and the planners rank them. The
+ * app runs it over Firestore; benchmarks and batch jobs run it over posts in
+ * memory. Calls block while the source loads, so keep them off the main thread.
+ */
+public class MatchEngine {
+
+    // Departure window the scorer accepts (it truncates the difference to whole minutes)
+    public static final long TIME_WINDOW_MILLIS =
+            (RideMatchScorer.MAX_TIME_DIFF_MINUTES + 1) * 60000 - 1;
+
+    // Search radii for findMatchesForRequest, narrowest first; each step adds a ring of cells
+    private static final double[] SEARCH_RADII_KM = {2.5, 5.0, 10.0, 15.0};
+
+    // ~4.9 km cells, one query each: about 60 cells within the widest radius
+    // at mid latitudes, more toward the poles where cells narrow
+    public static final int SEARCH_CELL_PRECISION = GeoHash.ROUTE_CELL_PRECISION;
+
+    // Score the limit-th match must reach before the search stops widening
+    public static final double GOOD_MATCH_SCORE = 60.0;
+
+    // Offers read per cell per page when streaming matches
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    // Longest drive from an offer's start to a rider's pickup that corridor matching considers
+    public static final long CORRIDOR_LEAD_MINUTES = 180;
+
+    private final CandidateSource source;
+    private final RideMatchScorer scorer;
+    private final ParallelSnapshotScorer parallelScorer;
+    @Nullable private final MatchCache matchCache;
+
+    public MatchEngine(CandidateSource source) {
+        this(source, new RideMatchScorer(), null);
+    }
+
+    public MatchEngine(CandidateSource source, RideMatchScorer scorer,
+                       @Nullable MatchCache matchCache) {
+        this.source = source;
+        this.scorer = scorer;
+        this.parallelScorer = new ParallelSnapshotScorer(scorer);
+        this.matchCache = matchCache;
+    }
+
+    /**
+     * Receives the best matches so far while a streamed search reads pages
+     */
+    public interface PartialMatchListener {
+        /**
+         * Top matches among the offers read so far, highest score first.
+         * Return false to stop reading; the search then returns what it has.
+         */
+        boolean onPartialMatches(List<RideMatch> matches);
+    }
+
+    public RideMatchScorer getScorer() {
+        return scorer;
+    }
+
+    /**
+     * Geohash cells covering the pickup radius around a point
+     */
+    public static List<String> searchCells(LatLon center) {
+        return GeoHash.coveringCells(center.getLatitude(), center.getLongitude(),
+                RideMatchScorer.MAX_PICKUP_DISTANCE_KM);
+    }
+
+    /**
+     * Cells each step of the widening search adds, narrowest first: the
+     * SEARCH_CELL_PRECISION cells within searchRadiusKm(i) of the point that
+     * no earlier step covered. Cells of one precision don't overlap, so each
+     * ring reads only new offers.
+     */
+    public static List<List<String>> searchRings(LatLon center) {
+        Set<String> searched = new HashSet<>();
+        List<List<String>> rings = new ArrayList<>(SEARCH_RADII_KM.length);
+        for (double radiusKm : SEARCH_RADII_KM) {
+            List<String> ring = new ArrayList<>();
+            for (String cell : GeoHash.cellsWithin(center.getLatitude(), center.getLongitude(),
+                    radiusKm, SEARCH_CELL_PRECISION)) {
+                if (searched.add(cell)) {
+                    ring.add(cell);
+                }
+            }
+            rings.add(ring);
+        }
+        return rings;
+    }
+
+    /**
+     * Pickup radius the search scores at once it has read ring {@code ring}
+     */
+    public static double searchRadiusKm(int ring) {
+        return SEARCH_RADII_KM[ring];
+    }
+
+    /**
+     * Whether the widening search can stop: the limit-th match scores at
+     * least GOOD_MATCH_SCORE
+     */
+    public static boolean isGoodEnough(List<RideMatch> matches, int limit) {
+        return matches.size() >= limit && matches.get(limit - 1).matchScore >= GOOD_MATCH_SCORE;
+    }
+
+    /**
+     * The best {@code limit} of two match lists, highest score first. An
+     * offer in both keeps its higher-scoring match; ties keep the first
+     * list's order.
+     */
+    public static List<RideMatch> mergeMatches(List<RideMatch> first, List<RideMatch> second,
+                                               int limit) {
+        if (second.isEmpty()) {
+            return first;
+        }
+        Map<String, RideMatch> byOffer = new LinkedHashMap<>();
+        for (List<RideMatch> matches : Arrays.asList(first, second)) {
+            for (RideMatch match : matches) {
+                RideMatch held = byOffer.get(match.offer.id);
+                if (held == null || match.matchScore > held.matchScore) {
+                    byOffer.put(match.offer.id, match);
+                }
+            }
+        }
+        List<RideMatch> merged = new ArrayList<>(byOffer.values());
+        merged.sort((a, b) -> Double.compare(b.matchScore, a.matchScore));
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    /**
+     * Best offers for the request, highest score first. The search starts
+     * with the cells within SEARCH_RADII_KM[0] of the pickup and adds the
+     * next ring of cells until the limit-th match scores at least
+     * GOOD_MATCH_SCORE or the widest radius is reached. Each step rescores
+     * the candidates against its own radius, so a rural rider gets offers
+     * 15 km out while a campus search stops after reading a few cells.
+     * Recurring offers are found by time of week and merged in, since the
+     * cell queries only see those whose first departure is in the window.
+     */
+    public List<RideMatch> findMatchesForRequest(RideRequest request, int limit)
+            throws IOException {
+        return findMatchesForRequest(request, limit, new MatchStats());
+    }
+
+    /**
+     * findMatchesForRequest that adds its stage timings and counts to stats
+     */
+    public List<RideMatch> findMatchesForRequest(RideRequest request, int limit,
+                                                 MatchStats stats) throws IOException {
+        if (request.pickupLocation == null) {
+            // Scorer rejects every offer without a pickup point, nothing to load
+            return new ArrayList<>();
+        }
+
+        if (matchCache != null) {
+            List<RideMatch> cached = matchCache.get(MatchCache.SEARCH_WIDENING, request, limit);
+            if (cached != null) {
+                stats.cached = true;
+                stats.returned = cached.size();
+                return cached;
+            }
+        }
+
+        long earliest = request.timeMillis - TIME_WINDOW_MILLIS;
+        long latest = request.timeMillis + TIME_WINDOW_MILLIS;
+
+        List<List<String>> rings = searchRings(request.pickupLocation);
+        List<String> searchedCells = new ArrayList<>();
+        OfferSnapshot candidates = new OfferSnapshot(64);
+        Map<String, Object> offerVersions = new HashMap<>();
+        List<RideMatch> matches = new ArrayList<>();
+
+        List<RideMatch> recurring = findRecurringOfferMatches(request, limit);
+        for (RideMatch match : recurring) {
+            offerVersions.put(match.offer.id, match.offer.updatedAt);
+        }
+
+        for (int i = 0; i < rings.size(); i++) {
+            double radiusKm = searchRadiusKm(i);
+            List<String> ring = rings.get(i);
+            searchedCells.addAll(ring);
+
+            if (!ring.isEmpty()) {
+                for (RideOffer offer : fetchOffersNear(ring, earliest, latest, stats)) {
+                    offerVersions.put(offer.id, offer.updatedAt);
+
+                    // Skip offers from the same user
+                    if (offer.ownerUid != null && offer.ownerUid.equals(request.ownerUid)) {
+                        stats.ownOffers++;
+                        continue;
+                    }
+                    candidates.add(offer);
+                }
+            }
+
+            // Large candidate sets are split across cores
+            matches = mergeMatches(
+                    parallelScorer.topMatches(request, candidates, limit, radiusKm, stats),
+                    recurring, limit);
+            if (isGoodEnough(matches, limit)) {
+                break;
+            }
+        }
+
+        if (matchCache != null) {
+            matchCache.put(MatchCache.SEARCH_WIDENING, request, limit, matches,
+                    offerVersions, searchedCells);
+        }
+        stats.returned = matches.size();
+        return matches;
+    }
+
+    /**
+     * findMatchesForRequest read in pages: each ring's cells are read
+     * {@code pageSize} offers at a time, one page per cell in turn, and the
+     * top matches so far go to the listener after every page that added an
+     * offer, so the first good matches can be shown before the rest arrive.
+     * Returns the same matches as findMatchesForRequest once every page of
+     * the last ring searched is read, or the matches so far if the listener
+     * stopped the search.
+     */
+    public List<RideMatch> streamMatchesForRequest(RideRequest request, int limit, int pageSize,
+                                                   PartialMatchListener listener)
+            throws IOException {
+        return streamMatchesForRequest(request, limit, pageSize, listener, new MatchStats());
+    }
+
+    /**
+     * streamMatchesForRequest that adds its stage timings and counts to stats;
+     * sorting includes every partial list
+     */
+    public List<RideMatch> streamMatchesForRequest(RideRequest request, int limit, int pageSize,
+                                                   PartialMatchListener listener,
+                                                   MatchStats stats) throws IOException {
+        if (request.pickupLocation == null) {
+            return new ArrayList<>();
+        }
+
+        if (matchCache != null) {
+            List<RideMatch> cached = matchCache.get(MatchCache.SEARCH_WIDENING, request, limit);
+            if (cached != null) {
+                stats.cached = true;
+                stats.returned = cached.size();
+                return cached;
+            }
+        }
+
+        long earliest = request.timeMillis - TIME_WINDOW_MILLIS;
+        long latest = request.timeMillis + TIME_WINDOW_MILLIS;
+
+        List<List<String>> rings = searchRings(request.pickupLocation);
+        List<String> searchedCells = new ArrayList<>();
+        OfferSnapshot candidates = new OfferSnapshot(64);
+        Map<String, Object> offerVersions = new HashMap<>();
+        List<RideMatch> matches = new ArrayList<>();
+
+        List<RideMatch> recurring = findRecurringOfferMatches(request, limit);
+        for (RideMatch match : recurring) {
+            offerVersions.put(match.offer.id, match.offer.updatedAt);
+        }
+
+        for (int i = 0; i < rings.size(); i++) {
+            double radiusKm = searchRadiusKm(i);
+            List<String> ring = rings.get(i);
+            searchedCells.addAll(ring);
+
+            // Offers read in earlier rings are rescored at this ring's radius
+            TopKCollector<RideMatch> top = new TopKCollector<>(limit);
+            score(request, candidates, 0, radiusKm, top, stats);
+
+            // Last offer read from each cell still to page through
+            Map<String, RideOffer> cursors = new HashMap<>();
+            List<String> unread = ring;
+            while (!unread.isEmpty()) {
+                List<String> next = new ArrayList<>();
+                for (String cell : unread) {
+                    List<RideOffer> page = fetchOffersNearPage(cell, earliest, latest,
+                            cursors.get(cell), pageSize, stats);
+                    if (page.size() == pageSize) {
+                        cursors.put(cell, page.get(pageSize - 1));
+                        next.add(cell);
+                    }
+
+                    int from = candidates.size();
+                    for (RideOffer offer : page) {
+                        offerVersions.put(offer.id, offer.updatedAt);
+                        if (offer.ownerUid != null && offer.ownerUid.equals(request.ownerUid)) {
+                            stats.ownOffers++;
+                            continue;
+                        }
+                        candidates.add(offer);
+                    }
+                    if (candidates.size() == from) {
+                        continue;
+                    }
+
+                    score(request, candidates, from, radiusKm, top, stats);
+                    List<RideMatch> partial = mergeMatches(sort(top, stats), recurring, limit);
+                    if (!listener.onPartialMatches(partial)) {
+                        stats.returned = partial.size();
+                        return partial;
+                    }
+                }
+                unread = next;
+            }
+
+            matches = mergeMatches(sort(top, stats), recurring, limit);
+            if (isGoodEnough(matches, limit)) {
+                break;
+            }
+        }
+
+        if (matchCache != null) {
+            matchCache.put(MatchCache.SEARCH_WIDENING, request, limit, matches,
+                    offerVersions, searchedCells);
+        }
+        stats.returned = matches.size();
+        return matches;
+    }
+
+    /**
+     * Corridor mode: offers whose route passes near the rider, not just ones
+     * starting and ending near them, found through the pickup's route cell
+     */
+    public List<RideMatch> findCorridorMatchesForRequest(RideRequest request, int limit)
+            throws IOException {
+        if (request.pickupLocation == null) {
+            return new ArrayList<>();
+        }
+
+        String pickupCell = GeoHash.encode(request.pickupLocation.getLatitude(),
+                request.pickupLocation.getLongitude(), GeoHash.ROUTE_CELL_PRECISION);
+
+        // Drivers may leave well before the rider's time and reach the pickup later
+        long earliest = request.timeMillis - TIME_WINDOW_MILLIS - CORRIDOR_LEAD_MINUTES * 60000;
+        long latest = request.timeMillis + TIME_WINDOW_MILLIS;
+
+        TopKCollector<RideMatch> topMatches = new TopKCollector<>(limit);
+        MatchScratch scratch = new MatchScratch();
+
+        for (RideOffer offer : source.offersAlongRoute(pickupCell, earliest, latest)) {
+            if (offer.ownerUid != null && offer.ownerUid.equals(request.ownerUid)) {
+                continue;
+            }
+
+            double minScore = Math.max(0.0, topMatches.threshold());
+            if (scorer.scoreCorridorInto(request, offer, minScore, scratch)) {
+                topMatches.offer(new RideMatch(offer, scratch), scratch.score);
+            }
+        }
+        return topMatches.toSortedList();
+    }
+
+    /**
+     * Origin-destination mode: offers on the rider's pair of OD cells and the
+     * neighbouring pairs the pickup radius reaches, found by odKey. On a hot
+     * corridor such as campus to Philadelphia this reads only offers making
+     * that trip, not every offer leaving campus.
+     */
+    public List<RideMatch> findOriginDestinationMatches(RideRequest request, int limit)
+            throws IOException {
+        if (request.pickupLocation == null || request.dropoffLocation == null) {
+            return new ArrayList<>();
+        }
+
+        List<String> odKeys = GeoHash.odKeys(
+                request.pickupLocation.getLatitude(), request.pickupLocation.getLongitude(),
+                request.dropoffLocation.getLatitude(), request.dropoffLocation.getLongitude(),
+                RideMatchScorer.MAX_PICKUP_DISTANCE_KM);
+        List<RideOffer> offers = source.offersBetween(odKeys,
+                request.timeMillis - TIME_WINDOW_MILLIS,
+                request.timeMillis + TIME_WINDOW_MILLIS);
+
+        OfferSnapshot candidates = new OfferSnapshot(offers.size());
+        for (RideOffer offer : offers) {
+            if (offer.ownerUid != null && offer.ownerUid.equals(request.ownerUid)) {
+                continue;
+            }
+            candidates.add(offer);
+        }
+        return parallelScorer.topMatches(request, candidates, limit);
+    }
+
+    /**
+     * Recurring mode: offers for a request that repeats weekly, or recurring
+     * offers for a one-off request, compared by time of week. Candidates come
+     * from the TimeOfWeek keys around each of the request's departures, so one
+     * lookup covers every week without a post per day. One-off offers that
+     * left before {@code nowMillis} are skipped. Each match's weekdayMask holds
+     * the request's days the offer works for.
+     */
+    public List<RideMatch> findRecurringMatches(RideRequest request, int limit, long nowMillis)
+            throws IOException {
+        List<String> weekKeys = TimeOfWeek.searchKeys(request,
+                RideMatchScorer.MAX_TIME_DIFF_MINUTES, RideMatchScorer.MAX_PICKUP_DISTANCE_KM);
+        if (weekKeys.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        TopKCollector<RideMatch> topMatches = new TopKCollector<>(limit);
+        MatchScratch scratch = new MatchScratch();
+
+        for (RideOffer offer : source.offersInWeek(weekKeys, nowMillis)) {
+            if (offer.ownerUid != null && offer.ownerUid.equals(request.ownerUid)) {
+                continue;
+            }
+
+            double minScore = Math.max(0.0, topMatches.threshold());
+            if (scorer.scoreRecurringInto(request, offer, minScore, scratch)) {
+                topMatches.offer(new RideMatch(offer, scratch), scratch.score);
+            }
+        }
+        return topMatches.toSortedList();
+    }
+
+    /**
+     * Recurring offers alone for a one-off request, compared by time of
+     * week, for the one-off searches to merge into their matches
+     */
+    public List<RideMatch> findRecurringOfferMatches(RideRequest request, int limit)
+            throws IOException {
+        // Only recurring offers have a last departure of Long.MAX_VALUE
+        return findRecurringMatches(request, limit, Long.MAX_VALUE);
+    }
+
+    /**
+     * Reverse matching for drivers: requests that fit the offer, best first,
+     * each with {@code request} set. One-off requests come from the cells
+     * around the offer's start; recurring ones from the TimeOfWeek keys
+     * around its departures, compared by time of week. A recurring offer
+     * also takes one-off requests from those keys, so a rider on any later
+     * day it runs is found; those that left before {@code nowMillis} or
+     * before the offer's first departure window are skipped.
+     */
+    public List<RideMatch> findMatchesForOffer(RideOffer offer, int limit, long nowMillis)
+            throws IOException {
+        if (offer.startLocation == null) {
+            return new ArrayList<>();
+        }
+
+        TopKCollector<RideMatch> topMatches = new TopKCollector<>(limit);
+        MatchScratch scratch = new MatchScratch();
+        Set<String> scoredByWeek = new HashSet<>();
+
+        List<String> weekKeys = TimeOfWeek.searchKeys(offer,
+                RideMatchScorer.MAX_TIME_DIFF_MINUTES, RideMatchScorer.MAX_PICKUP_DISTANCE_KM);
+        if (!weekKeys.isEmpty()) {
+            // Only recurring requests have a last departure of Long.MAX_VALUE
+            long earliest = offer.weekdayMask != 0
+                    ? Math.max(nowMillis, offer.timeMillis - TIME_WINDOW_MILLIS)
+                    : Long.MAX_VALUE;
+            for (RideRequest request : source.requestsInWeek(weekKeys, earliest)) {
+                if (request.id != null) {
+                    scoredByWeek.add(request.id);
+                }
+                collectRequest(topMatches, request, offer, scratch, true);
+            }
+        }
+
+        for (RideRequest request : requestsNear(offer)) {
+            // Recurring requests, and one-off ones already compared by time of week, are done
+            if (request.weekdayMask == 0 && !scoredByWeek.contains(request.id)) {
+                collectRequest(topMatches, request, offer, scratch, false);
+            }
+        }
+        return topMatches.toSortedList();
+    }
+
+    /**
+     * Highest-scoring set of nearby requests that fits the offer's seats
+     */
+    public PoolProposal proposePool(RideOffer offer) throws IOException {
+        if (offer.startLocation == null) {
+            return new PoolProposal(offer, new ArrayList<>(), 0.0, 0);
+        }
+        return new PoolPlanner(scorer).plan(offer, requestsNear(offer));
+    }
+
+    // Score a request against the offer into topMatches, skipping the driver's own requests
+    private void collectRequest(TopKCollector<RideMatch> topMatches, RideRequest request,
+                                RideOffer offer, MatchScratch scratch, boolean byTimeOfWeek) {
+        if (request.ownerUid != null && request.ownerUid.equals(offer.ownerUid)) {
+            return;
+        }
+
+        double minScore = Math.max(0.0, topMatches.threshold());
+        boolean matched = byTimeOfWeek
+                ? scorer.scoreRecurringInto(request, offer, minScore, scratch)
+                : scorer.scoreInto(request, offer, minScore, scratch);
+        if (matched) {
+            RideMatch match = new RideMatch(offer, scratch);
+            match.request = request;
+            topMatches.offer(match, scratch.score);
+        }
+    }
+
+    // Source call timed as fetching, less the time the source counted as parsing
+    private List<RideOffer> fetchOffersNear(List<String> cells, long earliest, long latest,
+                                            MatchStats stats) throws IOException {
+        long parseBefore = stats.parseNanos;
+        long start = System.nanoTime();
+        List<RideOffer> offers = source.offersNear(cells, earliest, latest, stats);
+        stats.fetchNanos += System.nanoTime() - start - (stats.parseNanos - parseBefore);
+        stats.fetched += offers.size();
+        return offers;
+    }
+
+    private List<RideOffer> fetchOffersNearPage(String cell, long earliest, long latest,
+                                                @Nullable RideOffer startAfter, int pageSize,
+                                                MatchStats stats) throws IOException {
+        long parseBefore = stats.parseNanos;
+        long start = System.nanoTime();
+        List<RideOffer> offers = source.offersNearPage(cell, earliest, latest, startAfter,
+                pageSize, stats);
+        stats.fetchNanos += System.nanoTime() - start - (stats.parseNanos - parseBefore);
+        stats.fetched += offers.size();
+        return offers;
+    }
+
+    // Kernel over candidates [from, size) into top, timed as scoring
+    private void score(RideRequest request, OfferSnapshot candidates, int from, double radiusKm,
+                       TopKCollector<RideMatch> top, MatchStats stats) {
+        long start = System.nanoTime();
+        scorer.scoreSnapshot(request, candidates, from, candidates.size(), radiusKm, top, stats);
+        stats.scoreNanos += System.nanoTime() - start;
+    }
+
+    private static List<RideMatch> sort(TopKCollector<RideMatch> top, MatchStats stats) {
+        long start = System.nanoTime();
+        List<RideMatch> matches = top.toSortedList();
+        stats.sortNanos += System.nanoTime() - start;
+        return matches;
+    }
+
+    // Requests whose pickup lies in the cells around the offer's start
+    private List<RideRequest> requestsNear(RideOffer offer) throws IOException {
+        return source.requestsNear(searchCells(offer.startLocation),
+                offer.timeMillis - TIME_WINDOW_MILLIS,
+                offer.timeMillis + TIME_WINDOW_MILLIS);
+    }
+}
@@ -0,0 +1,55 @@
+package com.booknest.campusridenest.model;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Serializable;
+
+/**
+ * Immutable latitude/longitude pair in degrees. Stands in for Firestore's
+ * GeoPoint so the matching code has no Firebase dependency; the Firestore
+ * adapter converts between the two.
+ */
+public final class LatLon implements Serializable {
+
+    private final double latitude;
+    private final double longitude;
+
+    public LatLon(double latitude, double longitude) {
+        if (Double.isNaN(latitude) || latitude < -90.0 || latitude > 90.0) {
+            throw new IllegalArgumentException("Latitude must be in [-90, 90]: " + latitude);
+        }
+        if (Double.isNaN(longitude) || longitude < -180.0 || longitude > 180.0) {
+            throw new IllegalArgumentException("Longitude must be in [-180, 180]: " + longitude);
+        }
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    public double getLatitude() { return latitude; }
+
+    public double getLongitude() { return longitude; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LatLon)) {
+            return false;
+        }
+        LatLon other = (LatLon) o;
+        return Double.compare(latitude, other.latitude) == 0
+                && Double.compare(longitude, other.longitude) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Double.hashCode(latitude) + Double.hashCode(longitude);
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return "LatLon{latitude=" + latitude + ", longitude=" + longitude + "}";
+    }
+}
@@ -0,0 +1,23 @@
+package com.booknest.campusridenest.model;
+
+import java.io.Serializable;
+import java.util.List;
+
+public class PoolProposal implements Serializable {
+    public RideOffer offer;
+    public List<RideMatch> riders;   // Each with request set, best first
+    public double totalScore;        // Sum of the riders' match scores
+    public int seatsFilled;
+
+    public PoolProposal(RideOffer offer, List<RideMatch> riders, double totalScore,
+                        int seatsFilled) {
+        this.offer = offer;
+        this.riders = riders;
+        this.totalScore = totalScore;
+        this.seatsFilled = seatsFilled;
+    }
+
+    public boolean isEmpty() {
+        return riders.isEmpty();
+    }
+}
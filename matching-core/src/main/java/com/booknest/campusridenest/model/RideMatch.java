@@ -0,0 +1,50 @@
+package com.booknest.campusridenest.model;
+
+import com.booknest.campusridenest.util.MatchReasons;
+import com.booknest.campusridenest.util.MatchScratch;
+
+import java.io.Serializable;
+
+public class RideMatch implements Serializable {
+    public RideOffer offer;
+    public RideRequest request;         // Set by reverse (offer → requests) matching
+    public double matchScore;           // 0-100
+    public double pickupDistanceKm;
+    public double dropoffDistanceKm;
+    public long timeDifferenceMinutes;
+    public String compatibilityReason;  // Why it's a good match (null until rendered)
+    public int reasonMask;              // MatchReasons bits
+    public int weekdayMask;             // Request days a recurring match works on (TimeOfWeek bits)
+
+    public RideMatch(RideOffer offer, double matchScore, double pickupDistanceKm,
+                     double dropoffDistanceKm, long timeDifferenceMinutes,
+                     String compatibilityReason) {
+        this.offer = offer;
+        this.matchScore = matchScore;
+        this.pickupDistanceKm = pickupDistanceKm;
+        this.dropoffDistanceKm = dropoffDistanceKm;
+        this.timeDifferenceMinutes = timeDifferenceMinutes;
+        this.compatibilityReason = compatibilityReason;
+    }
+
+    // Copies a scored candidate out of the scorer's scratch slot
+    public RideMatch(RideOffer offer, MatchScratch scratch) {
+        this.offer = offer;
+        this.matchScore = scratch.score;
+        this.pickupDistanceKm = scratch.pickupDistanceKm;
+        this.dropoffDistanceKm = scratch.dropoffDistanceKm;
+        this.timeDifferenceMinutes = scratch.timeDifferenceMinutes;
+        this.reasonMask = scratch.reasonMask;
+        this.weekdayMask = scratch.weekdayMask;
+    }
+
+    /**
+     * Reason text, rendered from reasonMask the first time it is needed
+     */
+    public String getCompatibilityReason() {
+        if (compatibilityReason == null) {
+            compatibilityReason = MatchReasons.describe(reasonMask);
+        }
+        return compatibilityReason;
+    }
+}
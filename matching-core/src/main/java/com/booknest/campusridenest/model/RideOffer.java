@@ -1,11 +1,10 @@
 package com.booknest.campusridenest.model;
 
-import com.google.firebase.firestore.GeoPoint;
-
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.Serializable;
+import java.util.List;
 
 public class RideOffer implements Serializable {
 
@@ -29,9 +28,28 @@ public class RideOffer implements Serializable {
     @Nullable public Object status;
     @Nullable public Object updatedAt;
 
-    // NEW: GeoPoint fields for algorithmic matching
-    @Nullable public GeoPoint startLocation;
-    @Nullable public GeoPoint endLocation;
+    // NEW: Location fields for algorithmic matching
+    @Nullable public LatLon startLocation;
+    @Nullable public LatLon endLocation;
+
+    // Geohashes of start/end locations, used for radius queries in matching
+    @Nullable public String startGeohash;
+    @Nullable public String endGeohash;
+
+    // Grid cells the route passes near, used for corridor matching
+    @Nullable public List<String> routeCells;
+
+    // GeoHash.odKey of the start and end, used for origin-destination lookups
+    @Nullable public String odKey;
+
+    // Weekly repeat: TimeOfWeek day bits and the local departure minute in timeZone.
+    // weekdayMask is 0 on one-off posts, which depart once at timeMillis
+    public int weekdayMask;
+    public int minuteOfDay;
+    @Nullable public String timeZone;
+
+    // TimeOfWeek.weekKeys of the departures, used for recurring lookups
+    @Nullable public List<String> weekKeys;
 
     // NEW: Preference fields for matching
     public boolean allowsSmoking;
@@ -39,6 +57,9 @@ public class RideOffer implements Serializable {
     @Nullable public String musicPreference;
     @Nullable public String conversationLevel;
 
+    // The four preferences as PreferenceMask bits; null on posts saved before it was stored
+    @Nullable public Integer preferenceMask;
+
     // NEW: Driver info for matching
     public double driverRating;
     public double pricePerSeat;
@@ -65,8 +86,8 @@ public class RideOffer implements Serializable {
                      @Nullable Object createdAt,
                      @Nullable Object status,
                      @Nullable Object updatedAt,
-                     @Nullable GeoPoint startLocation,
-                     @Nullable GeoPoint endLocation,
+                     @Nullable LatLon startLocation,
+                     @Nullable LatLon endLocation,
                      boolean allowsSmoking,
                      boolean allowsPets,
                      @Nullable String musicPreference,
@@ -113,7 +134,7 @@ public class RideOffer implements Serializable {
 
     @NotNull
     public RideOffer copy(@NotNull String newId) {
-        return new RideOffer(
+        RideOffer copy = new RideOffer(
                 newId,
                 this.ownerUid,
                 this.from,
@@ -133,9 +154,19 @@ public class RideOffer implements Serializable {
                 this.driverRating,
                 this.pricePerSeat
         );
+        copy.startGeohash = this.startGeohash;
+        copy.endGeohash = this.endGeohash;
+        copy.routeCells = this.routeCells;
+        copy.odKey = this.odKey;
+        copy.preferenceMask = this.preferenceMask;
+        copy.weekdayMask = this.weekdayMask;
+        copy.minuteOfDay = this.minuteOfDay;
+        copy.timeZone = this.timeZone;
+        copy.weekKeys = this.weekKeys;
+        return copy;
     }
 
-    // ============ FIRESTORE GETTERS/SETTERS ============
+    // ============ GETTERS/SETTERS ============
 
     public String getType() { return type; }
     public void setType(String type) { this.type = type; }
@@ -182,11 +213,35 @@ public class RideOffer implements Serializable {
     public Object getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(Object updatedAt) { this.updatedAt = updatedAt; }
 
-    public GeoPoint getStartLocation() { return startLocation; }
-    public void setStartLocation(GeoPoint startLocation) { this.startLocation = startLocation; }
+    public LatLon getStartLocation() { return startLocation; }
+    public void setStartLocation(LatLon startLocation) { this.startLocation = startLocation; }
+
+    public LatLon getEndLocation() { return endLocation; }
+    public void setEndLocation(LatLon endLocation) { this.endLocation = endLocation; }
 
-    public GeoPoint getEndLocation() { return endLocation; }
-    public void setEndLocation(GeoPoint endLocation) { this.endLocation = endLocation; }
+    public String getStartGeohash() { return startGeohash; }
+    public void setStartGeohash(String startGeohash) { this.startGeohash = startGeohash; }
+
+    public String getEndGeohash() { return endGeohash; }
+    public void setEndGeohash(String endGeohash) { this.endGeohash = endGeohash; }
+
+    public List<String> getRouteCells() { return routeCells; }
+    public void setRouteCells(List<String> routeCells) { this.routeCells = routeCells; }
+
+    public String getOdKey() { return odKey; }
+    public void setOdKey(String odKey) { this.odKey = odKey; }
+
+    public int getWeekdayMask() { return weekdayMask; }
+    public void setWeekdayMask(int weekdayMask) { this.weekdayMask = weekdayMask; }
+
+    public int getMinuteOfDay() { return minuteOfDay; }
+    public void setMinuteOfDay(int minuteOfDay) { this.minuteOfDay = minuteOfDay; }
+
+    public String getTimeZone() { return timeZone; }
+    public void setTimeZone(String timeZone) { this.timeZone = timeZone; }
+
+    public List<String> getWeekKeys() { return weekKeys; }
+    public void setWeekKeys(List<String> weekKeys) { this.weekKeys = weekKeys; }
 
     public boolean getAllowsSmoking() { return allowsSmoking; }
     public void setAllowsSmoking(boolean allowsSmoking) { this.allowsSmoking = allowsSmoking; }
@@ -200,6 +255,9 @@ public class RideOffer implements Serializable {
     public String getConversationLevel() { return conversationLevel; }
     public void setConversationLevel(String conversationLevel) { this.conversationLevel = conversationLevel; }
 
+    public Integer getPreferenceMask() { return preferenceMask; }
+    public void setPreferenceMask(Integer preferenceMask) { this.preferenceMask = preferenceMask; }
+
     public double getDriverRating() { return driverRating; }
     public void setDriverRating(double driverRating) { this.driverRating = driverRating; }
 
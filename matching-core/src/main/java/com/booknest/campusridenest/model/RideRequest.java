@@ -1,11 +1,10 @@
 package com.booknest.campusridenest.model;
 
-import com.google.firebase.firestore.GeoPoint;
-
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.Serializable;
+import java.util.List;
 
 public class RideRequest implements Serializable {
 
@@ -29,9 +28,22 @@ public class RideRequest implements Serializable {
     @Nullable public Object createdAt;
     @Nullable public Object updatedAt;
 
-    // NEW: GeoPoint fields
-    @Nullable public GeoPoint pickupLocation;
-    @Nullable public GeoPoint dropoffLocation;
+    // NEW: Location fields
+    @Nullable public LatLon pickupLocation;
+    @Nullable public LatLon dropoffLocation;
+
+    // Geohashes of pickup/dropoff locations, used for radius queries in matching
+    @Nullable public String pickupGeohash;
+    @Nullable public String dropoffGeohash;
+
+    // Weekly repeat: TimeOfWeek day bits and the local departure minute in timeZone.
+    // weekdayMask is 0 on one-off posts, which depart once at timeMillis
+    public int weekdayMask;
+    public int minuteOfDay;
+    @Nullable public String timeZone;
+
+    // TimeOfWeek.weekKeys of the departures, used for recurring lookups
+    @Nullable public List<String> weekKeys;
 
     // NEW: Rider preference fields
     public boolean needsNonSmoking;
@@ -39,6 +51,9 @@ public class RideRequest implements Serializable {
     @Nullable public String musicPreference;
     @Nullable public String conversationLevel;
 
+    // The four preferences as PreferenceMask bits; null on posts saved before it was stored
+    @Nullable public Integer preferenceMask;
+
     // NEW: Budget constraint
     public double maxBudget;
 
@@ -63,8 +78,8 @@ public class RideRequest implements Serializable {
                        @Nullable Object status,
                        @Nullable Object createdAt,
                        @Nullable Object updatedAt,
-                       @Nullable GeoPoint pickupLocation,
-                       @Nullable GeoPoint dropoffLocation,
+                       @Nullable LatLon pickupLocation,
+                       @Nullable LatLon dropoffLocation,
                        boolean needsNonSmoking,
                        boolean needsNoPets,
                        @Nullable String musicPreference,
@@ -109,7 +124,7 @@ public class RideRequest implements Serializable {
 
     @NotNull
     public RideRequest copy(@NotNull String newId) {
-        return new RideRequest(
+        RideRequest copy = new RideRequest(
                 newId,
                 this.ownerUid,
                 this.from,
@@ -128,9 +143,17 @@ public class RideRequest implements Serializable {
                 this.conversationLevel,
                 this.maxBudget
         );
+        copy.pickupGeohash = this.pickupGeohash;
+        copy.dropoffGeohash = this.dropoffGeohash;
+        copy.preferenceMask = this.preferenceMask;
+        copy.weekdayMask = this.weekdayMask;
+        copy.minuteOfDay = this.minuteOfDay;
+        copy.timeZone = this.timeZone;
+        copy.weekKeys = this.weekKeys;
+        return copy;
     }
 
-    // ============ FIRESTORE GETTERS/SETTERS ============
+    // ============ GETTERS/SETTERS ============
 
     public String getType() { return type; }
     public void setType(String type) { this.type = type; }
@@ -177,11 +200,17 @@ public class RideRequest implements Serializable {
     public Object getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(Object updatedAt) { this.updatedAt = updatedAt; }
 
-    public GeoPoint getPickupLocation() { return pickupLocation; }
-    public void setPickupLocation(GeoPoint pickupLocation) { this.pickupLocation = pickupLocation; }
+    public LatLon getPickupLocation() { return pickupLocation; }
+    public void setPickupLocation(LatLon pickupLocation) { this.pickupLocation = pickupLocation; }
+
+    public LatLon getDropoffLocation() { return dropoffLocation; }
+    public void setDropoffLocation(LatLon dropoffLocation) { this.dropoffLocation = dropoffLocation; }
 
-    public GeoPoint getDropoffLocation() { return dropoffLocation; }
-    public void setDropoffLocation(GeoPoint dropoffLocation) { this.dropoffLocation = dropoffLocation; }
+    public String getPickupGeohash() { return pickupGeohash; }
+    public void setPickupGeohash(String pickupGeohash) { this.pickupGeohash = pickupGeohash; }
+
+    public String getDropoffGeohash() { return dropoffGeohash; }
+    public void setDropoffGeohash(String dropoffGeohash) { this.dropoffGeohash = dropoffGeohash; }
 
     public boolean getNeedsNonSmoking() { return needsNonSmoking; }
     public void setNeedsNonSmoking(boolean needsNonSmoking) { this.needsNonSmoking = needsNonSmoking; }
@@ -195,6 +224,21 @@ public class RideRequest implements Serializable {
     public String getConversationLevel() { return conversationLevel; }
     public void setConversationLevel(String conversationLevel) { this.conversationLevel = conversationLevel; }
 
+    public Integer getPreferenceMask() { return preferenceMask; }
+    public void setPreferenceMask(Integer preferenceMask) { this.preferenceMask = preferenceMask; }
+
+    public int getWeekdayMask() { return weekdayMask; }
+    public void setWeekdayMask(int weekdayMask) { this.weekdayMask = weekdayMask; }
+
+    public int getMinuteOfDay() { return minuteOfDay; }
+    public void setMinuteOfDay(int minuteOfDay) { this.minuteOfDay = minuteOfDay; }
+
+    public String getTimeZone() { return timeZone; }
+    public void setTimeZone(String timeZone) { this.timeZone = timeZone; }
+
+    public List<String> getWeekKeys() { return weekKeys; }
+    public void setWeekKeys(List<String> weekKeys) { this.weekKeys = weekKeys; }
+
     public double getMaxBudget() { return maxBudget; }
     public void setMaxBudget(double maxBudget) { this.maxBudget = maxBudget; }
 }
\ No newline at end of file
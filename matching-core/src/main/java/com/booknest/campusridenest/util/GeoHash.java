@@ -0,0 +1,217 @@
+package com.booknest.campusridenest.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+public class GeoHash {
+
+    private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+    // Degree length of GeoUtils' sphere, so a cover holds every point the
+    // scorer finds within the radius
+    private static final double KM_PER_DEGREE_LAT = GeoUtils.KM_PER_DEGREE;
+
+    // Precision stored on offer/request documents (~5 m cells)
+    public static final int STORAGE_PRECISION = 9;
+
+    // Upper bound on cells (and therefore Firestore queries) per radius search
+    private static final int MAX_COVERING_CELLS = 9;
+
+    // Grid used for offer route cells (~4.9 x 4.9 km at the equator)
+    public static final int ROUTE_CELL_PRECISION = 5;
+
+    // Grid for origin-destination keys (~39 x 19.5 km): one cell per campus or city
+    public static final int OD_CELL_PRECISION = 4;
+
+    /**
+     * Encode a coordinate as a geohash string of the given length
+     */
+    public static String encode(double latitude, double longitude, int precision) {
+        double minLat = -90.0, maxLat = 90.0;
+        double minLon = -180.0, maxLon = 180.0;
+
+        StringBuilder hash = new StringBuilder(precision);
+        boolean evenBit = true;
+        int bit = 0;
+        int ch = 0;
+
+        while (hash.length() < precision) {
+            if (evenBit) {
+                double mid = (minLon + maxLon) / 2;
+                if (longitude >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLon = mid;
+                } else {
+                    ch = ch << 1;
+                    maxLon = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (latitude >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLat = mid;
+                } else {
+                    ch = ch << 1;
+                    maxLat = mid;
+                }
+            }
+            evenBit = !evenBit;
+
+            if (++bit == 5) {
+                hash.append(BASE32.charAt(ch));
+                bit = 0;
+                ch = 0;
+            }
+        }
+
+        return hash.toString();
+    }
+
+    /**
+     * Geohash cells that together cover the bounding box of a circle.
+     * Picks the finest precision that needs at most MAX_COVERING_CELLS cells,
+     * so callers can issue one prefix range query per returned cell.
+     */
+    public static List<String> coveringCells(double latitude, double longitude, double radiusKm) {
+        for (int precision = STORAGE_PRECISION; precision > 1; precision--) {
+            List<String> cells = cellsForRadius(latitude, longitude, radiusKm,
+                    precision, MAX_COVERING_CELLS);
+            if (cells != null) {
+                return cells;
+            }
+        }
+        return cellsForRadius(latitude, longitude, radiusKm, 1, MAX_COVERING_CELLS);
+    }
+
+    /**
+     * Every cell of the given precision that overlaps the bounding box of a
+     * circle, however many that takes. Cells of one precision never overlap,
+     * so a wider search can query just the cells a narrower one didn't.
+     */
+    public static List<String> cellsWithin(double latitude, double longitude, double radiusKm,
+                                           int precision) {
+        return cellsForRadius(latitude, longitude, radiusKm, precision, Integer.MAX_VALUE);
+    }
+
+    /**
+     * ROUTE_CELL_PRECISION cells within bufferKm of the straight segment
+     * start → end. Stored on an offer, they index the route by every cell it
+     * crosses, so a rider's pickup cell finds offers passing nearby with one
+     * array-contains lookup.
+     */
+    public static List<String> routeCells(double startLat, double startLon,
+                                          double endLat, double endLon, double bufferKm) {
+        double cosLat = Math.max(Math.cos(Math.toRadians((startLat + endLat) / 2)), 1e-6);
+        double lengthKm = Math.hypot((endLat - startLat) * KM_PER_DEGREE_LAT,
+                (endLon - startLon) * KM_PER_DEGREE_LAT * cosLat);
+
+        // Sample no further apart than the buffer; each sample covers a box
+        // reaching half a step past the buffer so no gap is left between them
+        int steps = Math.max(1, (int) Math.ceil(lengthKm / bufferKm));
+        double reachKm = bufferKm + lengthKm / steps / 2;
+
+        Set<String> cells = new LinkedHashSet<>();
+        for (int i = 0; i <= steps; i++) {
+            double lat = startLat + (endLat - startLat) * i / steps;
+            double lon = startLon + (endLon - startLon) * i / steps;
+
+            double latDelta = reachKm / KM_PER_DEGREE_LAT;
+            double lonDelta = lonDelta(lat, reachKm);
+
+            cells.addAll(cellsForBox(Math.max(lat - latDelta, -90.0), Math.min(lat + latDelta, 90.0),
+                    lon - lonDelta, lon + lonDelta, ROUTE_CELL_PRECISION, Integer.MAX_VALUE));
+        }
+        return new ArrayList<>(cells);
+    }
+
+    /**
+     * Origin-destination key of a trip: its start and end OD_CELL_PRECISION
+     * cells. Every offer on the same pair of cells, e.g. campus to
+     * Philadelphia, shares the key, so a corridor is one hash or equality lookup.
+     */
+    public static String odKey(double startLat, double startLon, double endLat, double endLon) {
+        return encode(startLat, startLon, OD_CELL_PRECISION) + ":"
+                + encode(endLat, endLon, OD_CELL_PRECISION);
+    }
+
+    /**
+     * odKeys of every trip that could start within radiusKm of the pickup and
+     * end within radiusKm of the dropoff: the pickup's cell and any neighbour
+     * the radius reaches, paired with the same for the dropoff. Usually one
+     * key, at most 16 for a 5 km radius.
+     */
+    public static List<String> odKeys(double pickupLat, double pickupLon,
+                                      double dropoffLat, double dropoffLon, double radiusKm) {
+        List<String> keys = new ArrayList<>();
+        for (String start : cellsWithin(pickupLat, pickupLon, radiusKm, OD_CELL_PRECISION)) {
+            for (String end : cellsWithin(dropoffLat, dropoffLon, radiusKm, OD_CELL_PRECISION)) {
+                keys.add(start + ":" + end);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Upper bound of a prefix range query, i.e. startAt(cell).endAt(rangeEnd(cell))
+     */
+    public static String rangeEnd(String cell) {
+        return cell + "~";
+    }
+
+    private static List<String> cellsForRadius(double latitude, double longitude,
+                                               double radiusKm, int precision, int maxCells) {
+        double latDelta = radiusKm / KM_PER_DEGREE_LAT;
+        double lonDelta = lonDelta(latitude, radiusKm);
+
+        return cellsForBox(Math.max(latitude - latDelta, -90.0), Math.min(latitude + latDelta, 90.0),
+                longitude - lonDelta, longitude + lonDelta, precision, maxCells);
+    }
+
+    // Half the longitude span of a circle on the sphere. It is widest
+    // poleward of its center, a little wider than radiusKm at the center's
+    // latitude; a circle reaching a pole spans every longitude.
+    private static double lonDelta(double latitude, double radiusKm) {
+        double sinAngle = Math.sin(radiusKm / GeoUtils.EARTH_RADIUS_KM);
+        double cosLat = Math.cos(Math.toRadians(latitude));
+        if (sinAngle >= cosLat) {
+            return 180.0;
+        }
+        return Math.toDegrees(Math.asin(sinAngle / cosLat));
+    }
+
+    private static List<String> cellsForBox(double minLat, double maxLat,
+                                            double minLon, double maxLon,
+                                            int precision, int maxCells) {
+        int lonBits = (5 * precision + 1) / 2;
+        int latBits = (5 * precision) / 2;
+        long lonCells = 1L << lonBits;
+        long latCells = 1L << latBits;
+        double cellLon = 360.0 / lonCells;
+        double cellLat = 180.0 / latCells;
+
+        long latStart = (long) Math.floor((minLat + 90.0) / cellLat);
+        long latEnd = Math.min((long) Math.floor((maxLat + 90.0) / cellLat), latCells - 1);
+        long lonStart = (long) Math.floor((minLon + 180.0) / cellLon);
+        long lonEnd = (long) Math.floor((maxLon + 180.0) / cellLon);
+
+        long count = (latEnd - latStart + 1) * (lonEnd - lonStart + 1);
+        if (precision > 1 && count > maxCells) {
+            return null;
+        }
+
+        List<String> cells = new ArrayList<>((int) Math.min(count, lonCells * latCells));
+        for (long i = latStart; i <= latEnd; i++) {
+            double cellCenterLat = (i + 0.5) * cellLat - 90.0;
+            for (long j = lonStart; j <= lonEnd; j++) {
+                long wrapped = Math.floorMod(j, lonCells);
+                double cellCenterLon = (wrapped + 0.5) * cellLon - 180.0;
+                String cell = encode(cellCenterLat, cellCenterLon, precision);
+                if (!cells.contains(cell)) {
+                    cells.add(cell);
+                }
+            }
+        }
+        return cells;
+    }
+}
@@ -0,0 +1,162 @@
+package com.booknest.campusridenest.util;
+
+import com.booknest.campusridenest.model.LatLon;
+
+public class GeoUtils {
+
+    // The sphere every distance is measured on; GeoHash and OfferKdTree size
+    // their search boxes on it too, so a box holds everything within its radius
+    static final double EARTH_RADIUS_KM = 6371.0;
+    static final double KM_PER_DEGREE = EARTH_RADIUS_KM * Math.PI / 180.0;
+
+    // Relative band around the radius where the approximation is not trusted
+    private static final double APPROXIMATION_MARGIN = 0.01;
+
+    // Beyond this radius the equirectangular error can exceed the margin
+    private static final double MAX_APPROXIMATION_RADIUS_KM = 50.0;
+
+    /**
+     * Calculate distance between two points using Haversine formula
+     * @return distance in kilometers
+     */
+    public static double calculateDistance(LatLon point1, LatLon point2) {
+        if (point1 == null || point2 == null) {
+            return Double.MAX_VALUE;
+        }
+
+        return calculateDistance(point1.getLatitude(), point1.getLongitude(),
+                point2.getLatitude(), point2.getLongitude());
+    }
+
+    /**
+     * Haversine distance between two coordinates in degrees
+     * @return distance in kilometers
+     */
+    public static double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
+        double lat1Rad = Math.toRadians(lat1);
+        double lat2Rad = Math.toRadians(lat2);
+        double deltaLat = Math.toRadians(lat2 - lat1);
+        double deltaLon = Math.toRadians(lon2 - lon1);
+
+        double a = Math.sin(deltaLat / 2) * Math.sin(deltaLat / 2) +
+                Math.cos(lat1Rad) * Math.cos(lat2Rad) *
+                        Math.sin(deltaLon / 2) * Math.sin(deltaLon / 2);
+
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+
+        return EARTH_RADIUS_KM * c;
+    }
+
+    /**
+     * Distance for radius checks: like calculateDistance, but returns
+     * Double.MAX_VALUE as soon as the points are known to be farther apart
+     * than maxKm.
+     */
+    public static double distanceWithin(LatLon point1, LatLon point2, double maxKm) {
+        if (point1 == null || point2 == null) {
+            return Double.MAX_VALUE;
+        }
+
+        return distanceWithin(point1.getLatitude(), point1.getLongitude(),
+                point2.getLatitude(), point2.getLongitude(), maxKm);
+    }
+
+    /**
+     * Fast path for small radii:
+     * 1. Bounding box: latitude difference alone is a lower bound on the
+     *    distance, so most far-away points are rejected without any trig
+     *    call. Longitude difference is measured at the most poleward latitude
+     *    a path of maxKm could reach, which keeps it a lower bound too.
+     * 2. Otherwise an equirectangular approximation (one cos, one sqrt) is used,
+     *    which is accurate to well under a meter at campus scale.
+     * 3. Only points within 1% of maxKm fall back to exact haversine, so the
+     *    accept/reject decision always matches calculateDistance.
+     */
+    public static double distanceWithin(double lat1, double lon1, double lat2, double lon2,
+                                        double maxKm) {
+        double deltaLatKm = Math.abs(lat2 - lat1) * KM_PER_DEGREE;
+        if (deltaLatKm > maxKm) {
+            return Double.MAX_VALUE;
+        }
+
+        double deltaLon = Math.abs(lon2 - lon1);
+        if (deltaLon > 180.0) {
+            deltaLon = 360.0 - deltaLon;
+        }
+        double polewardLat = Math.max(Math.abs(lat1), Math.abs(lat2)) + maxKm / KM_PER_DEGREE;
+        if (polewardLat < 90.0
+                && deltaLon * KM_PER_DEGREE * Math.cos(Math.toRadians(polewardLat)) > maxKm) {
+            return Double.MAX_VALUE;
+        }
+
+        if (maxKm > MAX_APPROXIMATION_RADIUS_KM) {
+            double exact = calculateDistance(lat1, lon1, lat2, lon2);
+            return exact <= maxKm ? exact : Double.MAX_VALUE;
+        }
+
+        double deltaLonKm = deltaLon * KM_PER_DEGREE
+                * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+
+        double approx = Math.sqrt(deltaLatKm * deltaLatKm + deltaLonKm * deltaLonKm);
+        if (approx < maxKm * (1 - APPROXIMATION_MARGIN)) {
+            return approx;
+        }
+        if (approx > maxKm * (1 + APPROXIMATION_MARGIN)) {
+            return Double.MAX_VALUE;
+        }
+
+        double exact = calculateDistance(lat1, lon1, lat2, lon2);
+        return exact <= maxKm ? exact : Double.MAX_VALUE;
+    }
+
+    /**
+     * Where the point comes closest to the segment a → b, as a fraction of the
+     * way from a (0) to b (1). Works in a flat projection around the point,
+     * which is accurate enough for routes of a few hundred km. Longitude
+     * differences take the short way round, so routes may cross the antimeridian.
+     */
+    public static double segmentFraction(double lat, double lon,
+                                         double aLat, double aLon, double bLat, double bLon) {
+        double cosLat = Math.cos(Math.toRadians(lat));
+        double ax = longitudeDelta(lon, aLon) * cosLat;
+        double ay = aLat - lat;
+        double dx = longitudeDelta(aLon, bLon) * cosLat;
+        double dy = bLat - aLat;
+
+        double lengthSquared = dx * dx + dy * dy;
+        if (lengthSquared == 0) {
+            return 0.0;
+        }
+
+        double t = -(ax * dx + ay * dy) / lengthSquared;
+        return Math.max(0.0, Math.min(1.0, t));
+    }
+
+    /**
+     * Degrees east from one longitude to another, in [-180, 180]
+     */
+    public static double longitudeDelta(double fromLon, double toLon) {
+        double delta = toLon - fromLon;
+        if (delta > 180.0) {
+            delta -= 360.0;
+        } else if (delta < -180.0) {
+            delta += 360.0;
+        }
+        return delta;
+    }
+
+    /**
+     * Check if two routes are compatible based on distance thresholds
+     */
+    public static boolean areRoutesCompatible(
+            LatLon requestPickup, LatLon requestDropoff,
+            LatLon offerStart, LatLon offerEnd,
+            double maxPickupDistanceKm, double maxDropoffDistanceKm) {
+
+        double pickupDistance = calculateDistance(requestPickup, offerStart);
+        double dropoffDistance = calculateDistance(requestDropoff, offerEnd);
+
+        return pickupDistance <= maxPickupDistanceKm &&
+                dropoffDistance <= maxDropoffDistanceKm;
+    }
+}
@@ -0,0 +1,180 @@
+package com.booknest.campusridenest.util;
+
+import com.booknest.campusridenest.model.LatLon;
+import com.booknest.campusridenest.model.RideMatch;
+import com.booknest.campusridenest.model.RideOffer;
+import com.booknest.campusridenest.model.RideRequest;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Recent match results keyed by a fingerprint of the request (locations,
+ * time, budget and preferences) and the search that produced them, so
+ * showing the same request again skips the queries and scoring. Each
+ * search keeps its own entries, since searches can cover different areas.
+ * Each entry remembers the updatedAt of every candidate offer it was built
+ * from and the geohash cells it searched; when a listener reports a change
+ * to one of those offers, or a new offer in one of those cells, the entry
+ * is dropped. Least recently used entries are evicted past the size cap.
+ *
+ * Only listeners invalidate entries. One-shot searches keep no listener of
+ * their own, so their entries are refreshed only while a live search
+ * watches the same cells; otherwise they may be up to maxAgeMillis
+ * (MAX_AGE_MILLIS for the shared instance) out of date.
+ */
+public class MatchCache {
+
+    public static final int MAX_ENTRIES = 32;
+
+    // Search names, part of the key
+    public static final String SEARCH_LIVE = "live";
+    public static final String SEARCH_WIDENING = "widening";
+
+    // Entries no listener has refreshed for this long are treated as stale
+    public static final long MAX_AGE_MILLIS = 5 * 60 * 1000;
+
+    private static MatchCache instance;
+
+    private final LinkedHashMap<String, Entry> entries;
+    private final long maxAgeMillis;
+
+    public static synchronized MatchCache getInstance() {
+        if (instance == null) {
+            instance = new MatchCache(MAX_ENTRIES, MAX_AGE_MILLIS);
+        }
+        return instance;
+    }
+
+    public MatchCache(int maxEntries, long maxAgeMillis) {
+        this.maxAgeMillis = maxAgeMillis;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Cached top matches of the named search for the request, or null on a miss
+     */
+    @Nullable
+    public synchronized List<RideMatch> get(String search, RideRequest request, int limit) {
+        String key = fingerprint(search, request, limit);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() - entry.storedAtMillis > maxAgeMillis) {
+            entries.remove(key);
+            return null;
+        }
+        return new ArrayList<>(entry.matches);
+    }
+
+    /**
+     * Store results along with the updatedAt of every candidate offer that
+     * was scored for them, keyed by offer id
+     */
+    public synchronized void put(String search, RideRequest request, int limit,
+                                 List<RideMatch> matches, Map<String, Object> offerVersions) {
+        if (request.pickupLocation == null) {
+            return;
+        }
+        put(search, request, limit, matches, offerVersions, GeoHash.coveringCells(
+                request.pickupLocation.getLatitude(),
+                request.pickupLocation.getLongitude(),
+                RideMatchScorer.MAX_PICKUP_DISTANCE_KM));
+    }
+
+    /**
+     * Store results of a search over the given geohash cells, for searches
+     * whose area isn't the default pickup radius
+     */
+    public synchronized void put(String search, RideRequest request, int limit,
+                                 List<RideMatch> matches, Map<String, Object> offerVersions,
+                                 List<String> cells) {
+        entries.put(fingerprint(search, request, limit), new Entry(new ArrayList<>(matches),
+                new HashMap<>(offerVersions), new ArrayList<>(cells), System.currentTimeMillis()));
+    }
+
+    /**
+     * Invalidate entries affected by an offer change seen by a listener.
+     * Pass a null offer when the document was removed.
+     */
+    public synchronized void onOfferChanged(String offerId, @Nullable RideOffer offer) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().isAffectedBy(offerId, offer)) {
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static String fingerprint(String search, RideRequest request, int limit) {
+        return String.format(Locale.US, "%s|%s|%s|%s|%d|%.2f|%d|%d",
+                search,
+                request.ownerUid,
+                formatPoint(request.pickupLocation),
+                formatPoint(request.dropoffLocation),
+                request.timeMillis,
+                request.maxBudget,
+                PreferenceMask.of(request),
+                limit);
+    }
+
+    // ~1 m resolution; geocoding the same address gives the same point
+    private static String formatPoint(@Nullable LatLon point) {
+        return point == null ? "-" : String.format(Locale.US, "%.5f,%.5f",
+                point.getLatitude(), point.getLongitude());
+    }
+
+    private static class Entry {
+        final List<RideMatch> matches;
+        final Map<String, Object> offerVersions;
+        final List<String> cells;
+        final long storedAtMillis;
+
+        Entry(List<RideMatch> matches, Map<String, Object> offerVersions,
+              List<String> cells, long storedAtMillis) {
+            this.matches = matches;
+            this.offerVersions = offerVersions;
+            this.cells = cells;
+            this.storedAtMillis = storedAtMillis;
+        }
+
+        boolean isAffectedBy(String offerId, @Nullable RideOffer offer) {
+            if (offerVersions.containsKey(offerId)) {
+                return offer == null || !Objects.equals(offerVersions.get(offerId), offer.updatedAt);
+            }
+
+            // A new candidate in the searched area could enter the top K
+            if (offer == null || offer.startGeohash == null) {
+                return false;
+            }
+            for (String cell : cells) {
+                if (offer.startGeohash.startsWith(cell)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.booknest.campusridenest.util;
+
+/**
+ * Compatibility reasons encoded as bits so scoring never builds strings.
+ * The text shown on a match card is rendered from the mask on demand.
+ */
+public class MatchReasons {
+
+    public static final int VERY_CLOSE_ROUTE = 1;
+    public static final int NEARBY_ROUTE = 1 << 1;
+    public static final int PERFECT_TIMING = 1 << 2;
+    public static final int GOOD_TIMING = 1 << 3;
+    public static final int GREAT_PRICE = 1 << 4;
+    public static final int FAIR_PRICE = 1 << 5;
+    public static final int MATCHING_PREFERENCES = 1 << 6;
+    public static final int ALONG_ROUTE = 1 << 7;
+    public static final int REPEATS_WEEKLY = 1 << 8;
+
+    private static final String[] LABELS = {
+            "Very close route",
+            "Nearby route",
+            "Perfect timing",
+            "Good timing",
+            "Great price",
+            "Fair price",
+            "Matching preferences",
+            "Along the driver's route",
+            "Repeats weekly"
+    };
+
+    private static final String SEPARATOR = " • ";
+
+    /**
+     * Build the reason mask from component scores
+     */
+    public static int fromScores(double distScore, double timeScore,
+                                 double priceScore, double prefScore) {
+        int mask = 0;
+
+        if (distScore >= 80) mask |= VERY_CLOSE_ROUTE;
+        else if (distScore >= 60) mask |= NEARBY_ROUTE;
+
+        if (timeScore >= 80) mask |= PERFECT_TIMING;
+        else if (timeScore >= 60) mask |= GOOD_TIMING;
+
+        if (priceScore >= 90) mask |= GREAT_PRICE;
+        else if (priceScore >= 70) mask |= FAIR_PRICE;
+
+        if (prefScore >= 75) mask |= MATCHING_PREFERENCES;
+
+        return mask;
+    }
+
+    /**
+     * Human-readable reason text, e.g. "Very close route • Great price"
+     */
+    public static String describe(int mask) {
+        if (mask == 0) {
+            return "Compatible match";
+        }
+
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < LABELS.length; i++) {
+            if ((mask & (1 << i)) != 0) {
+                if (text.length() > 0) {
+                    text.append(SEPARATOR);
+                }
+                text.append(LABELS[i]);
+            }
+        }
+        return text.toString();
+    }
+}
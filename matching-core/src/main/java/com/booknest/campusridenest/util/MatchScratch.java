@@ -0,0 +1,15 @@
+package com.booknest.campusridenest.util;
+
+/**
+ * Reusable output slot for RideMatchScorer.scoreInto.
+ * One instance per query avoids allocating a RideMatch for every candidate;
+ * a RideMatch is only built for candidates that make the top list.
+ */
+public class MatchScratch {
+    public double score;
+    public double pickupDistanceKm;
+    public double dropoffDistanceKm;
+    public long timeDifferenceMinutes;
+    public int reasonMask;  // MatchReasons bits
+    public int weekdayMask; // TimeOfWeek day bits of a recurring match
+}
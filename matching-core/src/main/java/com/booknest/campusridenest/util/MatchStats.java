@@ -0,0 +1,61 @@
+package com.booknest.campusridenest.util;
+
+import java.util.Locale;
+
+/**
+ * Stage timings and candidate counts for one match query, to tell a slow
+ * fetch from slow decoding, scoring or sorting. The source, scorer and
+ * engine add to it as the query runs. Counts add up across search rings,
+ * so an offer rescored at a wider radius is counted again. Not thread-safe:
+ * parallel scoring fills one per task and merges them with add.
+ */
+public class MatchStats {
+    public long fetchNanos;   // waiting for the candidate source
+    public long parseNanos;   // turning documents into offers
+    public long scoreNanos;
+    public long sortNanos;
+
+    public int fetched;             // offers the source returned
+    public int ownOffers;           // the rider's own offers, skipped before scoring
+    public int rejectedByTime;
+    public int rejectedByBudget;
+    public int rejectedByDistance;
+    public int pruned;              // couldn't beat the current top K, left unscored
+    public int scored;              // fully scored and offered to the top K
+    public int returned;
+    public boolean cached;          // served from MatchCache, nothing else ran
+
+    public void add(MatchStats other) {
+        fetchNanos += other.fetchNanos;
+        parseNanos += other.parseNanos;
+        scoreNanos += other.scoreNanos;
+        sortNanos += other.sortNanos;
+        fetched += other.fetched;
+        ownOffers += other.ownOffers;
+        rejectedByTime += other.rejectedByTime;
+        rejectedByBudget += other.rejectedByBudget;
+        rejectedByDistance += other.rejectedByDistance;
+        pruned += other.pruned;
+        scored += other.scored;
+        returned += other.returned;
+        cached |= other.cached;
+    }
+
+    public long totalNanos() {
+        return fetchNanos + parseNanos + scoreNanos + sortNanos;
+    }
+
+    /**
+     * One-line summary for the log
+     */
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "%.1f ms (fetch %.1f, parse %.1f, score %.1f, sort %.1f); fetched %d, own %d, "
+                        + "rejected time %d / budget %d / distance %d, pruned %d, scored %d, "
+                        + "returned %d%s",
+                totalNanos() / 1e6, fetchNanos / 1e6, parseNanos / 1e6, scoreNanos / 1e6,
+                sortNanos / 1e6, fetched, ownOffers, rejectedByTime, rejectedByBudget,
+                rejectedByDistance, pruned, scored, returned, cached ? " (cached)" : "");
+    }
+}
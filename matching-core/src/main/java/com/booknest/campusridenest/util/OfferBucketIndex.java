@@ -0,0 +1,204 @@
+package com.booknest.campusridenest.util;
+
+import com.booknest.campusridenest.model.RideMatch;
+import com.booknest.campusridenest.model.RideOffer;
+import com.booknest.campusridenest.model.RideRequest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read-only index for matching many requests against one large set of
+ * offers. The offers live in an OfferSnapshot ordered by start geohash
+ * bucket and, within a bucket, by departure time. A request's covering cells
+ * map to a few buckets and its time window to one contiguous range in each,
+ * which the columnar kernel scores in place. Built once, then safe to query
+ * from any number of threads.
+ */
+public class OfferBucketIndex {
+
+    // ~4.9 x 4.9 km, about the cell size coveringCells picks for the pickup radius
+    public static final int BUCKET_PRECISION = 5;
+
+    // Departure window the scorer accepts (it truncates the difference to whole minutes)
+    private static final long TIME_WINDOW_MILLIS =
+            (RideMatchScorer.MAX_TIME_DIFF_MINUTES + 1) * 60000 - 1;
+
+    private final RideMatchScorer scorer;
+    private final OfferSnapshot snapshot;
+
+    // Bucket prefix -> [first, end) positions in the snapshot
+    private final TreeMap<String, int[]> buckets = new TreeMap<>();
+
+    // Departure times of each owner's offers, to exclude a rider's own offers
+    private final Map<String, long[]> ownerTimes = new HashMap<>();
+
+    private final LongAdder candidatesScanned = new LongAdder();
+
+    /**
+     * Index the offers that have both locations; others can never match
+     */
+    public OfferBucketIndex(RideMatchScorer scorer, List<RideOffer> offers) {
+        this.scorer = scorer;
+
+        List<RideOffer> located = new ArrayList<>(offers.size());
+        for (RideOffer offer : offers) {
+            if (offer.startLocation != null && offer.endLocation != null) {
+                located.add(offer);
+            }
+        }
+
+        int n = located.size();
+        String[] prefixes = new String[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            RideOffer offer = located.get(i);
+            prefixes[i] = GeoHash.encode(offer.startLocation.getLatitude(),
+                    offer.startLocation.getLongitude(), BUCKET_PRECISION);
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int byBucket = prefixes[a].compareTo(prefixes[b]);
+            return byBucket != 0 ? byBucket
+                    : Long.compare(located.get(a).timeMillis, located.get(b).timeMillis);
+        });
+
+        snapshot = new OfferSnapshot(n);
+        Map<String, List<Long>> times = new HashMap<>();
+        int first = 0;
+        for (int k = 0; k < n; k++) {
+            RideOffer offer = located.get(order[k]);
+            snapshot.add(offer);
+
+            String prefix = prefixes[order[k]];
+            if (k + 1 == n || !prefix.equals(prefixes[order[k + 1]])) {
+                buckets.put(prefix, new int[]{first, k + 1});
+                first = k + 1;
+            }
+
+            if (offer.ownerUid != null) {
+                List<Long> ownerList = times.get(offer.ownerUid);
+                if (ownerList == null) {
+                    ownerList = new ArrayList<>(1);
+                    times.put(offer.ownerUid, ownerList);
+                }
+                ownerList.add(offer.timeMillis);
+            }
+        }
+
+        for (Map.Entry<String, List<Long>> entry : times.entrySet()) {
+            long[] ownerList = new long[entry.getValue().size()];
+            for (int i = 0; i < ownerList.length; i++) {
+                ownerList[i] = entry.getValue().get(i);
+            }
+            ownerTimes.put(entry.getKey(), ownerList);
+        }
+    }
+
+    public int size() {
+        return snapshot.size();
+    }
+
+    /**
+     * Offers scored so far across all queries, for throughput reporting
+     */
+    public long candidatesScanned() {
+        return candidatesScanned.sum();
+    }
+
+    /**
+     * Best {@code limit} matches for the request, highest score first,
+     * leaving out the rider's own offers
+     */
+    public List<RideMatch> topMatches(RideRequest request, int limit) {
+        if (request.pickupLocation == null || request.dropoffLocation == null) {
+            return new ArrayList<>();
+        }
+
+        // The kernel doesn't know owners: make room for own offers, then drop them
+        int ownOffers = countOwnOffers(request);
+        TopKCollector<RideMatch> top = new TopKCollector<>(limit + ownOffers);
+
+        long earliest = request.timeMillis - TIME_WINDOW_MILLIS;
+        long latest = request.timeMillis + TIME_WINDOW_MILLIS;
+        long scanned = 0;
+
+        for (int[] bucket : bucketsFor(request)) {
+            int from = lowerBound(bucket[0], bucket[1], earliest);
+            int to = lowerBound(from, bucket[1], latest + 1);
+            scorer.scoreSnapshot(request, snapshot, from, to, top);
+            scanned += to - from;
+        }
+        candidatesScanned.add(scanned);
+
+        List<RideMatch> matches = top.toSortedList();
+        if (ownOffers > 0) {
+            List<RideMatch> others = new ArrayList<>(limit);
+            for (RideMatch match : matches) {
+                if (others.size() < limit && !request.ownerUid.equals(match.offer.ownerUid)) {
+                    others.add(match);
+                }
+            }
+            return others;
+        }
+        return matches;
+    }
+
+    // Distinct buckets that can hold offers starting within the pickup radius
+    private Set<int[]> bucketsFor(RideRequest request) {
+        Set<int[]> result = new LinkedHashSet<>();
+        List<String> cells = GeoHash.coveringCells(
+                request.pickupLocation.getLatitude(),
+                request.pickupLocation.getLongitude(),
+                RideMatchScorer.MAX_PICKUP_DISTANCE_KM);
+
+        for (String cell : cells) {
+            if (cell.length() < BUCKET_PRECISION) {
+                result.addAll(buckets.subMap(cell, GeoHash.rangeEnd(cell)).values());
+            } else {
+                int[] bucket = buckets.get(cell.substring(0, BUCKET_PRECISION));
+                if (bucket != null) {
+                    result.add(bucket);
+                }
+            }
+        }
+        return result;
+    }
+
+    private int countOwnOffers(RideRequest request) {
+        long[] times = request.ownerUid == null ? null : ownerTimes.get(request.ownerUid);
+        if (times == null) {
+            return 0;
+        }
+        int count = 0;
+        for (long time : times) {
+            if (Math.abs(time - request.timeMillis) <= TIME_WINDOW_MILLIS) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // First position in [from, to) departing at or after time
+    private int lowerBound(int from, int to, long time) {
+        long[] times = snapshot.timeMillis;
+        int lo = from;
+        int hi = to;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[mid] < time) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
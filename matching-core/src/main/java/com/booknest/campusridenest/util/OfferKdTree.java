@@ -0,0 +1,547 @@
+package com.booknest.campusridenest.util;
+
+import com.booknest.campusridenest.model.RideMatch;
+import com.booknest.campusridenest.model.RideOffer;
+import com.booknest.campusridenest.model.RideRequest;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Open offers in a k-d tree over (start latitude, start longitude, departure
+ * time), kept current one offer at a time. A request's pickup radius and
+ * time window form one box, so a query visits only offers that are close in
+ * both space and time instead of filtering on distance and then on time.
+ *
+ * Offers sit in an OfferSnapshot in tree order, so every subtree is a
+ * contiguous range: leaves and subtrees inside the box go straight to the
+ * columnar scoring kernel. The tree is rebuilt in bulk: new offers wait in
+ * a small buffer and removed ones are left as tombstones until either grows
+ * past a fraction of the tree, which keeps updates O(1) amortized plus a
+ * share of the rebuild. Seat changes from a checkout move nothing, so they
+ * only overwrite the offer in place, and an offer that fills up and reopens
+ * gets its old slot back. Not thread-safe; feed it from one thread.
+ * StandingMatchSet selects the live search's top matches through one.
+ */
+public class OfferKdTree {
+
+    // Degree length of GeoUtils' sphere, so a query box holds every offer the
+    // scorer finds within the radius
+    private static final double KM_PER_DEGREE_LAT = GeoUtils.KM_PER_DEGREE;
+
+    // Departure window the scorer accepts (it truncates the difference to whole minutes)
+    private static final long TIME_WINDOW_MILLIS =
+            (RideMatchScorer.MAX_TIME_DIFF_MINUTES + 1) * 60000 - 1;
+
+    // Time scaled so the window spans as much as the pickup radius when choosing split axes
+    private static final double KM_PER_MILLI =
+            RideMatchScorer.MAX_PICKUP_DISTANCE_KM / TIME_WINDOW_MILLIS;
+
+    // Departure time of a tombstone: far outside any request's window, so the
+    // kernel's time check skips it
+    private static final long REMOVED_TIME = Long.MIN_VALUE / 4;
+
+    // Ranges this small are scored whole instead of split
+    private static final int LEAF_SIZE = 16;
+
+    // Buffer and tombstones tolerated before a rebuild, as a share of the tree (at least MIN_SLACK)
+    private static final int MIN_SLACK = 64;
+    private static final int PENDING_DIVISOR = 8;
+    private static final int REMOVED_DIVISOR = 4;
+
+    private final RideMatchScorer scorer;
+
+    // Tree in kd order: the node for [lo, hi) sits at (lo + hi) >>> 1
+    private OfferSnapshot snapshot = new OfferSnapshot(0);
+
+    // Bounding box of each node's subtree, stored at the node's position
+    private double[] minLat = new double[0];
+    private double[] maxLat = new double[0];
+    private double[] minLon = new double[0];
+    private double[] maxLon = new double[0];
+    private long[] minTime = new long[0];
+    private long[] maxTime = new long[0];
+
+    // Departure time each slot was built with; a tombstone's snapshot time is REMOVED_TIME
+    private long[] departures = new long[0];
+
+    // Slots of offers in the tree, tombstones included
+    private final Map<String, Integer> slotById = new HashMap<>();
+    private final Map<String, RideOffer> pending = new LinkedHashMap<>();
+    private int removed;
+
+    // Offers per owner, so the top K has room for a rider's own offers before they're dropped
+    private final Map<String, Integer> offersByOwner = new HashMap<>();
+
+    public OfferKdTree(RideMatchScorer scorer) {
+        this.scorer = scorer;
+    }
+
+    /**
+     * Add or update an offer from a listener or a write. Offers that are no
+     * longer open, or have no locations, are removed.
+     */
+    public void upsert(RideOffer offer) {
+        if (offer.id == null) {
+            return;
+        }
+        if (!isIndexable(offer)) {
+            remove(offer.id);
+            return;
+        }
+        put(offer);
+        if (pending.size() > slack(PENDING_DIVISOR)) {
+            rebuild();
+        }
+    }
+
+    /**
+     * upsert for a batch, e.g. the first snapshot of a listener, with one rebuild at the end
+     */
+    public void upsertAll(Collection<RideOffer> batch) {
+        for (RideOffer offer : batch) {
+            if (offer.id == null) {
+                continue;
+            }
+            if (isIndexable(offer)) {
+                put(offer);
+            } else {
+                drop(offer.id);
+            }
+        }
+        rebuild();
+    }
+
+    /**
+     * Drop an offer that closed, filled up or was deleted
+     */
+    public void remove(String offerId) {
+        drop(offerId);
+        if (removed > slack(REMOVED_DIVISOR)) {
+            rebuild();
+        }
+    }
+
+    public int size() {
+        return slotById.size() - removed + pending.size();
+    }
+
+    /**
+     * Offers starting within radiusKm of the point (by bounding box, so a
+     * few just outside it too) and departing between earliestMillis and
+     * latestMillis inclusive
+     */
+    public List<RideOffer> offersNear(double latitude, double longitude, double radiusKm,
+                                      long earliestMillis, long latestMillis) {
+        List<RideOffer> result = new ArrayList<>();
+        for (Box box : boxes(latitude, longitude, radiusKm, earliestMillis, latestMillis)) {
+            collect(0, snapshot.size(), box, result);
+            for (RideOffer offer : pending.values()) {
+                if (box.contains(offer)) {
+                    result.add(offer);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Best {@code limit} matches for the request, highest score first,
+     * leaving out the rider's own offers
+     */
+    public List<RideMatch> topMatches(RideRequest request, int limit) {
+        return topMatches(request, limit, RideMatchScorer.MAX_PICKUP_DISTANCE_KM);
+    }
+
+    /**
+     * topMatches for a search of the given radius, see RideMatchScorer.scoreInto
+     */
+    public List<RideMatch> topMatches(RideRequest request, int limit, double radiusKm) {
+        if (request.pickupLocation == null || request.dropoffLocation == null) {
+            return new ArrayList<>();
+        }
+
+        // The kernel doesn't know owners: make room for own offers, then drop them
+        Integer ownCount = request.ownerUid == null ? null : offersByOwner.get(request.ownerUid);
+        int ownOffers = ownCount == null ? 0 : ownCount;
+        TopKCollector<RideMatch> top = new TopKCollector<>(limit + ownOffers);
+
+        MatchScratch scratch = new MatchScratch();
+        List<Box> boxes = boxes(request.pickupLocation.getLatitude(),
+                request.pickupLocation.getLongitude(), radiusKm,
+                request.timeMillis - TIME_WINDOW_MILLIS, request.timeMillis + TIME_WINDOW_MILLIS);
+        for (Box box : boxes) {
+            // A leaf straddling both halves of a split box must not be scored twice
+            score(0, snapshot.size(), box, boxes.size() > 1, request, radiusKm, top);
+
+            for (RideOffer offer : pending.values()) {
+                double minScore = Math.max(0.0, top.threshold());
+                if (box.contains(offer)
+                        && scorer.scoreInto(request, offer, minScore, radiusKm, scratch)) {
+                    top.offer(new RideMatch(offer, scratch), scratch.score);
+                }
+            }
+        }
+
+        List<RideMatch> matches = top.toSortedList();
+        if (ownOffers == 0) {
+            return matches;
+        }
+        List<RideMatch> others = new ArrayList<>(limit);
+        for (RideMatch match : matches) {
+            if (others.size() < limit && !request.ownerUid.equals(match.offer.ownerUid)) {
+                others.add(match);
+            }
+        }
+        return others;
+    }
+
+    // Kernel over every part of [lo, hi) that can overlap the box; with
+    // exactLeaves, leaf offers outside the box are skipped
+    private void score(int lo, int hi, Box box, boolean exactLeaves, RideRequest request,
+                       double radiusKm, TopKCollector<RideMatch> top) {
+        if (lo >= hi) {
+            return;
+        }
+        int node = (lo + hi) >>> 1;
+        if (!box.overlaps(this, node)) {
+            return;
+        }
+        if (box.encloses(this, node)) {
+            scorer.scoreSnapshot(request, snapshot, lo, hi, radiusKm, top);
+            return;
+        }
+        if (hi - lo > LEAF_SIZE) {
+            score(lo, node, box, exactLeaves, request, radiusKm, top);
+            score(node, node + 1, box, true, request, radiusKm, top);
+            score(node + 1, hi, box, exactLeaves, request, radiusKm, top);
+            return;
+        }
+        if (!exactLeaves) {
+            scorer.scoreSnapshot(request, snapshot, lo, hi, radiusKm, top);
+            return;
+        }
+        for (int i = lo; i < hi; i++) {
+            if (box.contains(snapshot.startLat[i], snapshot.startLon[i], snapshot.timeMillis[i])) {
+                scorer.scoreSnapshot(request, snapshot, i, i + 1, radiusKm, top);
+            }
+        }
+    }
+
+    private void collect(int lo, int hi, Box box, List<RideOffer> result) {
+        if (lo >= hi) {
+            return;
+        }
+        int node = (lo + hi) >>> 1;
+        if (!box.overlaps(this, node)) {
+            return;
+        }
+        if (hi - lo > LEAF_SIZE) {
+            collect(lo, node, box, result);
+            collect(node, node + 1, box, result);
+            collect(node + 1, hi, box, result);
+            return;
+        }
+        for (int i = lo; i < hi; i++) {
+            if (snapshot.offers[i] != null && box.contains(snapshot.startLat[i],
+                    snapshot.startLon[i], snapshot.timeMillis[i])) {
+                result.add(snapshot.offers[i]);
+            }
+        }
+    }
+
+    // The query box, split in two where it crosses the antimeridian
+    private static List<Box> boxes(double latitude, double longitude, double radiusKm,
+                                   long earliestMillis, long latestMillis) {
+        double latDelta = radiusKm / KM_PER_DEGREE_LAT;
+        double south = latitude - latDelta;
+        double north = latitude + latDelta;
+
+        // Widest longitude span the radius covers anywhere inside the box
+        double cosLat = Math.max(Math.cos(Math.toRadians(
+                Math.min(Math.max(Math.abs(south), Math.abs(north)), 90.0))), 1e-6);
+        double lonDelta = Math.min(radiusKm / (KM_PER_DEGREE_LAT * cosLat), 180.0);
+        double west = longitude - lonDelta;
+        double east = longitude + lonDelta;
+
+        List<Box> boxes = new ArrayList<>(2);
+        boxes.add(new Box(south, north, west, east, earliestMillis, latestMillis));
+        if (west < -180.0) {
+            boxes.add(new Box(south, north, west + 360.0, 180.0, earliestMillis, latestMillis));
+        } else if (east > 180.0) {
+            boxes.add(new Box(south, north, -180.0, east - 360.0, earliestMillis, latestMillis));
+        }
+        return boxes;
+    }
+
+    private static boolean isIndexable(RideOffer offer) {
+        return "open".equals(offer.status)
+                && offer.startLocation != null && offer.endLocation != null;
+    }
+
+    private void put(RideOffer offer) {
+        Integer slot = pending.containsKey(offer.id) ? null : slotById.get(offer.id);
+        if (slot != null) {
+            RideOffer current = snapshot.offers[slot];
+            if (snapshot.startLat[slot] == offer.startLocation.getLatitude()
+                    && snapshot.startLon[slot] == offer.startLocation.getLongitude()
+                    && departures[slot] == offer.timeMillis) {
+                // Same place in the tree: seats or price changed, or a full offer reopened
+                if (current == null) {
+                    removed--;
+                }
+                countOwner(current, -1);
+                countOwner(offer, 1);
+                snapshot.set(slot, offer);
+                return;
+            }
+            if (current != null) {
+                removeSlot(slot);
+            }
+        }
+
+        countOwner(pending.put(offer.id, offer), -1);
+        countOwner(offer, 1);
+    }
+
+    private void drop(String offerId) {
+        RideOffer buffered = pending.remove(offerId);
+        if (buffered != null) {
+            countOwner(buffered, -1);
+            return;
+        }
+        Integer slot = slotById.get(offerId);
+        if (slot != null && snapshot.offers[slot] != null) {
+            removeSlot(slot);
+        }
+    }
+
+    private void countOwner(RideOffer offer, int delta) {
+        if (offer == null || offer.ownerUid == null) {
+            return;
+        }
+        Integer count = offersByOwner.get(offer.ownerUid);
+        int updated = (count == null ? 0 : count) + delta;
+        if (updated > 0) {
+            offersByOwner.put(offer.ownerUid, updated);
+        } else {
+            offersByOwner.remove(offer.ownerUid);
+        }
+    }
+
+    // Tombstone: the slot stays with its offer id in case the offer reopens
+    private void removeSlot(int slot) {
+        countOwner(snapshot.offers[slot], -1);
+        snapshot.offers[slot] = null;
+        snapshot.timeMillis[slot] = REMOVED_TIME;
+        removed++;
+    }
+
+    private int slack(int divisor) {
+        return Math.max(MIN_SLACK, snapshot.size() / divisor);
+    }
+
+    // Rebuild the tree from its live offers plus the buffer
+    private void rebuild() {
+        int n = size();
+        RideOffer[] live = new RideOffer[n];
+        int k = 0;
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (snapshot.offers[i] != null) {
+                live[k++] = snapshot.offers[i];
+            }
+        }
+        for (RideOffer offer : pending.values()) {
+            live[k++] = offer;
+        }
+
+        minLat = new double[n];
+        maxLat = new double[n];
+        minLon = new double[n];
+        maxLon = new double[n];
+        minTime = new long[n];
+        maxTime = new long[n];
+        new Builder(live).build(0, n);
+
+        snapshot = new OfferSnapshot(n);
+        departures = new long[n];
+        slotById.clear();
+        for (RideOffer offer : live) {
+            int slot = snapshot.add(offer);
+            departures[slot] = offer.timeMillis;
+            slotById.put(offer.id, slot);
+        }
+        pending.clear();
+        removed = 0;
+    }
+
+    /**
+     * Puts the offers in kd order and records each node's bounds. Each node
+     * splits at the median of the axis with the widest spread, comparing
+     * latitude, longitude and scaled time all in km.
+     */
+    private final class Builder {
+        private final double[] lat;
+        private final double[] lon;
+        private final long[] time;
+        private final RideOffer[] offers;
+
+        Builder(RideOffer[] offers) {
+            this.offers = offers;
+            lat = new double[offers.length];
+            lon = new double[offers.length];
+            time = new long[offers.length];
+            for (int i = 0; i < offers.length; i++) {
+                lat[i] = offers[i].startLocation.getLatitude();
+                lon[i] = offers[i].startLocation.getLongitude();
+                time[i] = offers[i].timeMillis;
+            }
+        }
+
+        void build(int lo, int hi) {
+            if (lo >= hi) {
+                return;
+            }
+
+            double south = Double.MAX_VALUE;
+            double north = -Double.MAX_VALUE;
+            double west = Double.MAX_VALUE;
+            double east = -Double.MAX_VALUE;
+            long earliest = Long.MAX_VALUE;
+            long latest = Long.MIN_VALUE;
+            for (int i = lo; i < hi; i++) {
+                south = Math.min(south, lat[i]);
+                north = Math.max(north, lat[i]);
+                west = Math.min(west, lon[i]);
+                east = Math.max(east, lon[i]);
+                earliest = Math.min(earliest, time[i]);
+                latest = Math.max(latest, time[i]);
+            }
+
+            int node = (lo + hi) >>> 1;
+            minLat[node] = south;
+            maxLat[node] = north;
+            minLon[node] = west;
+            maxLon[node] = east;
+            minTime[node] = earliest;
+            maxTime[node] = latest;
+            if (hi - lo <= LEAF_SIZE) {
+                return;
+            }
+
+            double latSpread = (north - south) * KM_PER_DEGREE_LAT;
+            double lonSpread = (east - west) * KM_PER_DEGREE_LAT
+                    * Math.cos(Math.toRadians((south + north) / 2));
+            double timeSpread = (latest - earliest) * KM_PER_MILLI;
+
+            int axis = 2;
+            if (latSpread >= lonSpread && latSpread >= timeSpread) {
+                axis = 0;
+            } else if (lonSpread >= timeSpread) {
+                axis = 1;
+            }
+
+            select(lo, hi - 1, node, axis);
+            build(lo, node);
+            build(node + 1, hi);
+        }
+
+        // Quickselect: position k gets its sorted key, smaller keys before it, larger after
+        private void select(int left, int right, int k, int axis) {
+            while (right > left) {
+                double pivot = key((left + right) >>> 1, axis);
+                int i = left;
+                int j = right;
+                while (i <= j) {
+                    while (key(i, axis) < pivot) {
+                        i++;
+                    }
+                    while (key(j, axis) > pivot) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        swap(i++, j--);
+                    }
+                }
+                if (k <= j) {
+                    right = j;
+                } else if (k >= i) {
+                    left = i;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private double key(int i, int axis) {
+            switch (axis) {
+                case 0: return lat[i];
+                case 1: return lon[i];
+                default: return time[i];
+            }
+        }
+
+        private void swap(int a, int b) {
+            double tmpLat = lat[a];
+            lat[a] = lat[b];
+            lat[b] = tmpLat;
+
+            double tmpLon = lon[a];
+            lon[a] = lon[b];
+            lon[b] = tmpLon;
+
+            long tmpTime = time[a];
+            time[a] = time[b];
+            time[b] = tmpTime;
+
+            RideOffer tmpOffer = offers[a];
+            offers[a] = offers[b];
+            offers[b] = tmpOffer;
+        }
+    }
+
+    private static final class Box {
+        final double south;
+        final double north;
+        final double west;
+        final double east;
+        final long earliest;
+        final long latest;
+
+        Box(double south, double north, double west, double east, long earliest, long latest) {
+            this.south = south;
+            this.north = north;
+            this.west = west;
+            this.east = east;
+            this.earliest = earliest;
+            this.latest = latest;
+        }
+
+        boolean overlaps(OfferKdTree tree, int node) {
+            return tree.minLat[node] <= north && tree.maxLat[node] >= south
+                    && tree.minLon[node] <= east && tree.maxLon[node] >= west
+                    && tree.minTime[node] <= latest && tree.maxTime[node] >= earliest;
+        }
+
+        boolean encloses(OfferKdTree tree, int node) {
+            return tree.minLat[node] >= south && tree.maxLat[node] <= north
+                    && tree.minLon[node] >= west && tree.maxLon[node] <= east
+                    && tree.minTime[node] >= earliest && tree.maxTime[node] <= latest;
+        }
+
+        boolean contains(double latitude, double longitude, long timeMillis) {
+            return latitude >= south && latitude <= north
+                    && longitude >= west && longitude <= east
+                    && timeMillis >= earliest && timeMillis <= latest;
+        }
+
+        boolean contains(RideOffer offer) {
+            return contains(offer.startLocation.getLatitude(),
+                    offer.startLocation.getLongitude(), offer.timeMillis);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.booknest.campusridenest.util;
+
+import com.booknest.campusridenest.model.RideOffer;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Column-oriented copy of a set of open offers.
+ * Everything the scorer reads lives in primitive arrays indexed by offer
+ * position, so scoring is a tight loop over contiguous memory instead of a
+ * walk over RideOffer/GeoPoint objects. The original offers are kept only to
+ * build RideMatch results for the winners.
+ */
+public class OfferSnapshot {
+
+    public double[] startLat;
+    public double[] startLon;
+    public double[] endLat;
+    public double[] endLon;
+    public long[] timeMillis;
+    public double[] pricePerSeat;
+    public int[] preferenceMask;  // PreferenceMask bits
+    public RideOffer[] offers;
+
+    private int size;
+
+    public OfferSnapshot(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 8);
+        startLat = new double[capacity];
+        startLon = new double[capacity];
+        endLat = new double[capacity];
+        endLon = new double[capacity];
+        timeMillis = new long[capacity];
+        pricePerSeat = new double[capacity];
+        preferenceMask = new int[capacity];
+        offers = new RideOffer[capacity];
+    }
+
+    /**
+     * Snapshot of the given offers. Offers without both locations are left
+     * out since the scorer can never match them.
+     */
+    public static OfferSnapshot of(List<RideOffer> offers) {
+        OfferSnapshot snapshot = new OfferSnapshot(offers.size());
+        for (RideOffer offer : offers) {
+            snapshot.add(offer);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Append an offer; returns its index or -1 if it has no start/end location
+     */
+    public int add(RideOffer offer) {
+        if (offer.startLocation == null || offer.endLocation == null) {
+            return -1;
+        }
+        if (size == offers.length) {
+            grow();
+        }
+
+        int i = size++;
+        set(i, offer);
+        return i;
+    }
+
+    /**
+     * Overwrite position i with an offer that has both locations,
+     * e.g. after its seats or price changed
+     */
+    public void set(int i, RideOffer offer) {
+        startLat[i] = offer.startLocation.getLatitude();
+        startLon[i] = offer.startLocation.getLongitude();
+        endLat[i] = offer.endLocation.getLatitude();
+        endLon[i] = offer.endLocation.getLongitude();
+        timeMillis[i] = offer.timeMillis;
+        pricePerSeat[i] = offer.pricePerSeat;
+        preferenceMask[i] = PreferenceMask.of(offer);
+        offers[i] = offer;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void grow() {
+        int capacity = offers.length * 2;
+        startLat = Arrays.copyOf(startLat, capacity);
+        startLon = Arrays.copyOf(startLon, capacity);
+        endLat = Arrays.copyOf(endLat, capacity);
+        endLon = Arrays.copyOf(endLon, capacity);
+        timeMillis = Arrays.copyOf(timeMillis, capacity);
+        pricePerSeat = Arrays.copyOf(pricePerSeat, capacity);
+        preferenceMask = Arrays.copyOf(preferenceMask, capacity);
+        offers = Arrays.copyOf(offers, capacity);
+    }
+}
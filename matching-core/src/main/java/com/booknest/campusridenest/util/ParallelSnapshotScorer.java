@@ -0,0 +1,148 @@
+package com.booknest.campusridenest.util;
+
+import com.booknest.campusridenest.model.RideMatch;
+import com.booknest.campusridenest.model.RideRequest;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork-join version of RideMatchScorer.topMatches.
+ * The snapshot is split into ranges, each worker keeps its own top-K heap,
+ * and heaps are merged on the way back up. Small snapshots are scored on the
+ * calling thread since splitting them costs more than it saves.
+ */
+public class ParallelSnapshotScorer {
+
+    // Below this many offers the sequential kernel is used
+    public static final int PARALLEL_THRESHOLD = 4096;
+
+    // Offers scored by one task without splitting further
+    private static final int MIN_CHUNK_SIZE = 1024;
+
+    private static ForkJoinPool sharedPool;
+
+    private final RideMatchScorer scorer;
+    private final ForkJoinPool pool;
+
+    public ParallelSnapshotScorer(RideMatchScorer scorer) {
+        this(scorer, getSharedPool());
+    }
+
+    public ParallelSnapshotScorer(RideMatchScorer scorer, ForkJoinPool pool) {
+        this.scorer = scorer;
+        this.pool = pool;
+    }
+
+    /**
+     * Pool sized to the device's cores, created on first use and shared by
+     * every scorer so matching never spawns more threads than that.
+     */
+    private static synchronized ForkJoinPool getSharedPool() {
+        if (sharedPool == null) {
+            sharedPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        }
+        return sharedPool;
+    }
+
+    /**
+     * Best {@code limit} matches, highest score first
+     */
+    public List<RideMatch> topMatches(RideRequest request, OfferSnapshot snapshot, int limit) {
+        return topMatches(request, snapshot, limit, RideMatchScorer.MAX_PICKUP_DISTANCE_KM);
+    }
+
+    /**
+     * Best {@code limit} matches for a search of the given radius
+     */
+    public List<RideMatch> topMatches(RideRequest request, OfferSnapshot snapshot, int limit,
+                                      double radiusKm) {
+        return topMatches(request, snapshot, limit, radiusKm, null);
+    }
+
+    /**
+     * topMatches that adds its scoring and sorting time and counts to stats, if given
+     */
+    public List<RideMatch> topMatches(RideRequest request, OfferSnapshot snapshot, int limit,
+                                      double radiusKm, @Nullable MatchStats stats) {
+        long start = System.nanoTime();
+        TopKCollector<RideMatch> top;
+        if (snapshot.size() < PARALLEL_THRESHOLD || pool.getParallelism() < 2) {
+            top = new TopKCollector<>(limit);
+            scorer.scoreSnapshot(request, snapshot, 0, snapshot.size(), radiusKm, top, stats);
+        } else {
+            // Aim for a few chunks per worker so uneven ranges still balance
+            int chunkSize = Math.max(MIN_CHUNK_SIZE,
+                    snapshot.size() / (pool.getParallelism() * 4));
+
+            ScoreRangeTask task = new ScoreRangeTask(request, snapshot, 0, snapshot.size(),
+                    limit, radiusKm, chunkSize, stats != null);
+            top = pool.invoke(task);
+            if (stats != null) {
+                stats.add(task.stats);
+            }
+        }
+        long scored = System.nanoTime();
+
+        List<RideMatch> matches = top.toSortedList();
+        if (stats != null) {
+            stats.scoreNanos += scored - start;
+            stats.sortNanos += System.nanoTime() - scored;
+        }
+        return matches;
+    }
+
+    private class ScoreRangeTask extends RecursiveTask<TopKCollector<RideMatch>> {
+        private final RideRequest request;
+        private final OfferSnapshot snapshot;
+        private final int from;
+        private final int to;
+        private final int limit;
+        private final double radiusKm;
+        private final int chunkSize;
+
+        // This range's counts, merged from its subtasks; null when not recording
+        @Nullable final MatchStats stats;
+
+        ScoreRangeTask(RideRequest request, OfferSnapshot snapshot, int from, int to,
+                       int limit, double radiusKm, int chunkSize, boolean recordStats) {
+            this.request = request;
+            this.snapshot = snapshot;
+            this.from = from;
+            this.to = to;
+            this.limit = limit;
+            this.radiusKm = radiusKm;
+            this.chunkSize = chunkSize;
+            this.stats = recordStats ? new MatchStats() : null;
+        }
+
+        @Override
+        protected TopKCollector<RideMatch> compute() {
+            if (to - from <= chunkSize) {
+                TopKCollector<RideMatch> top = new TopKCollector<>(limit);
+                scorer.scoreSnapshot(request, snapshot, from, to, radiusKm, top, stats);
+                return top;
+            }
+
+            int mid = (from + to) >>> 1;
+            boolean recordStats = stats != null;
+            ScoreRangeTask left = new ScoreRangeTask(request, snapshot, from, mid, limit, radiusKm,
+                    chunkSize, recordStats);
+            ScoreRangeTask right = new ScoreRangeTask(request, snapshot, mid, to, limit, radiusKm,
+                    chunkSize, recordStats);
+            left.fork();
+
+            TopKCollector<RideMatch> rightTop = right.compute();
+            TopKCollector<RideMatch> leftTop = left.join();
+            rightTop.addAll(leftTop);
+            if (stats != null) {
+                stats.add(left.stats);
+                stats.add(right.stats);
+            }
+            return rightTop;
+        }
+    }
+}
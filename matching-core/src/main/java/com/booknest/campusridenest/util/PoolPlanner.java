@@ -0,0 +1,143 @@
+package com.booknest.campusridenest.util;
+
+import com.booknest.campusridenest.model.PoolProposal;
+import com.booknest.campusridenest.model.RideMatch;
+import com.booknest.campusridenest.model.RideOffer;
+import com.booknest.campusridenest.model.RideRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fills one offer with several requests at once.
+ * Each request takes as many seats as its party size; the planner picks the
+ * set that fits the offer's seats with the highest total match score
+ * (a 0/1 knapsack). Requests are scored against both the endpoints and the
+ * route corridor, so riders joining along the way can share the car.
+ *
+ * Each rider is scored against the offer alone: the planner doesn't check
+ * that the chosen riders' pickups and dropoffs fit one trip together, or
+ * what detour serving all of them adds. The driver confirms the pool.
+ */
+public class PoolPlanner {
+
+    // Best-scoring requests considered per offer; keeps the search small on busy routes
+    public static final int MAX_POOL_CANDIDATES = 32;
+
+    private final RideMatchScorer scorer;
+
+    public PoolPlanner(RideMatchScorer scorer) {
+        this.scorer = scorer;
+    }
+
+    /**
+     * Best pool for the offer among the given requests, riders ordered by score
+     */
+    public PoolProposal plan(RideOffer offer, List<RideRequest> requests) {
+        // 1. Score every request that could ride, keep the strongest candidates
+        TopKCollector<RideMatch> top = new TopKCollector<>(MAX_POOL_CANDIDATES);
+        MatchScratch endpoint = new MatchScratch();
+        MatchScratch corridor = new MatchScratch();
+
+        for (RideRequest request : requests) {
+            // The driver's own requests never match
+            if (request.ownerUid != null && request.ownerUid.equals(offer.ownerUid)) {
+                continue;
+            }
+            if (partySize(request) > offer.seats) {
+                continue;
+            }
+
+            boolean endpointMatch = scorer.scoreInto(request, offer, 0.0, endpoint);
+            boolean corridorMatch = scorer.scoreCorridorInto(request, offer, 0.0, corridor);
+            if (!endpointMatch && !corridorMatch) {
+                continue;
+            }
+
+            MatchScratch best = !corridorMatch
+                    || (endpointMatch && endpoint.score >= corridor.score) ? endpoint : corridor;
+            RideMatch match = new RideMatch(offer, best);
+            match.request = request;
+            top.offer(match, best.score);
+        }
+
+        // 2. Branch and bound over candidates, densest score per seat first
+        List<RideMatch> candidates = top.toSortedList();
+        candidates.sort((a, b) -> Double.compare(
+                b.matchScore / partySize(b.request), a.matchScore / partySize(a.request)));
+
+        int n = candidates.size();
+        double[] scores = new double[n];
+        int[] sizes = new int[n];
+        for (int i = 0; i < n; i++) {
+            scores[i] = candidates.get(i).matchScore;
+            sizes[i] = partySize(candidates.get(i).request);
+        }
+
+        Search search = new Search(scores, sizes);
+        search.run(0, offer.seats, 0.0, 0L);
+
+        // 3. Chosen riders, best first
+        List<RideMatch> riders = new ArrayList<>();
+        int seatsFilled = 0;
+        for (int i = 0; i < n; i++) {
+            if ((search.bestSet & (1L << i)) != 0) {
+                riders.add(candidates.get(i));
+                seatsFilled += sizes[i];
+            }
+        }
+        riders.sort((a, b) -> Double.compare(b.matchScore, a.matchScore));
+
+        return new PoolProposal(offer, riders, search.bestTotal, seatsFilled);
+    }
+
+    private static int partySize(RideRequest request) {
+        return Math.max(1, request.seats);
+    }
+
+    private static class Search {
+        final double[] scores;
+        final int[] sizes;
+        double bestTotal = 0.0;
+        long bestSet = 0L;
+
+        Search(double[] scores, int[] sizes) {
+            this.scores = scores;
+            this.sizes = sizes;
+        }
+
+        void run(int i, int seatsLeft, double total, long set) {
+            if (total > bestTotal) {
+                bestTotal = total;
+                bestSet = set;
+            }
+            if (i == scores.length || seatsLeft == 0) {
+                return;
+            }
+
+            // Prune when even filling the remaining seats fractionally can't win
+            if (total + upperBound(i, seatsLeft) <= bestTotal) {
+                return;
+            }
+
+            if (sizes[i] <= seatsLeft) {
+                run(i + 1, seatsLeft - sizes[i], total + scores[i], set | (1L << i));
+            }
+            run(i + 1, seatsLeft, total, set);
+        }
+
+        // Fractional knapsack over items [i, n); valid since items are sorted by density
+        private double upperBound(int i, int seatsLeft) {
+            double bound = 0.0;
+            for (int k = i; k < scores.length; k++) {
+                if (sizes[k] <= seatsLeft) {
+                    seatsLeft -= sizes[k];
+                    bound += scores[k];
+                } else {
+                    return bound + scores[k] * seatsLeft / sizes[k];
+                }
+            }
+            return bound;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.booknest.campusridenest.util;
+
+import com.booknest.campusridenest.model.RideOffer;
+import com.booknest.campusridenest.model.RideRequest;
+
+/**
+ * Packs ride preferences into an int so they can be stored in flat arrays
+ * and on Firestore documents, and compared without string equality.
+ *
+ * Layout (same for offers and requests):
+ *   bit 0    smoking   (offer: allowsSmoking, request: needsNonSmoking)
+ *   bit 1    pets      (offer: allowsPets,    request: needsNoPets)
+ *   bits 2-3 music        0 = no preference, 1 = yes, 2 = no
+ *   bits 4-5 conversation 0 = no preference, 1 = chatty, 2 = quiet
+ *
+ * Music and conversation codes are one-hot, so two set codes differ exactly
+ * when their XOR is non-zero. Unknown values are treated as "no-preference".
+ * The layout is persisted, so existing bits must never be reassigned.
+ */
+public class PreferenceMask {
+
+    public static final int SMOKING = 1;
+    public static final int PETS = 1 << 1;
+
+    private static final int MUSIC_SHIFT = 2;
+    private static final int CONVERSATION_SHIFT = 4;
+    private static final int CODE_MASK = 3;
+
+    // Low bit of the music and conversation fields
+    private static final int CHOICE_LOW_BITS = (1 << MUSIC_SHIFT) | (1 << CONVERSATION_SHIFT);
+
+    public static int encode(boolean smoking, boolean pets,
+                             String musicPreference, String conversationLevel) {
+        int mask = 0;
+        if (smoking) mask |= SMOKING;
+        if (pets) mask |= PETS;
+        mask |= musicCode(musicPreference) << MUSIC_SHIFT;
+        mask |= conversationCode(conversationLevel) << CONVERSATION_SHIFT;
+        return mask;
+    }
+
+    /**
+     * Stored mask of an offer, encoded from its fields and kept on the
+     * object the first time it is needed for posts saved without one
+     */
+    public static int of(RideOffer offer) {
+        if (offer.preferenceMask == null) {
+            offer.preferenceMask = encode(offer.allowsSmoking, offer.allowsPets,
+                    offer.musicPreference, offer.conversationLevel);
+        }
+        return offer.preferenceMask;
+    }
+
+    public static int of(RideRequest request) {
+        if (request.preferenceMask == null) {
+            request.preferenceMask = encode(request.needsNonSmoking, request.needsNoPets,
+                    request.musicPreference, request.conversationLevel);
+        }
+        return request.preferenceMask;
+    }
+
+    /**
+     * Preference score (0-100): the share of compared preferences that agree.
+     * Smoking and pets are always compared and conflict only when both bits
+     * are set; music and conversation are compared only when both sides
+     * chose a value. Branch-free apart from the final division.
+     */
+    public static double score(int requestMask, int offerMask) {
+        int conflicts = Integer.bitCount(requestMask & offerMask & (SMOKING | PETS));
+
+        // Fields where both sides chose, and those where they chose differently
+        int bothChose = present(requestMask) & present(offerMask);
+        int differ = present(requestMask ^ offerMask) & bothChose;
+
+        int total = 2 + Integer.bitCount(bothChose);
+        int matches = total - conflicts - Integer.bitCount(differ);
+        return 100.0 * matches / total;
+    }
+
+    // One bit per music/conversation field that holds a non-zero code
+    private static int present(int mask) {
+        return (mask | (mask >>> 1)) & CHOICE_LOW_BITS;
+    }
+
+    private static int musicCode(String value) {
+        if ("yes".equals(value)) return 1;
+        if ("no".equals(value)) return 2;
+        return 0;
+    }
+
+    private static int conversationCode(String value) {
+        if ("chatty".equals(value)) return 1;
+        if ("quiet".equals(value)) return 2;
+        return 0;
+    }
+}
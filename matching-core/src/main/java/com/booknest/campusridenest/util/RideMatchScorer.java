@@ -0,0 +1,491 @@
+package com.booknest.campusridenest.util;
+
+import com.booknest.campusridenest.model.RideMatch;
+import com.booknest.campusridenest.model.RideOffer;
+import com.booknest.campusridenest.model.RideRequest;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+public class RideMatchScorer {
+
+    // Scoring weights (total = 100)
+    private static final double WEIGHT_DISTANCE = 35.0;
+    private static final double WEIGHT_TIME = 30.0;
+    private static final double WEIGHT_PRICE = 20.0;
+    private static final double WEIGHT_PREFERENCES = 15.0;
+
+    // Distance thresholds
+    public static final double MAX_PICKUP_DISTANCE_KM = 5.0;
+    private static final double MAX_DROPOFF_DISTANCE_KM = 5.0;
+    private static final double IDEAL_DISTANCE_KM = 1.0;
+
+    // Time thresholds
+    public static final long MAX_TIME_DIFF_MINUTES = 120;
+    private static final long IDEAL_TIME_DIFF_MINUTES = 30;
+
+    // Corridor matching: how far off the straight route a driver will stop
+    public static final double CORRIDOR_WIDTH_KM = 2.0;
+
+    // Used to estimate when the driver reaches a point along the route
+    private static final double AVERAGE_SPEED_KMH = 60.0;
+
+    public RideMatch scoreMatch(RideRequest request, RideOffer offer) {
+        // Calculate distances
+        double pickupDistance = GeoUtils.distanceWithin(
+                request.pickupLocation, offer.startLocation, MAX_PICKUP_DISTANCE_KM);
+        double dropoffDistance = GeoUtils.distanceWithin(
+                request.dropoffLocation, offer.endLocation, MAX_DROPOFF_DISTANCE_KM);
+
+        // Quick filters; rejected matches still report the real distances
+        if (pickupDistance > MAX_PICKUP_DISTANCE_KM ||
+                dropoffDistance > MAX_DROPOFF_DISTANCE_KM) {
+            return new RideMatch(offer, 0.0,
+                    GeoUtils.calculateDistance(request.pickupLocation, offer.startLocation),
+                    GeoUtils.calculateDistance(request.dropoffLocation, offer.endLocation),
+                    Long.MAX_VALUE, "Route too far apart");
+        }
+
+        long timeDiff = Math.abs(request.timeMillis - offer.timeMillis) / 60000;
+        if (timeDiff > MAX_TIME_DIFF_MINUTES) {
+            return new RideMatch(offer, 0.0, pickupDistance, dropoffDistance,
+                    timeDiff, "Time difference too large");
+        }
+
+        if (request.maxBudget > 0 && offer.pricePerSeat > request.maxBudget) {
+            return new RideMatch(offer, 0.0, pickupDistance, dropoffDistance,
+                    timeDiff, "Price exceeds budget");
+        }
+
+        // Calculate scores
+        double distanceScore = calculateDistanceScore(pickupDistance, dropoffDistance);
+        double timeScore = calculateTimeScore(timeDiff);
+        double priceScore = calculatePriceScore(request.maxBudget, offer.pricePerSeat);
+        double preferenceScore = calculatePreferenceScore(request, offer);
+
+        double totalScore = combineScores(distanceScore, timeScore, priceScore, preferenceScore);
+
+        int reasonMask = MatchReasons.fromScores(
+                distanceScore, timeScore, priceScore, preferenceScore);
+
+        RideMatch match = new RideMatch(offer, totalScore, pickupDistance, dropoffDistance,
+                timeDiff, MatchReasons.describe(reasonMask));
+        match.reasonMask = reasonMask;
+        return match;
+    }
+
+    /**
+     * Branch-and-bound variant of scoreMatch for top-K selection.
+     * Returns the same match as scoreMatch when its score is above minScore,
+     * otherwise null. Cheap components are evaluated first and the best
+     * achievable score is re-checked after each step, so most candidates are
+     * rejected before any haversine call is made.
+     */
+    public RideMatch scoreMatchAbove(RideRequest request, RideOffer offer, double minScore) {
+        MatchScratch scratch = new MatchScratch();
+        if (!scoreInto(request, offer, minScore, scratch)) {
+            return null;
+        }
+        return new RideMatch(offer, scratch);
+    }
+
+    /**
+     * Allocation-free form of scoreMatchAbove for the matching hot path.
+     * Writes the result into {@code out} and returns true when the score is
+     * above minScore. Reasons are recorded as a MatchReasons bitmask; the
+     * text is only rendered when a match card is bound.
+     */
+    public boolean scoreInto(RideRequest request, RideOffer offer, double minScore,
+                             MatchScratch out) {
+        return scoreInto(request, offer, minScore, MAX_PICKUP_DISTANCE_KM, out);
+    }
+
+    /**
+     * scoreInto for a search of the given radius: pickup and dropoff must
+     * each lie within radiusKm, and the distance score falls to zero at
+     * radiusKm instead of at the default 5 km
+     */
+    public boolean scoreInto(RideRequest request, RideOffer offer, double minScore,
+                             double radiusKm, MatchScratch out) {
+        return scoreInto(request, offer, minScore, radiusKm, out, null);
+    }
+
+    /**
+     * scoreInto that counts why the offer was rejected into stats, if given
+     */
+    public boolean scoreInto(RideRequest request, RideOffer offer, double minScore,
+                             double radiusKm, MatchScratch out, @Nullable MatchStats stats) {
+        long timeDiff = Math.abs(request.timeMillis - offer.timeMillis) / 60000;
+        return scoreInto(request, offer, timeDiff, minScore, radiusKm, out, stats);
+    }
+
+    /**
+     * scoreInto for posts that repeat weekly: timing is the gap between the
+     * closest departures in the week rather than between absolute times, so
+     * a recurring request can match recurring and one-off offers alike.
+     * out.weekdayMask gets the request's days the offer works for.
+     */
+    public boolean scoreRecurringInto(RideRequest request, RideOffer offer, double minScore,
+                                      MatchScratch out) {
+        long timeDiff = TimeOfWeek.minutesApart(request, offer);
+        if (!scoreInto(request, offer, timeDiff, minScore, MAX_PICKUP_DISTANCE_KM, out, null)) {
+            return false;
+        }
+        out.weekdayMask = TimeOfWeek.sharedDays(request, offer, MAX_TIME_DIFF_MINUTES);
+        if (offer.weekdayMask != 0) {
+            out.reasonMask |= MatchReasons.REPEATS_WEEKLY;
+        }
+        return true;
+    }
+
+    private boolean scoreInto(RideRequest request, RideOffer offer, long timeDiff,
+                              double minScore, double radiusKm, MatchScratch out,
+                              @Nullable MatchStats stats) {
+        // 1. Time and price: pure arithmetic
+        if (timeDiff > MAX_TIME_DIFF_MINUTES) {
+            if (stats != null) {
+                stats.rejectedByTime++;
+            }
+            return false;
+        }
+        if (request.maxBudget > 0 && offer.pricePerSeat > request.maxBudget) {
+            if (stats != null) {
+                stats.rejectedByBudget++;
+            }
+            return false;
+        }
+
+        double timeScore = calculateTimeScore(timeDiff);
+        double priceScore = calculatePriceScore(request.maxBudget, offer.pricePerSeat);
+
+        // Assume perfect distance and preferences
+        if (combineScores(100.0, timeScore, priceScore, 100.0) <= minScore) {
+            return pruned(stats);
+        }
+
+        // 2. Pickup distance: the average can be no better than half of it
+        double pickupDistance = GeoUtils.distanceWithin(
+                request.pickupLocation, offer.startLocation, radiusKm);
+        if (pickupDistance > radiusKm) {
+            if (stats != null) {
+                stats.rejectedByDistance++;
+            }
+            return false;
+        }
+        if (combineScores(calculateDistanceScore(pickupDistance, 0.0, radiusKm),
+                timeScore, priceScore, 100.0) <= minScore) {
+            return pruned(stats);
+        }
+
+        // 3. Dropoff distance: exact distance score
+        double dropoffDistance = GeoUtils.distanceWithin(
+                request.dropoffLocation, offer.endLocation, radiusKm);
+        if (dropoffDistance > radiusKm) {
+            if (stats != null) {
+                stats.rejectedByDistance++;
+            }
+            return false;
+        }
+        double distanceScore = calculateDistanceScore(pickupDistance, dropoffDistance, radiusKm);
+        if (combineScores(distanceScore, timeScore, priceScore, 100.0) <= minScore) {
+            return pruned(stats);
+        }
+
+        // 4. Preferences: exact total
+        double preferenceScore = calculatePreferenceScore(request, offer);
+        double totalScore = combineScores(distanceScore, timeScore, priceScore, preferenceScore);
+        if (totalScore <= minScore) {
+            return pruned(stats);
+        }
+
+        if (stats != null) {
+            stats.scored++;
+        }
+        out.score = totalScore;
+        out.pickupDistanceKm = pickupDistance;
+        out.dropoffDistanceKm = dropoffDistance;
+        out.timeDifferenceMinutes = timeDiff;
+        out.reasonMask = MatchReasons.fromScores(
+                distanceScore, timeScore, priceScore, preferenceScore);
+        out.weekdayMask = 0;
+        return true;
+    }
+
+    // Rejected by the score bound rather than a hard limit
+    private static boolean pruned(@Nullable MatchStats stats) {
+        if (stats != null) {
+            stats.pruned++;
+        }
+        return false;
+    }
+
+    /**
+     * Corridor (detour) scoring: treats the offer as the segment start → end
+     * and matches riders whose pickup and dropoff both lie within
+     * CORRIDOR_WIDTH_KM of it, pickup first. Timing is compared against when
+     * the driver is estimated to reach the pickup instead of the departure
+     * time. Same contract as scoreInto; matches carry MatchReasons.ALONG_ROUTE.
+     */
+    public boolean scoreCorridorInto(RideRequest request, RideOffer offer, double minScore,
+                                     MatchScratch out) {
+        if (request.pickupLocation == null || request.dropoffLocation == null
+                || offer.startLocation == null || offer.endLocation == null) {
+            return false;
+        }
+        if (request.maxBudget > 0 && offer.pricePerSeat > request.maxBudget) {
+            return false;
+        }
+
+        double startLat = offer.startLocation.getLatitude();
+        double startLon = offer.startLocation.getLongitude();
+        double endLat = offer.endLocation.getLatitude();
+        // Unwrapped past ±180 when the route crosses the antimeridian, so points
+        // along it interpolate the short way; distanceWithin wraps them back
+        double endLon = startLon + GeoUtils.longitudeDelta(startLon,
+                offer.endLocation.getLongitude());
+
+        // 1. Pickup must lie along the route
+        double pickupLat = request.pickupLocation.getLatitude();
+        double pickupLon = request.pickupLocation.getLongitude();
+        double pickupFraction = GeoUtils.segmentFraction(pickupLat, pickupLon,
+                startLat, startLon, endLat, endLon);
+        double pickupDistance = GeoUtils.distanceWithin(pickupLat, pickupLon,
+                startLat + (endLat - startLat) * pickupFraction,
+                startLon + (endLon - startLon) * pickupFraction,
+                CORRIDOR_WIDTH_KM);
+        if (pickupDistance > CORRIDOR_WIDTH_KM) {
+            return false;
+        }
+
+        // 2. Timing against the driver's estimated arrival at the pickup
+        double routeKm = GeoUtils.calculateDistance(startLat, startLon, endLat, endLon);
+        long arrivalMillis = offer.timeMillis
+                + (long) (pickupFraction * routeKm / AVERAGE_SPEED_KMH * 3600000);
+        long timeDiff = Math.abs(request.timeMillis - arrivalMillis) / 60000;
+        if (timeDiff > MAX_TIME_DIFF_MINUTES) {
+            return false;
+        }
+
+        // 3. Dropoff must come later along the same route
+        double dropoffLat = request.dropoffLocation.getLatitude();
+        double dropoffLon = request.dropoffLocation.getLongitude();
+        double dropoffFraction = GeoUtils.segmentFraction(dropoffLat, dropoffLon,
+                startLat, startLon, endLat, endLon);
+        if (dropoffFraction <= pickupFraction) {
+            return false;
+        }
+        double dropoffDistance = GeoUtils.distanceWithin(dropoffLat, dropoffLon,
+                startLat + (endLat - startLat) * dropoffFraction,
+                startLon + (endLon - startLon) * dropoffFraction,
+                CORRIDOR_WIDTH_KM);
+        if (dropoffDistance > CORRIDOR_WIDTH_KM) {
+            return false;
+        }
+
+        double distanceScore = calculateDistanceScore(pickupDistance, dropoffDistance);
+        double timeScore = calculateTimeScore(timeDiff);
+        double priceScore = calculatePriceScore(request.maxBudget, offer.pricePerSeat);
+        double preferenceScore = calculatePreferenceScore(request, offer);
+        double totalScore = combineScores(distanceScore, timeScore, priceScore, preferenceScore);
+        if (totalScore <= minScore) {
+            return false;
+        }
+
+        out.score = totalScore;
+        out.pickupDistanceKm = pickupDistance;
+        out.dropoffDistanceKm = dropoffDistance;
+        out.timeDifferenceMinutes = timeDiff;
+        out.reasonMask = MatchReasons.fromScores(
+                distanceScore, timeScore, priceScore, preferenceScore) | MatchReasons.ALONG_ROUTE;
+        out.weekdayMask = 0;
+        return true;
+    }
+
+    /**
+     * Rank-and-select: the best {@code limit} matches in the snapshot,
+     * highest score first
+     */
+    public List<RideMatch> topMatches(RideRequest request, OfferSnapshot snapshot, int limit) {
+        return topMatches(request, snapshot, limit, MAX_PICKUP_DISTANCE_KM);
+    }
+
+    /**
+     * topMatches for a search of the given radius, see scoreInto
+     */
+    public List<RideMatch> topMatches(RideRequest request, OfferSnapshot snapshot, int limit,
+                                      double radiusKm) {
+        TopKCollector<RideMatch> top = new TopKCollector<>(limit);
+        scoreSnapshot(request, snapshot, 0, snapshot.size(), radiusKm, top);
+        return top.toSortedList();
+    }
+
+    /**
+     * Columnar scoring kernel: scores offers [from, to) of the snapshot and
+     * feeds matches into {@code top}. Same rules and bounds as scoreInto, but
+     * reads only primitive arrays and hoists all request fields out of the loop.
+     * A RideMatch is only allocated for offers that enter the top K.
+     */
+    public void scoreSnapshot(RideRequest request, OfferSnapshot snapshot, int from, int to,
+                              TopKCollector<RideMatch> top) {
+        scoreSnapshot(request, snapshot, from, to, MAX_PICKUP_DISTANCE_KM, top);
+    }
+
+    /**
+     * scoreSnapshot for a search of the given radius, see scoreInto
+     */
+    public void scoreSnapshot(RideRequest request, OfferSnapshot snapshot, int from, int to,
+                              double radiusKm, TopKCollector<RideMatch> top) {
+        scoreSnapshot(request, snapshot, from, to, radiusKm, top, null);
+    }
+
+    /**
+     * scoreSnapshot that adds its reject and score counts to stats, if given
+     */
+    public void scoreSnapshot(RideRequest request, OfferSnapshot snapshot, int from, int to,
+                              double radiusKm, TopKCollector<RideMatch> top,
+                              @Nullable MatchStats stats) {
+        if (request.pickupLocation == null || request.dropoffLocation == null) {
+            return;
+        }
+
+        double pickupLat = request.pickupLocation.getLatitude();
+        double pickupLon = request.pickupLocation.getLongitude();
+        double dropoffLat = request.dropoffLocation.getLatitude();
+        double dropoffLon = request.dropoffLocation.getLongitude();
+        long requestTime = request.timeMillis;
+        double maxBudget = request.maxBudget;
+        int requestPrefs = PreferenceMask.of(request);
+
+        double[] startLat = snapshot.startLat;
+        double[] startLon = snapshot.startLon;
+        double[] endLat = snapshot.endLat;
+        double[] endLon = snapshot.endLon;
+        long[] times = snapshot.timeMillis;
+        double[] prices = snapshot.pricePerSeat;
+        int[] prefs = snapshot.preferenceMask;
+
+        // Counted in locals and added once, so the loop stays the same without stats
+        int rejectedByTime = 0;
+        int rejectedByBudget = 0;
+        int rejectedByDistance = 0;
+        int pruned = 0;
+
+        for (int i = from; i < to; i++) {
+            long timeDiff = Math.abs(requestTime - times[i]) / 60000;
+            if (timeDiff > MAX_TIME_DIFF_MINUTES) {
+                rejectedByTime++;
+                continue;
+            }
+            double price = prices[i];
+            if (maxBudget > 0 && price > maxBudget) {
+                rejectedByBudget++;
+                continue;
+            }
+
+            double minScore = Math.max(0.0, top.threshold());
+            double timeScore = calculateTimeScore(timeDiff);
+            double priceScore = calculatePriceScore(maxBudget, price);
+            if (combineScores(100.0, timeScore, priceScore, 100.0) <= minScore) {
+                pruned++;
+                continue;
+            }
+
+            double pickupDistance = GeoUtils.distanceWithin(
+                    pickupLat, pickupLon, startLat[i], startLon[i], radiusKm);
+            if (pickupDistance > radiusKm) {
+                rejectedByDistance++;
+                continue;
+            }
+            if (combineScores(calculateDistanceScore(pickupDistance, 0.0, radiusKm),
+                    timeScore, priceScore, 100.0) <= minScore) {
+                pruned++;
+                continue;
+            }
+
+            double dropoffDistance = GeoUtils.distanceWithin(
+                    dropoffLat, dropoffLon, endLat[i], endLon[i], radiusKm);
+            if (dropoffDistance > radiusKm) {
+                rejectedByDistance++;
+                continue;
+            }
+            double distanceScore = calculateDistanceScore(pickupDistance, dropoffDistance, radiusKm);
+            double preferenceScore = PreferenceMask.score(requestPrefs, prefs[i]);
+            double totalScore = combineScores(distanceScore, timeScore, priceScore, preferenceScore);
+            if (totalScore <= minScore) {
+                pruned++;
+                continue;
+            }
+
+            RideMatch match = new RideMatch(snapshot.offers[i], totalScore,
+                    pickupDistance, dropoffDistance, timeDiff, null);
+            match.reasonMask = MatchReasons.fromScores(
+                    distanceScore, timeScore, priceScore, preferenceScore);
+            top.offer(match, totalScore);
+        }
+
+        if (stats != null) {
+            stats.rejectedByTime += rejectedByTime;
+            stats.rejectedByBudget += rejectedByBudget;
+            stats.rejectedByDistance += rejectedByDistance;
+            stats.pruned += pruned;
+            stats.scored += (to - from) - rejectedByTime - rejectedByBudget
+                    - rejectedByDistance - pruned;
+        }
+    }
+
+    private double combineScores(double distanceScore, double timeScore,
+                                 double priceScore, double preferenceScore) {
+        return (distanceScore * WEIGHT_DISTANCE +
+                timeScore * WEIGHT_TIME +
+                priceScore * WEIGHT_PRICE +
+                preferenceScore * WEIGHT_PREFERENCES) / 100.0;
+    }
+
+    private double calculateDistanceScore(double pickupDist, double dropoffDist) {
+        return calculateDistanceScore(pickupDist, dropoffDist, MAX_PICKUP_DISTANCE_KM);
+    }
+
+    // Falls linearly from 100 at IDEAL_DISTANCE_KM to 0 at the search radius
+    private double calculateDistanceScore(double pickupDist, double dropoffDist, double radiusKm) {
+        double avgDistance = (pickupDist + dropoffDist) / 2.0;
+
+        if (avgDistance <= IDEAL_DISTANCE_KM) {
+            return 100.0;
+        } else if (avgDistance >= radiusKm) {
+            return 0.0;
+        } else {
+            return 100.0 * (1.0 - (avgDistance - IDEAL_DISTANCE_KM) /
+                    (radiusKm - IDEAL_DISTANCE_KM));
+        }
+    }
+
+    private double calculateTimeScore(long timeDiffMinutes) {
+        if (timeDiffMinutes <= IDEAL_TIME_DIFF_MINUTES) {
+            return 100.0;
+        } else if (timeDiffMinutes >= MAX_TIME_DIFF_MINUTES) {
+            return 0.0;
+        } else {
+            return 100.0 * (1.0 - (double)(timeDiffMinutes - IDEAL_TIME_DIFF_MINUTES) /
+                    (MAX_TIME_DIFF_MINUTES - IDEAL_TIME_DIFF_MINUTES));
+        }
+    }
+
+    private double calculatePriceScore(double maxBudget, double pricePerSeat) {
+        if (maxBudget <= 0) {
+            return 100.0;
+        }
+
+        if (pricePerSeat <= maxBudget * 0.7) {
+            return 100.0;
+        } else if (pricePerSeat <= maxBudget) {
+            return 70.0;
+        } else {
+            return 0.0;
+        }
+    }
+
+    private double calculatePreferenceScore(RideRequest request, RideOffer offer) {
+        return PreferenceMask.score(PreferenceMask.of(request), PreferenceMask.of(offer));
+    }
+}
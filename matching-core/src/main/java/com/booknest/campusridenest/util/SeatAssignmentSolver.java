@@ -0,0 +1,309 @@
+package com.booknest.campusridenest.util;
+
+import com.booknest.campusridenest.model.RideMatch;
+import com.booknest.campusridenest.model.RideOffer;
+import com.booknest.campusridenest.model.RideRequest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Batch assignment of open requests to offer seats.
+ * Each request gets at most one offer and each offer takes at most
+ * {@code seats} riders, maximising the total RideMatchScorer score.
+ *
+ * Solved as a forward auction: an unassigned request bids for the offer with
+ * the best score-minus-price, outbidding that price by its margin over the
+ * next best offer (or staying unassigned) plus epsilon. A full offer drops its
+ * lowest bidder back into the queue, and its price is its lowest winning bid.
+ * Seats of one offer are interchangeable, so they share a single price
+ * instead of being bid up against each other. The result is within
+ * requests × epsilon of the optimal total. Candidate pairs come from an index of
+ * offers by start geohash and departure time, so each request only scores
+ * offers near its pickup and time.
+ */
+public class SeatAssignmentSolver {
+
+    // Score points; smaller is closer to optimal but needs more bids
+    public static final double DEFAULT_EPSILON = 0.01;
+
+    private final RideMatchScorer scorer;
+    private final double epsilon;
+
+    public SeatAssignmentSolver(RideMatchScorer scorer) {
+        this(scorer, DEFAULT_EPSILON);
+    }
+
+    public SeatAssignmentSolver(RideMatchScorer scorer, double epsilon) {
+        this.scorer = scorer;
+        this.epsilon = epsilon;
+    }
+
+    /**
+     * Suggested pairings, one per assigned request, with both {@code offer}
+     * and {@code request} set. Requests left out had no candidate offer or
+     * lost every seat they could take to higher-scoring riders.
+     */
+    public List<RideMatch> assign(List<RideRequest> requests, List<RideOffer> offers) {
+        // 1. Index offers with free seats by start geohash
+        List<RideOffer> seated = new ArrayList<>();
+        for (RideOffer offer : offers) {
+            if (offer.seats > 0 && offer.startLocation != null && offer.endLocation != null) {
+                seated.add(offer);
+            }
+        }
+        OfferIndex index = new OfferIndex(seated);
+
+        // 2. Seats: offer j's riders and their bids live in [slotStart[j], slotStart[j + 1])
+        int offerCount = index.offers.length;
+        int[] slotStart = new int[offerCount + 1];
+        for (int j = 0; j < offerCount; j++) {
+            slotStart[j + 1] = slotStart[j] + index.offers[j].seats;
+        }
+        int[] holder = new int[slotStart[offerCount]];
+        double[] holderBid = new double[slotStart[offerCount]];
+        int[] held = new int[offerCount];
+
+        // Price of an offer: 0 while it has a free seat, then its lowest winning bid
+        double[] price = new double[offerCount];
+
+        // 3. Candidate offers and scores for every request
+        int n = requests.size();
+        int[][] candidateOffers = new int[n][];
+        double[][] candidateScores = new double[n][];
+        MatchScratch scratch = new MatchScratch();
+
+        for (int i = 0; i < n; i++) {
+            findCandidates(requests.get(i), index, scratch, i, candidateOffers, candidateScores);
+        }
+
+        // 4. Auction
+        int[] queue = new int[n];
+        int head = 0;
+        int queued = 0;
+        for (int i = 0; i < n; i++) {
+            if (candidateOffers[i].length > 0) {
+                queue[queued++] = i;
+            }
+        }
+
+        while (queued > 0) {
+            int bidder = queue[head];
+            head = (head + 1) % n;
+            queued--;
+
+            // Best net value and the best from any other offer; staying
+            // unassigned is worth 0
+            int bestOffer = -1;
+            double bestValue = 0.0;
+            double secondValue = 0.0;
+
+            int[] offerIdx = candidateOffers[bidder];
+            double[] scores = candidateScores[bidder];
+            for (int k = 0; k < offerIdx.length; k++) {
+                double value = scores[k] - price[offerIdx[k]];
+                if (value > bestValue) {
+                    secondValue = bestValue;
+                    bestValue = value;
+                    bestOffer = offerIdx[k];
+                } else if (value > secondValue) {
+                    secondValue = value;
+                }
+            }
+
+            if (bestOffer < 0) {
+                // Every offer it could take costs more than it is worth; prices
+                // only rise, so this request stays unassigned
+                continue;
+            }
+
+            double bid = price[bestOffer] + bestValue - secondValue + epsilon;
+            int first = slotStart[bestOffer];
+            int seats = slotStart[bestOffer + 1] - first;
+
+            if (held[bestOffer] < seats) {
+                int slot = first + held[bestOffer]++;
+                holder[slot] = bidder;
+                holderBid[slot] = bid;
+            } else {
+                // Full: the lowest bid loses its seat
+                int lowest = first;
+                for (int s = first + 1; s < first + seats; s++) {
+                    if (holderBid[s] < holderBid[lowest]) {
+                        lowest = s;
+                    }
+                }
+                queue[(head + queued) % n] = holder[lowest];
+                queued++;
+                holder[lowest] = bidder;
+                holderBid[lowest] = bid;
+            }
+
+            if (held[bestOffer] == seats) {
+                double lowestBid = holderBid[first];
+                for (int s = first + 1; s < first + seats; s++) {
+                    lowestBid = Math.min(lowestBid, holderBid[s]);
+                }
+                price[bestOffer] = lowestBid;
+            }
+        }
+
+        // 5. Winning pairs, re-scored for distances and reasons
+        List<RideMatch> assignments = new ArrayList<>();
+        for (int j = 0; j < offerCount; j++) {
+            for (int s = slotStart[j]; s < slotStart[j] + held[j]; s++) {
+                RideRequest request = requests.get(holder[s]);
+                RideMatch match = scorer.scoreMatchAbove(request, index.offers[j], 0.0);
+                if (match != null) {
+                    match.request = request;
+                    assignments.add(match);
+                }
+            }
+        }
+        return assignments;
+    }
+
+    private void findCandidates(RideRequest request, OfferIndex index, MatchScratch scratch,
+                                int i, int[][] candidateOffers, double[][] candidateScores) {
+        if (request.pickupLocation == null || request.dropoffLocation == null) {
+            candidateOffers[i] = new int[0];
+            candidateScores[i] = new double[0];
+            return;
+        }
+
+        int[] offerIdx = new int[8];
+        double[] scores = new double[8];
+        int count = 0;
+
+        List<String> cells = GeoHash.coveringCells(
+                request.pickupLocation.getLatitude(),
+                request.pickupLocation.getLongitude(),
+                RideMatchScorer.MAX_PICKUP_DISTANCE_KM);
+
+        // Departure window the scorer accepts (it truncates the difference to whole minutes)
+        long windowMillis = (RideMatchScorer.MAX_TIME_DIFF_MINUTES + 1) * 60000 - 1;
+        long earliest = request.timeMillis - windowMillis;
+        long latest = request.timeMillis + windowMillis;
+
+        for (String cell : cells) {
+            for (OfferIndex.Bucket bucket : index.bucketsFor(cell)) {
+                int end = bucket.lowerBound(latest + 1);
+                for (int k = bucket.lowerBound(earliest); k < end; k++) {
+                    int j = bucket.offerIdx[k];
+                    if (cell.length() > OfferIndex.BUCKET_PRECISION
+                            && !index.geohashes[j].startsWith(cell)) {
+                        continue;
+                    }
+
+                    // Own offers never match
+                    RideOffer offer = index.offers[j];
+                    if (offer.ownerUid != null && offer.ownerUid.equals(request.ownerUid)) {
+                        continue;
+                    }
+                    if (!scorer.scoreInto(request, offer, 0.0, scratch)) {
+                        continue;
+                    }
+
+                    if (count == offerIdx.length) {
+                        offerIdx = Arrays.copyOf(offerIdx, count * 2);
+                        scores = Arrays.copyOf(scores, count * 2);
+                    }
+                    offerIdx[count] = j;
+                    scores[count] = scratch.score;
+                    count++;
+                }
+            }
+        }
+
+        candidateOffers[i] = Arrays.copyOf(offerIdx, count);
+        candidateScores[i] = Arrays.copyOf(scores, count);
+    }
+
+    /**
+     * Offers bucketed by a coarse start geohash prefix, each bucket sorted by
+     * departure time. A covering cell plus the time window maps to a few
+     * contiguous ranges, the in-memory equivalent of the per-cell Firestore
+     * queries.
+     */
+    private static class OfferIndex {
+        // ~39 x 20 km buckets, coarser than the cells used for a 5 km radius
+        static final int BUCKET_PRECISION = 4;
+
+        final RideOffer[] offers;
+        final String[] geohashes;
+        private final TreeMap<String, Bucket> buckets = new TreeMap<>();
+
+        OfferIndex(List<RideOffer> offers) {
+            int n = offers.size();
+            this.offers = offers.toArray(new RideOffer[0]);
+            this.geohashes = new String[n];
+
+            Map<String, List<Integer>> members = new HashMap<>();
+            for (int j = 0; j < n; j++) {
+                RideOffer offer = this.offers[j];
+                geohashes[j] = GeoHash.encode(offer.startLocation.getLatitude(),
+                        offer.startLocation.getLongitude(), GeoHash.STORAGE_PRECISION);
+
+                String prefix = geohashes[j].substring(0, BUCKET_PRECISION);
+                List<Integer> bucket = members.get(prefix);
+                if (bucket == null) {
+                    bucket = new ArrayList<>();
+                    members.put(prefix, bucket);
+                }
+                bucket.add(j);
+            }
+
+            for (Map.Entry<String, List<Integer>> entry : members.entrySet()) {
+                buckets.put(entry.getKey(), new Bucket(this.offers, entry.getValue()));
+            }
+        }
+
+        /**
+         * Buckets that can hold offers starting in {@code cell}. For cells finer
+         * than a bucket the caller still has to check the geohash prefix.
+         */
+        Collection<Bucket> bucketsFor(String cell) {
+            if (cell.length() < BUCKET_PRECISION) {
+                return buckets.subMap(cell, GeoHash.rangeEnd(cell)).values();
+            }
+            Bucket bucket = buckets.get(cell.substring(0, BUCKET_PRECISION));
+            return bucket == null ? Collections.emptyList() : Collections.singletonList(bucket);
+        }
+
+        static class Bucket {
+            final int[] offerIdx;
+            final long[] timeMillis;
+
+            Bucket(RideOffer[] offers, List<Integer> members) {
+                members.sort((a, b) -> Long.compare(offers[a].timeMillis, offers[b].timeMillis));
+                offerIdx = new int[members.size()];
+                timeMillis = new long[members.size()];
+                for (int k = 0; k < offerIdx.length; k++) {
+                    offerIdx[k] = members.get(k);
+                    timeMillis[k] = offers[offerIdx[k]].timeMillis;
+                }
+            }
+
+            // First position departing at or after time
+            int lowerBound(long time) {
+                int lo = 0;
+                int hi = timeMillis.length;
+                while (lo < hi) {
+                    int mid = (lo + hi) >>> 1;
+                    if (timeMillis[mid] < time) {
+                        lo = mid + 1;
+                    } else {
+                        hi = mid;
+                    }
+                }
+                return lo;
+            }
+        }
+    }
+}
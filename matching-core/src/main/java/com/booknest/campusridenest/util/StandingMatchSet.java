@@ -0,0 +1,136 @@
+package com.booknest.campusridenest.util;
+
+import com.booknest.campusridenest.model.RideMatch;
+import com.booknest.campusridenest.model.RideOffer;
+import com.booknest.campusridenest.model.RideRequest;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Candidates for one request, kept up to date one offer at a time. Feeding
+ * it document changes means only added/modified offers are re-scored to see
+ * whether the matches changed; the top K is selected from an OfferKdTree of
+ * the offers, which scores only those inside the pickup radius and time
+ * window. The pickup radius can widen as a search adds rings of cells;
+ * every offer held is then re-scored against it.
+ */
+public class StandingMatchSet {
+
+    private final RideMatchScorer scorer;
+    private final RideRequest request;
+    private final OfferKdTree tree;
+    private final Map<String, RideOffer> offersById = new HashMap<>();
+
+    // Offers scoring above zero at the current radius
+    private final Set<String> matchedIds = new HashSet<>();
+
+    private final MatchScratch scratch = new MatchScratch();
+    private double radiusKm;
+    @Nullable private MatchStats stats;
+
+    public StandingMatchSet(RideMatchScorer scorer, RideRequest request) {
+        this(scorer, request, RideMatchScorer.MAX_PICKUP_DISTANCE_KM);
+    }
+
+    public StandingMatchSet(RideMatchScorer scorer, RideRequest request, double radiusKm) {
+        this.scorer = scorer;
+        this.request = request;
+        this.tree = new OfferKdTree(scorer);
+        this.radiusKm = radiusKm;
+    }
+
+    /**
+     * Count scoring time and rejects of the following upserts into stats, or stop with null
+     */
+    public void recordInto(@Nullable MatchStats stats) {
+        this.stats = stats;
+    }
+
+    /**
+     * Re-score an added or modified offer.
+     * Returns true if the set of positive-scoring matches changed.
+     */
+    public boolean upsert(RideOffer offer) {
+        if (offer.id == null) {
+            return false;
+        }
+
+        // Own offers never match
+        if (offer.ownerUid != null && offer.ownerUid.equals(request.ownerUid)) {
+            if (stats != null) {
+                stats.ownOffers++;
+            }
+            return false;
+        }
+        // The tree only holds open offers, so closed ones must leave the matches too
+        if (!"open".equals(offer.status)) {
+            return remove(offer.id);
+        }
+        offersById.put(offer.id, offer);
+        tree.upsert(offer);
+        return score(offer);
+    }
+
+    /**
+     * Re-score every offer against a wider pickup radius.
+     * Returns true if the set of positive-scoring matches changed.
+     */
+    public boolean widen(double radiusKm) {
+        if (radiusKm == this.radiusKm) {
+            return false;
+        }
+        this.radiusKm = radiusKm;
+        boolean changed = false;
+        for (RideOffer offer : offersById.values()) {
+            changed |= score(offer);
+        }
+        return changed;
+    }
+
+    private boolean score(RideOffer offer) {
+        long start = System.nanoTime();
+        boolean matched = scorer.scoreInto(request, offer, 0.0, radiusKm, scratch, stats);
+        if (stats != null) {
+            stats.scoreNanos += System.nanoTime() - start;
+        }
+
+        if (!matched) {
+            return matchedIds.remove(offer.id);
+        }
+        // A modified offer that still matches may have moved in the ranking
+        matchedIds.add(offer.id);
+        return true;
+    }
+
+    /**
+     * Drop an offer that left the candidate query (closed, full or deleted)
+     */
+    public boolean remove(String offerId) {
+        if (offersById.remove(offerId) != null) {
+            tree.remove(offerId);
+        }
+        return matchedIds.remove(offerId);
+    }
+
+    public int size() {
+        return matchedIds.size();
+    }
+
+    /**
+     * Current best {@code limit} matches, highest score first
+     */
+    public List<RideMatch> top(int limit) {
+        long start = System.nanoTime();
+        List<RideMatch> matches = tree.topMatches(request, limit, radiusKm);
+        if (stats != null) {
+            stats.sortNanos += System.nanoTime() - start;
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,260 @@
+package com.booknest.campusridenest.util;
+
+import com.booknest.campusridenest.model.LatLon;
+import com.booknest.campusridenest.model.RideOffer;
+import com.booknest.campusridenest.model.RideRequest;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Weekly recurrence for commutes that repeat on the same days. A recurring
+ * post stores its days as a weekday mask and a local departure minute, and
+ * is compared by minute of the week (Monday 00:00 = 0) instead of absolute
+ * time, so a Monday-Friday 8 am commute is posted and matched once. Each
+ * post is read in its own time zone: an 8 am commute stays at 8 am across
+ * daylight saving changes. Index keys are local times too, so lookups assume
+ * the posts share a time zone, as the posts of one campus do.
+ */
+public class TimeOfWeek {
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    public static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+
+    // Index buckets are an hour wide: 168 per week
+    public static final int BUCKET_MINUTES = 60;
+
+    // Day bits of weekdayMask: bit 0 = Monday ... bit 6 = Sunday
+    public static final int WEEKDAYS = 0x1F;
+    public static final int ALL_DAYS = 0x7F;
+
+    /**
+     * The weekdayMask bit of a day
+     */
+    public static int dayBit(DayOfWeek day) {
+        return 1 << (day.getValue() - 1);
+    }
+
+    /**
+     * Zone a post was saved in; UTC when missing or unknown
+     */
+    public static ZoneId zone(@Nullable String timeZone) {
+        if (timeZone == null) {
+            return ZoneOffset.UTC;
+        }
+        try {
+            return ZoneId.of(timeZone);
+        } catch (DateTimeException e) {
+            return ZoneOffset.UTC;
+        }
+    }
+
+    /**
+     * Local minute of the week of an instant
+     */
+    public static int minuteOfWeek(long timeMillis, ZoneId zone) {
+        ZonedDateTime time = Instant.ofEpochMilli(timeMillis).atZone(zone);
+        return (time.getDayOfWeek().getValue() - 1) * MINUTES_PER_DAY
+                + time.getHour() * 60 + time.getMinute();
+    }
+
+    /**
+     * Local minute of the day of an instant, what a recurring post stores
+     */
+    public static int minuteOfDay(long timeMillis, ZoneId zone) {
+        return minuteOfWeek(timeMillis, zone) % MINUTES_PER_DAY;
+    }
+
+    /**
+     * Departures of a post as minutes of the week: one per day in
+     * weekdayMask, or the single departure at timeMillis of a one-off post
+     */
+    public static int[] departures(int weekdayMask, int minuteOfDay, long timeMillis,
+                                   ZoneId zone) {
+        if (weekdayMask == 0) {
+            return new int[]{minuteOfWeek(timeMillis, zone)};
+        }
+        int[] minutes = new int[Integer.bitCount(weekdayMask & ALL_DAYS)];
+        int n = 0;
+        for (int day = 0; day < 7; day++) {
+            if ((weekdayMask & (1 << day)) != 0) {
+                minutes[n++] = day * MINUTES_PER_DAY + minuteOfDay;
+            }
+        }
+        return minutes;
+    }
+
+    public static int[] departures(RideOffer offer) {
+        return departures(offer.weekdayMask, offer.minuteOfDay, offer.timeMillis,
+                zone(offer.timeZone));
+    }
+
+    public static int[] departures(RideRequest request) {
+        return departures(request.weekdayMask, request.minuteOfDay, request.timeMillis,
+                zone(request.timeZone));
+    }
+
+    /**
+     * Minutes between two minutes of the week, wrapping from Sunday to Monday
+     */
+    public static int distance(int a, int b) {
+        int diff = Math.abs(a - b) % MINUTES_PER_WEEK;
+        return Math.min(diff, MINUTES_PER_WEEK - diff);
+    }
+
+    /**
+     * Minutes between the closest departures of a request and an offer.
+     * Two one-off posts are compared by absolute time, as scoreInto does.
+     */
+    public static long minutesApart(RideRequest request, RideOffer offer) {
+        if (request.weekdayMask == 0 && offer.weekdayMask == 0) {
+            return Math.abs(request.timeMillis - offer.timeMillis) / 60000;
+        }
+        int[] requestMinutes = departures(request);
+        int[] offerMinutes = departures(offer);
+        int best = Integer.MAX_VALUE;
+        for (int r : requestMinutes) {
+            for (int o : offerMinutes) {
+                best = Math.min(best, distance(r, o));
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Days of the request (weekdayMask bits) on which the offer departs
+     * within windowMinutes of it
+     */
+    public static int sharedDays(RideRequest request, RideOffer offer, long windowMinutes) {
+        if (request.weekdayMask == 0 && offer.weekdayMask == 0) {
+            return minutesApart(request, offer) <= windowMinutes
+                    ? 1 << (departures(request)[0] / MINUTES_PER_DAY) : 0;
+        }
+        int[] offerMinutes = departures(offer);
+        int mask = 0;
+        for (int r : departures(request)) {
+            for (int o : offerMinutes) {
+                if (distance(r, o) <= windowMinutes) {
+                    mask |= 1 << (r / MINUTES_PER_DAY);
+                    break;
+                }
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Last departure of a post, for dropping one-off posts that have gone by.
+     * Recurring posts never expire on their own.
+     */
+    public static long lastDepartureMillis(int weekdayMask, long timeMillis) {
+        return weekdayMask != 0 ? Long.MAX_VALUE : timeMillis;
+    }
+
+    /**
+     * Index keys of a post: the hour-of-week bucket of each departure joined
+     * with the OD_CELL_PRECISION cell of its start, e.g. "32:dr5r"
+     */
+    public static List<String> weekKeys(int weekdayMask, int minuteOfDay, long timeMillis,
+                                        @Nullable String timeZone,
+                                        double startLat, double startLon) {
+        String cell = GeoHash.encode(startLat, startLon, GeoHash.OD_CELL_PRECISION);
+        Set<String> keys = new LinkedHashSet<>();
+        for (int minute : departures(weekdayMask, minuteOfDay, timeMillis, zone(timeZone))) {
+            keys.add(key(minute / BUCKET_MINUTES, cell));
+        }
+        return new ArrayList<>(keys);
+    }
+
+    /**
+     * The offer's stored keys, or ones derived from its fields for offers
+     * saved before they were stored; null without a start location
+     */
+    @Nullable
+    public static List<String> weekKeys(RideOffer offer) {
+        if (offer.weekKeys != null) {
+            return offer.weekKeys;
+        }
+        LatLon start = offer.startLocation;
+        if (start == null) {
+            return null;
+        }
+        return weekKeys(offer.weekdayMask, offer.minuteOfDay, offer.timeMillis, offer.timeZone,
+                start.getLatitude(), start.getLongitude());
+    }
+
+    /**
+     * The request's stored keys, or ones derived from its pickup for
+     * requests saved before they were stored; null without a pickup
+     */
+    @Nullable
+    public static List<String> weekKeys(RideRequest request) {
+        if (request.weekKeys != null) {
+            return request.weekKeys;
+        }
+        LatLon pickup = request.pickupLocation;
+        if (pickup == null) {
+            return null;
+        }
+        return weekKeys(request.weekdayMask, request.minuteOfDay, request.timeMillis,
+                request.timeZone, pickup.getLatitude(), pickup.getLongitude());
+    }
+
+    /**
+     * Keys covering every offer that departs within windowMinutes of one of
+     * the request's departures and starts within radiusKm of its pickup
+     */
+    public static List<String> searchKeys(RideRequest request, long windowMinutes,
+                                          double radiusKm) {
+        return searchKeys(departures(request), request.pickupLocation, windowMinutes, radiusKm);
+    }
+
+    /**
+     * Keys covering every request that departs within windowMinutes of one of
+     * the offer's departures and picks up within radiusKm of its start
+     */
+    public static List<String> searchKeys(RideOffer offer, long windowMinutes, double radiusKm) {
+        return searchKeys(departures(offer), offer.startLocation, windowMinutes, radiusKm);
+    }
+
+    private static List<String> searchKeys(int[] departures, @Nullable LatLon center,
+                                           long windowMinutes, double radiusKm) {
+        List<String> keys = new ArrayList<>();
+        if (center == null) {
+            return keys;
+        }
+        List<String> cells = GeoHash.cellsWithin(center.getLatitude(), center.getLongitude(),
+                radiusKm, GeoHash.OD_CELL_PRECISION);
+
+        int bucketsPerWeek = MINUTES_PER_WEEK / BUCKET_MINUTES;
+        Set<Integer> buckets = new LinkedHashSet<>();
+        for (int minute : departures) {
+            int first = Math.floorDiv(minute - (int) windowMinutes, BUCKET_MINUTES);
+            int last = Math.floorDiv(minute + (int) windowMinutes, BUCKET_MINUTES);
+            for (int bucket = first; bucket <= last; bucket++) {
+                buckets.add(Math.floorMod(bucket, bucketsPerWeek));
+            }
+        }
+
+        for (int bucket : buckets) {
+            for (String cell : cells) {
+                keys.add(key(bucket, cell));
+            }
+        }
+        return keys;
+    }
+
+    private static String key(int bucket, String cell) {
+        return bucket + ":" + cell;
+    }
+}
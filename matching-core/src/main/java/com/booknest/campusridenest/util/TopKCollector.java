@@ -0,0 +1,145 @@
+package com.booknest.campusridenest.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the K highest-scoring items seen so far in a bounded min-heap.
+ * Memory stays O(K) and each offer costs O(log K), so the full candidate
+ * list never has to be materialized or sorted.
+ */
+public class TopKCollector<T> {
+
+    private final int capacity;
+    private final double[] scores;
+    private final Object[] items;
+    private int size;
+
+    public TopKCollector(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive: " + k);
+        }
+        this.capacity = k;
+        this.scores = new double[k];
+        this.items = new Object[k];
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * Score a new item has to beat to enter the top K.
+     * Negative infinity until the collector is full.
+     */
+    public double threshold() {
+        return isFull() ? scores[0] : Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Offer an item; returns true if it was kept
+     */
+    public boolean offer(T item, double score) {
+        if (size < capacity) {
+            scores[size] = score;
+            items[size] = item;
+            siftUp(size++);
+            return true;
+        }
+        if (score <= scores[0]) {
+            return false;
+        }
+        scores[0] = score;
+        items[0] = item;
+        siftDown(0);
+        return true;
+    }
+
+    /**
+     * Merge another collector's items into this one
+     */
+    public void addAll(TopKCollector<? extends T> other) {
+        for (int i = 0; i < other.size; i++) {
+            @SuppressWarnings("unchecked")
+            T item = (T) other.items[i];
+            offer(item, other.scores[i]);
+        }
+    }
+
+    /**
+     * Items ordered by score, highest first. Leaves the collector unchanged.
+     */
+    public List<T> toSortedList() {
+        int n = size;
+        double[] heapScores = scores.clone();
+        Object[] heapItems = items.clone();
+
+        Object[] sorted = new Object[n];
+        for (int i = n - 1; i >= 0; i--) {
+            sorted[i] = items[0];
+            // Pop the current minimum into the tail
+            size--;
+            scores[0] = scores[size];
+            items[0] = items[size];
+            items[size] = null;
+            siftDown(0);
+        }
+
+        System.arraycopy(heapScores, 0, scores, 0, n);
+        System.arraycopy(heapItems, 0, items, 0, n);
+        size = n;
+
+        List<T> result = new ArrayList<>(n);
+        for (Object item : sorted) {
+            @SuppressWarnings("unchecked")
+            T typed = (T) item;
+            result.add(typed);
+        }
+        return result;
+    }
+
+    private void siftUp(int index) {
+        double score = scores[index];
+        Object item = items[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (scores[parent] <= score) {
+                break;
+            }
+            scores[index] = scores[parent];
+            items[index] = items[parent];
+            index = parent;
+        }
+        scores[index] = score;
+        items[index] = item;
+    }
+
+    private void siftDown(int index) {
+        double score = scores[index];
+        Object item = items[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && scores[right] < scores[child]) {
+                child = right;
+            }
+            if (score <= scores[child]) {
+                break;
+            }
+            scores[index] = scores[child];
+            items[index] = items[child];
+            index = child;
+        }
+        scores[index] = score;
+        items[index] = item;
+    }
+}
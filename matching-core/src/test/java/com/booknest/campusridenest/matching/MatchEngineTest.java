@@ -0,0 +1,211 @@
+package com.booknest.campusridenest.matching;
+
+import com.booknest.campusridenest.model.LatLon;
+import com.booknest.campusridenest.model.RideMatch;
+import com.booknest.campusridenest.model.RideOffer;
+import com.booknest.campusridenest.model.RideRequest;
+import com.booknest.campusridenest.util.GeoHash;
+import com.booknest.campusridenest.util.GeoUtils;
+import com.booknest.campusridenest.util.OfferSnapshot;
+import com.booknest.campusridenest.util.RideMatchScorer;
+import com.booknest.campusridenest.util.TestPosts;
+import com.booknest.campusridenest.util.TimeOfWeek;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static com.booknest.campusridenest.util.MatchAssertions.assertSameMatches;
+import static org.junit.Assert.*;
+
+/**
+ * MatchEngine's search helpers and flows over posts in memory.
+ */
+public class MatchEngineTest {
+
+    // A campus and a town about 25 km away, the two ends of most trips
+    private static final LatLon TOWN = new LatLon(40.95, -77.75);
+
+    private final RideMatchScorer scorer = new RideMatchScorer();
+
+    @Test
+    public void searchRings_coverEachRadiusToItsEdge() {
+        Random random = new Random(20);
+        for (int i = 0; i < 20000; i++) {
+            LatLon center = TestPosts.randomCenter(random);
+            List<List<String>> rings = MatchEngine.searchRings(center);
+
+            Set<String> searched = new HashSet<>();
+            for (int ring = 0; ring < rings.size(); ring++) {
+                for (String cell : rings.get(ring)) {
+                    assertTrue("cell in two rings: " + cell, searched.add(cell));
+                }
+
+                double radiusKm = MatchEngine.searchRadiusKm(ring);
+                LatLon point = TestPosts.edgePoint(random, center, radiusKm);
+                if (GeoUtils.distanceWithin(center, point, radiusKm) > radiusKm) {
+                    continue;
+                }
+                String cell = GeoHash.encode(point.getLatitude(), point.getLongitude(),
+                        MatchEngine.SEARCH_CELL_PRECISION);
+                assertTrue(center + " ring " + ring + " missed " + point,
+                        searched.contains(cell));
+            }
+        }
+    }
+
+    @Test
+    public void findOriginDestinationMatches_matchesFullScan() throws Exception {
+        Random random = new Random(21);
+        List<RideOffer> offers = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            offers.add(randomOffer(random, "o" + i));
+        }
+        MatchEngine engine = new MatchEngine(
+                new InMemoryCandidateSource(offers, Collections.emptyList()));
+
+        for (int i = 0; i < 300; i++) {
+            RideRequest request = randomRequest(random, "r" + i);
+
+            OfferSnapshot all = new OfferSnapshot(offers.size());
+            for (RideOffer offer : offers) {
+                if (!request.ownerUid.equals(offer.ownerUid)) {
+                    all.add(offer);
+                }
+            }
+            List<RideMatch> expected = scorer.topMatches(request, all, 10);
+            List<RideMatch> actual = engine.findOriginDestinationMatches(request, 10);
+
+            assertSameMatches("request " + i, expected, actual, 10);
+        }
+    }
+
+    @Test
+    public void streamMatchesForRequest_pagesToTheOneShotMatches() throws Exception {
+        Random random = new Random(23);
+        List<RideOffer> offers = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            RideOffer offer = randomOffer(random, "o" + i);
+            // Runs of equal start geohashes, so the cursor has to break ties by id
+            if (i % 10 == 0) {
+                offer.startLocation = TestPosts.CAMPUS;
+            }
+            offers.add(offer);
+        }
+        MatchEngine engine = new MatchEngine(
+                new InMemoryCandidateSource(offers, Collections.emptyList()));
+
+        int paged = 0;
+        for (int i = 0; i < 200; i++) {
+            RideRequest request = randomRequest(random, "r" + i);
+            int pageSize = 1 + random.nextInt(20);
+
+            List<List<RideMatch>> partials = new ArrayList<>();
+            List<RideMatch> streamed = engine.streamMatchesForRequest(request, 10, pageSize,
+                    partial -> {
+                        partials.add(partial);
+                        return true;
+                    });
+
+            String message = "request " + i;
+            assertSameMatches(message, engine.findMatchesForRequest(request, 10), streamed, 10);
+            for (List<RideMatch> partial : partials) {
+                assertTrue(message, partial.size() <= 10);
+            }
+            paged += partials.size() > 1 ? 1 : 0;
+
+            // Stopping after the first page returns that page's matches
+            if (!partials.isEmpty()) {
+                List<RideMatch> stopped = engine.streamMatchesForRequest(request, 10, pageSize,
+                        partial -> false);
+                assertEquals(message, partials.get(0).size(), stopped.size());
+                for (int k = 0; k < stopped.size(); k++) {
+                    assertEquals(message, partials.get(0).get(k).matchScore,
+                            stopped.get(k).matchScore, 1e-9);
+                }
+            }
+        }
+        assertTrue(paged > 0);
+    }
+
+    @Test
+    public void findMatchesForOffer_findsOneOffRidersOnLaterRecurringDays() throws Exception {
+        // NOW is a Thursday 08:53 UTC; the offer leaves at 09:00 every weekday from today
+        long thursday = TestPosts.NOW + 400_000L;
+        long day = 24 * 60 * 60000L;
+        List<RideRequest> requests = Arrays.asList(
+                oneOffRequest("today", "rider1", thursday + 20 * 60000L),
+                oneOffRequest("tuesday", "rider2", thursday + 5 * day + 15 * 60000L),
+                oneOffRequest("nextThursday", "rider3", thursday + 7 * day),
+                oneOffRequest("saturday", "rider4", thursday + 2 * day),
+                oneOffRequest("lastTuesday", "rider5", thursday - 2 * day),
+                oneOffRequest("own", "driver", thursday + day));
+        MatchEngine engine = new MatchEngine(
+                new InMemoryCandidateSource(Collections.emptyList(), requests));
+
+        RideOffer weekdays = TestPosts.offer("o", "driver", thursday,
+                TestPosts.CAMPUS, TestPosts.CAMPUS);
+        weekdays.seats = 3;
+        weekdays.weekdayMask = TimeOfWeek.WEEKDAYS;
+        weekdays.minuteOfDay = 9 * 60;
+        weekdays.timeZone = "UTC";
+        assertEquals(Arrays.asList("nextThursday", "today", "tuesday"),
+                requestIds(engine.findMatchesForOffer(weekdays, 10, TestPosts.NOW)));
+
+        // A one-off offer still takes only the riders around its departure
+        RideOffer once = TestPosts.offer("o", "driver", thursday,
+                TestPosts.CAMPUS, TestPosts.CAMPUS);
+        once.seats = 3;
+        assertEquals(Collections.singletonList("today"),
+                requestIds(engine.findMatchesForOffer(once, 10, TestPosts.NOW)));
+    }
+
+    private static RideRequest oneOffRequest(String id, String ownerUid, long timeMillis) {
+        RideRequest request = TestPosts.request(id, ownerUid, timeMillis,
+                TestPosts.CAMPUS, TestPosts.CAMPUS);
+        request.seats = 1;
+        request.timeZone = "UTC";
+        return request;
+    }
+
+    // Request ids of the matches, sorted, each once per match
+    private static List<String> requestIds(List<RideMatch> matches) {
+        List<String> ids = new ArrayList<>();
+        for (RideMatch match : matches) {
+            ids.add(match.request.id);
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    // Trips between campus and town, either way
+    private static RideOffer randomOffer(Random random, String id) {
+        String owner = "driver" + random.nextInt(40);
+        long time = TestPosts.NOW + (random.nextInt(480) - 240) * 60000L;
+        boolean outbound = random.nextBoolean();
+        LatLon start = TestPosts.near(random, outbound ? TestPosts.CAMPUS : TOWN, 0.06);
+        LatLon end = TestPosts.near(random, outbound ? TOWN : TestPosts.CAMPUS, 0.06);
+        RideOffer offer = TestPosts.offer(id, owner, time, start, end);
+        offer.seats = 1 + random.nextInt(3);
+        offer.pricePerSeat = random.nextInt(20);
+        return offer;
+    }
+
+    private static RideRequest randomRequest(Random random, String id) {
+        String owner = "driver" + random.nextInt(40);
+        long time = TestPosts.NOW + (random.nextInt(240) - 120) * 60000L;
+        boolean outbound = random.nextBoolean();
+        LatLon pickup = TestPosts.near(random, outbound ? TestPosts.CAMPUS : TOWN, 0.05);
+        LatLon dropoff = TestPosts.near(random, outbound ? TOWN : TestPosts.CAMPUS, 0.05);
+        RideRequest request = TestPosts.request(id, owner, time, pickup, dropoff);
+        request.seats = 1;
+        request.maxBudget = 5 + random.nextInt(15);
+        return request;
+    }
+}
@@ -0,0 +1,69 @@
+package com.booknest.campusridenest.util;
+
+import com.booknest.campusridenest.model.LatLon;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that geohash covers hold every point the scorer accepts, down to
+ * points just inside the radius.
+ */
+public class GeoHashTest {
+
+    private static final double[] RADII_KM = {2.5, 5.0, 10.0, 15.0};
+
+    @Test
+    public void coveringCells_containPointsOnTheRadiusEdge() {
+        Random random = new Random(1);
+        for (int i = 0; i < 50000; i++) {
+            LatLon center = TestPosts.randomCenter(random);
+            double radiusKm = RADII_KM[random.nextInt(RADII_KM.length)];
+            LatLon point = TestPosts.edgePoint(random, center, radiusKm);
+            if (!accepted(center, point, radiusKm)) {
+                continue;
+            }
+
+            List<String> cells = GeoHash.coveringCells(center.getLatitude(),
+                    center.getLongitude(), radiusKm);
+            String geohash = GeoHash.encode(point.getLatitude(), point.getLongitude(),
+                    GeoHash.STORAGE_PRECISION);
+            boolean covered = false;
+            for (String cell : cells) {
+                covered |= geohash.startsWith(cell);
+            }
+            assertTrue(center + " r=" + radiusKm + " missed " + point, covered);
+        }
+    }
+
+    @Test
+    public void odKeys_containTripsOnTheRadiusEdge() {
+        Random random = new Random(2);
+        double radiusKm = RideMatchScorer.MAX_PICKUP_DISTANCE_KM;
+        for (int i = 0; i < 50000; i++) {
+            LatLon pickup = TestPosts.randomCenter(random);
+            double tripKm = 20.0 + random.nextDouble() * 80.0;
+            LatLon dropoff = TestPosts.edgePoint(random, pickup, tripKm);
+            LatLon start = TestPosts.edgePoint(random, pickup, radiusKm);
+            LatLon end = TestPosts.edgePoint(random, dropoff, radiusKm);
+            if (!accepted(pickup, start, radiusKm) || !accepted(dropoff, end, radiusKm)) {
+                continue;
+            }
+
+            List<String> keys = GeoHash.odKeys(pickup.getLatitude(), pickup.getLongitude(),
+                    dropoff.getLatitude(), dropoff.getLongitude(), radiusKm);
+            String key = GeoHash.odKey(start.getLatitude(), start.getLongitude(),
+                    end.getLatitude(), end.getLongitude());
+            assertTrue(pickup + " -> " + dropoff + " missed " + key, keys.contains(key));
+        }
+    }
+
+    // Whether the scorer would take the point as within the radius
+    private static boolean accepted(LatLon center, LatLon point, double radiusKm) {
+        return GeoUtils.distanceWithin(center, point, radiusKm) <= radiusKm;
+    }
+}
@@ -0,0 +1,85 @@
+package com.booknest.campusridenest.util;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the distanceWithin fast path against the exact haversine distance.
+ */
+public class GeoUtilsTest {
+
+    private static final double RADIUS_KM = 5.0;
+
+    // Largest error allowed for an approximated distance (1 m)
+    private static final double MAX_ERROR_KM = 0.001;
+
+    @Test
+    public void distanceWithin_matchesHaversineDecisionAndErrorBound() {
+        Random random = new Random(42);
+        double worstError = 0.0;
+
+        for (int i = 0; i < 200_000; i++) {
+            double lat1 = -70 + random.nextDouble() * 140;
+            double lon1 = -180 + random.nextDouble() * 360;
+            // Mix of points inside, near and well outside the radius
+            double spread = random.nextInt(3) == 0 ? 0.5 : 0.08;
+            double lat2 = lat1 + (random.nextDouble() - 0.5) * spread;
+            double lon2 = lon1 + (random.nextDouble() - 0.5) * spread;
+
+            double exact = GeoUtils.calculateDistance(lat1, lon1, lat2, lon2);
+            double fast = GeoUtils.distanceWithin(lat1, lon1, lat2, lon2, RADIUS_KM);
+
+            if (exact <= RADIUS_KM) {
+                assertNotEquals("rejected a point inside the radius", Double.MAX_VALUE, fast, 0.0);
+                worstError = Math.max(worstError, Math.abs(fast - exact));
+            } else {
+                assertEquals("accepted a point outside the radius", Double.MAX_VALUE, fast, 0.0);
+            }
+        }
+
+        assertTrue("worst error " + worstError + " km", worstError <= MAX_ERROR_KM);
+    }
+
+    @Test
+    public void distanceWithin_nearThresholdUsesExactDistance() {
+        // Due east of the HUB, roughly 4.99 km and 5.01 km away
+        double lat = 40.7967;
+        double lon = -77.8617;
+        double degreesPerKm = 1.0 / (111.195 * Math.cos(Math.toRadians(lat)));
+
+        double inside = lon + 4.99 * degreesPerKm;
+        double outside = lon + 5.01 * degreesPerKm;
+
+        assertEquals(GeoUtils.calculateDistance(lat, lon, lat, inside),
+                GeoUtils.distanceWithin(lat, lon, lat, inside, RADIUS_KM), 0.0);
+        assertEquals(Double.MAX_VALUE,
+                GeoUtils.distanceWithin(lat, lon, lat, outside, RADIUS_KM), 0.0);
+    }
+
+    @Test
+    public void distanceWithin_rejectsDistantCitiesAndHandlesAntimeridian() {
+        // Campus to Philadelphia and Pittsburgh
+        assertEquals(Double.MAX_VALUE,
+                GeoUtils.distanceWithin(40.7982, -77.8599, 39.9526, -75.1652, RADIUS_KM), 0.0);
+        assertEquals(Double.MAX_VALUE,
+                GeoUtils.distanceWithin(40.7982, -77.8599, 40.4406, -79.9959, RADIUS_KM), 0.0);
+
+        double exact = GeoUtils.calculateDistance(10.0, 179.99, 10.0, -179.99);
+        assertEquals(exact, GeoUtils.distanceWithin(10.0, 179.99, 10.0, -179.99, RADIUS_KM),
+                MAX_ERROR_KM);
+    }
+
+    @Test
+    public void distanceWithin_rejectsByLongitudeAlone() {
+        // Same latitude, about 84 km apart: the box rejects it before any approximation
+        assertEquals(Double.MAX_VALUE,
+                GeoUtils.distanceWithin(40.7967, -77.8617, 40.7967, -76.8617, RADIUS_KM), 0.0);
+
+        // Near the pole a degree of longitude is short, so the box must not reject
+        double exact = GeoUtils.calculateDistance(89.99, 0.0, 89.99, 10.0);
+        assertEquals(exact, GeoUtils.distanceWithin(89.99, 0.0, 89.99, 10.0, RADIUS_KM), 0.001);
+    }
+}
@@ -0,0 +1,44 @@
+package com.booknest.campusridenest.util;
+
+import com.booknest.campusridenest.model.RideMatch;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Comparisons of ranked match lists from two ways of searching the same
+ * offers.
+ */
+public final class MatchAssertions {
+
+    private MatchAssertions() {
+    }
+
+    /**
+     * Same scores rank by rank, and the same offers except where a tie at
+     * the last place may keep either
+     */
+    public static void assertSameMatches(String message, List<RideMatch> expected,
+                                         List<RideMatch> actual, int limit) {
+        assertEquals(message, expected.size(), actual.size());
+        for (int k = 0; k < expected.size(); k++) {
+            assertEquals(message, expected.get(k).matchScore, actual.get(k).matchScore, 1e-9);
+        }
+        double cutoff = expected.size() == limit
+                ? expected.get(limit - 1).matchScore : Double.NEGATIVE_INFINITY;
+        assertEquals(message, idsAbove(expected, cutoff), idsAbove(actual, cutoff));
+    }
+
+    private static Set<String> idsAbove(List<RideMatch> matches, double cutoff) {
+        Set<String> ids = new HashSet<>();
+        for (RideMatch match : matches) {
+            if (match.matchScore > cutoff + 1e-9) {
+                ids.add(match.offer.id);
+            }
+        }
+        return ids;
+    }
+}
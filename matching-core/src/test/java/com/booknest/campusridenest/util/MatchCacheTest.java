@@ -0,0 +1,131 @@
+package com.booknest.campusridenest.util;
+
+import com.booknest.campusridenest.model.LatLon;
+import com.booknest.campusridenest.model.RideMatch;
+import com.booknest.campusridenest.model.RideOffer;
+import com.booknest.campusridenest.model.RideRequest;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Keys, eviction, expiry and listener invalidation of MatchCache.
+ */
+public class MatchCacheTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    @Test
+    public void get_keepsSearchesSeparate() {
+        MatchCache cache = new MatchCache(8, HOUR);
+        RideRequest request = request("r1", 40.7967);
+        cache.put(MatchCache.SEARCH_LIVE, request, 5, matches(1), versions("o1", 1L));
+
+        assertEquals(1, cache.get(MatchCache.SEARCH_LIVE, request, 5).size());
+        assertNull(cache.get(MatchCache.SEARCH_WIDENING, request, 5));
+        assertNull(cache.get(MatchCache.SEARCH_LIVE, request, 10));
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsed() {
+        MatchCache cache = new MatchCache(2, HOUR);
+        RideRequest first = request("r1", 40.7967);
+        RideRequest second = request("r2", 40.8067);
+        RideRequest third = request("r3", 40.8167);
+        cache.put(MatchCache.SEARCH_LIVE, first, 5, matches(1), versions("o1", 1L));
+        cache.put(MatchCache.SEARCH_LIVE, second, 5, matches(1), versions("o1", 1L));
+
+        // Reading the first entry makes the second the eldest
+        assertNotNull(cache.get(MatchCache.SEARCH_LIVE, first, 5));
+        cache.put(MatchCache.SEARCH_LIVE, third, 5, matches(1), versions("o1", 1L));
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(MatchCache.SEARCH_LIVE, first, 5));
+        assertNull(cache.get(MatchCache.SEARCH_LIVE, second, 5));
+        assertNotNull(cache.get(MatchCache.SEARCH_LIVE, third, 5));
+    }
+
+    @Test
+    public void get_dropsEntriesPastMaxAge() throws InterruptedException {
+        MatchCache cache = new MatchCache(8, 20);
+        RideRequest request = request("r1", 40.7967);
+        cache.put(MatchCache.SEARCH_LIVE, request, 5, matches(1), versions("o1", 1L));
+        assertNotNull(cache.get(MatchCache.SEARCH_LIVE, request, 5));
+
+        Thread.sleep(50);
+
+        assertNull(cache.get(MatchCache.SEARCH_LIVE, request, 5));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void onOfferChanged_dropsEntriesThatScoredTheOffer() {
+        MatchCache cache = new MatchCache(8, HOUR);
+        RideRequest request = request("r1", 40.7967);
+        cache.put(MatchCache.SEARCH_LIVE, request, 5, matches(1), versions("o1", 1L));
+
+        // Same version: nothing changed
+        cache.onOfferChanged("o1", offer("o1", 1L, 40.7967));
+        assertNotNull(cache.get(MatchCache.SEARCH_LIVE, request, 5));
+
+        cache.onOfferChanged("o1", offer("o1", 2L, 40.7967));
+        assertNull(cache.get(MatchCache.SEARCH_LIVE, request, 5));
+
+        cache.put(MatchCache.SEARCH_LIVE, request, 5, matches(1), versions("o1", 2L));
+        cache.onOfferChanged("o1", null);
+        assertNull(cache.get(MatchCache.SEARCH_LIVE, request, 5));
+    }
+
+    @Test
+    public void onOfferChanged_dropsEntriesThatSearchedTheNewOffersCell() {
+        MatchCache cache = new MatchCache(8, HOUR);
+        RideRequest request = request("r1", 40.7967);
+        String cell = GeoHash.encode(40.7967, -77.8617, 5);
+        cache.put(MatchCache.SEARCH_WIDENING, request, 5, matches(1), versions("o1", 1L),
+                Collections.singletonList(cell));
+
+        // A new offer far outside the searched cell, and a removal of an unknown offer
+        cache.onOfferChanged("o2", offer("o2", 1L, 41.5));
+        cache.onOfferChanged("o3", null);
+        assertNotNull(cache.get(MatchCache.SEARCH_WIDENING, request, 5));
+
+        cache.onOfferChanged("o4", offer("o4", 1L, 40.7967));
+        assertNull(cache.get(MatchCache.SEARCH_WIDENING, request, 5));
+    }
+
+    private static RideRequest request(String id, double lat) {
+        RideRequest request = TestPosts.request(id, "rider", TestPosts.NOW,
+                new LatLon(lat, -77.8617), new LatLon(40.9, -77.8617));
+        request.maxBudget = 10;
+        return request;
+    }
+
+    private static RideOffer offer(String id, Object updatedAt, double startLat) {
+        RideOffer offer = TestPosts.offer(id, "driver", TestPosts.NOW,
+                new LatLon(startLat, -77.8617), TestPosts.CAMPUS);
+        offer.updatedAt = updatedAt;
+        offer.startGeohash = GeoHash.encode(startLat, -77.8617, GeoHash.STORAGE_PRECISION);
+        return offer;
+    }
+
+    private static List<RideMatch> matches(int count) {
+        List<RideMatch> matches = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            matches.add(new RideMatch(null, 50.0 - i, 0.0, 0.0, 0, null));
+        }
+        return matches;
+    }
+
+    private static Map<String, Object> versions(String offerId, Object updatedAt) {
+        Map<String, Object> versions = new HashMap<>();
+        versions.put(offerId, updatedAt);
+        return versions;
+    }
+}
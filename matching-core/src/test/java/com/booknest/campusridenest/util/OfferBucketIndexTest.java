@@ -0,0 +1,99 @@
+package com.booknest.campusridenest.util;
+
+import com.booknest.campusridenest.model.RideMatch;
+import com.booknest.campusridenest.model.RideOffer;
+import com.booknest.campusridenest.model.RideRequest;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.booknest.campusridenest.util.MatchAssertions.assertSameMatches;
+import static com.booknest.campusridenest.util.TestPosts.CAMPUS;
+import static com.booknest.campusridenest.util.TestPosts.NOW;
+import static org.junit.Assert.*;
+
+/**
+ * The bucket index against the snapshot kernel run over every offer.
+ */
+public class OfferBucketIndexTest {
+
+    // Departure gaps either side of what the scorer accepts (it truncates to whole minutes)
+    private static final long[] EDGE_GAPS_MILLIS = {
+            119 * 60000L, 120 * 60000L, 121 * 60000L - 1, 121 * 60000L, 121 * 60000L + 1};
+
+    private final RideMatchScorer scorer = new RideMatchScorer();
+
+    @Test
+    public void topMatches_equalTheKernelOverAllOffers() {
+        Random random = new Random(19);
+        List<RideOffer> offers = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            long time = NOW + (random.nextInt(480) - 240) * 60000L;
+            if (random.nextBoolean()) {
+                long gap = EDGE_GAPS_MILLIS[random.nextInt(EDGE_GAPS_MILLIS.length)];
+                time = NOW + (random.nextBoolean() ? gap : -gap);
+            }
+            // Drivers that are also riders, so own offers turn up in the window
+            RideOffer offer = TestPosts.offer("o" + i, "user" + random.nextInt(20), time,
+                    TestPosts.near(random, CAMPUS, 0.05), TestPosts.near(random, CAMPUS, 0.05));
+            offer.seats = 1 + random.nextInt(3);
+            offer.pricePerSeat = random.nextInt(20);
+            offers.add(offer);
+        }
+        OfferBucketIndex index = new OfferBucketIndex(scorer, offers);
+        assertEquals(offers.size(), index.size());
+
+        int withOwnOffers = 0;
+        for (int i = 0; i < 300; i++) {
+            RideRequest request = TestPosts.request("r" + i, "user" + random.nextInt(20), NOW,
+                    TestPosts.near(random, CAMPUS, 0.04), TestPosts.near(random, CAMPUS, 0.04));
+            request.seats = 1;
+            request.maxBudget = random.nextInt(4) == 0 ? 0 : 5 + random.nextInt(15);
+            int limit = 1 + random.nextInt(15);
+
+            OfferSnapshot others = new OfferSnapshot(offers.size());
+            for (RideOffer offer : offers) {
+                if (!request.ownerUid.equals(offer.ownerUid)) {
+                    others.add(offer);
+                }
+            }
+            withOwnOffers += offers.size() - others.size() > 0 ? 1 : 0;
+
+            List<RideMatch> expected = scorer.topMatches(request, others, limit);
+            List<RideMatch> actual = index.topMatches(request, limit);
+
+            String message = "request " + i;
+            assertSameMatches(message, expected, actual, limit);
+            for (RideMatch match : actual) {
+                assertNotEquals(message, request.ownerUid, match.offer.ownerUid);
+            }
+        }
+        assertTrue(withOwnOffers > 0);
+    }
+
+    @Test
+    public void topMatches_keepDeparturesUpToTheLastAcceptedMillisecond() {
+        List<RideOffer> offers = new ArrayList<>();
+        for (long gap : EDGE_GAPS_MILLIS) {
+            offers.add(TestPosts.offer("late" + gap, "driver", NOW + gap, CAMPUS, CAMPUS));
+            offers.add(TestPosts.offer("early" + gap, "driver", NOW - gap, CAMPUS, CAMPUS));
+        }
+        OfferBucketIndex index = new OfferBucketIndex(scorer, offers);
+        RideRequest request = TestPosts.request("r", "rider", NOW, CAMPUS, CAMPUS);
+
+        List<RideMatch> matches = index.topMatches(request, offers.size());
+        List<String> ids = new ArrayList<>();
+        for (RideMatch match : matches) {
+            ids.add(match.offer.id);
+        }
+
+        for (long gap : EDGE_GAPS_MILLIS) {
+            boolean accepted = gap < 121 * 60000L;
+            assertEquals("late by " + gap, accepted, ids.contains("late" + gap));
+            assertEquals("early by " + gap, accepted, ids.contains("early" + gap));
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.booknest.campusridenest.util;
+
+import com.booknest.campusridenest.model.LatLon;
+import com.booknest.campusridenest.model.RideMatch;
+import com.booknest.campusridenest.model.RideOffer;
+import com.booknest.campusridenest.model.RideRequest;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static com.booknest.campusridenest.util.TestPosts.NOW;
+import static org.junit.Assert.*;
+
+/**
+ * Compares OfferKdTree after random upserts and removals against a full
+ * scan of the same offers.
+ */
+public class OfferKdTreeTest {
+
+    private static final LatLon START = new LatLon(40.79, -77.86);
+    private static final LatLon END = new LatLon(40.95, -77.75);
+    private static final long WINDOW_MILLIS =
+            (RideMatchScorer.MAX_TIME_DIFF_MINUTES + 1) * 60000 - 1;
+
+    private final RideMatchScorer scorer = new RideMatchScorer();
+
+    @Test
+    public void topMatchesAndOffersNear_matchFullScanAfterUpdates() {
+        Random random = new Random(22);
+        OfferKdTree tree = new OfferKdTree(scorer);
+
+        // What the tree should hold: open offers by id
+        Map<String, RideOffer> live = new LinkedHashMap<>();
+
+        for (int step = 0; step < 3000; step++) {
+            String id = "o" + random.nextInt(400);
+            RideOffer current = live.get(id);
+            int action = random.nextInt(10);
+            if (action < 2) {
+                tree.remove(id);
+                live.remove(id);
+            } else if (action < 4 && current != null) {
+                // Seats or price changed in place, or the offer filled up
+                RideOffer copy = current.copy(id);
+                copy.seats = random.nextInt(4);
+                copy.pricePerSeat = random.nextInt(20);
+                copy.status = copy.seats == 0 ? "full" : "open";
+                upsert(tree, live, copy);
+            } else if (action < 5 && step % 7 == 0) {
+                // A listener's first snapshot arrives as one batch
+                List<RideOffer> batch = new ArrayList<>();
+                for (int i = 0; i < 80; i++) {
+                    RideOffer offer = randomOffer(random, "b" + random.nextInt(200));
+                    batch.add(offer);
+                    live.put(offer.id, offer);
+                }
+                tree.upsertAll(batch);
+            } else {
+                upsert(tree, live, randomOffer(random, id));
+            }
+
+            if (step % 50 == 0) {
+                assertEquals(live.size(), tree.size());
+                for (int i = 0; i < 5; i++) {
+                    RideRequest request = randomRequest(random);
+                    double radiusKm = i == 0 ? 15.0 : RideMatchScorer.MAX_PICKUP_DISTANCE_KM;
+                    checkTopMatches(tree, live, request, radiusKm);
+                    checkOffersNear(tree, live, request, radiusKm);
+                }
+            }
+        }
+    }
+
+    private void checkTopMatches(OfferKdTree tree, Map<String, RideOffer> live,
+                                 RideRequest request, double radiusKm) {
+        OfferSnapshot snapshot = new OfferSnapshot(live.size());
+        for (RideOffer offer : live.values()) {
+            if (!request.ownerUid.equals(offer.ownerUid)) {
+                snapshot.add(offer);
+            }
+        }
+        List<RideMatch> expected = scorer.topMatches(request, snapshot, 10, radiusKm);
+        List<RideMatch> actual = tree.topMatches(request, 10, radiusKm);
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).matchScore, actual.get(i).matchScore, 1e-9);
+            assertFalse("own offer", request.ownerUid.equals(actual.get(i).offer.ownerUid));
+            assertSame(live.get(actual.get(i).offer.id), actual.get(i).offer);
+        }
+    }
+
+    private static void checkOffersNear(OfferKdTree tree, Map<String, RideOffer> live,
+                                        RideRequest request, double radiusKm) {
+        LatLon pickup = request.pickupLocation;
+        long earliest = request.timeMillis - WINDOW_MILLIS;
+        long latest = request.timeMillis + WINDOW_MILLIS;
+        List<RideOffer> near = tree.offersNear(pickup.getLatitude(), pickup.getLongitude(),
+                radiusKm, earliest, latest);
+
+        Set<String> ids = new HashSet<>();
+        for (RideOffer offer : near) {
+            assertTrue("returned twice: " + offer.id, ids.add(offer.id));
+            assertSame(live.get(offer.id), offer);
+            assertTrue(offer.timeMillis >= earliest && offer.timeMillis <= latest);
+            // A bounding box, so corners reach a little past the radius
+            assertTrue(GeoUtils.calculateDistance(pickup, offer.startLocation) <= radiusKm * 1.5);
+        }
+        for (RideOffer offer : live.values()) {
+            if (offer.timeMillis >= earliest && offer.timeMillis <= latest
+                    && GeoUtils.calculateDistance(pickup, offer.startLocation) <= radiusKm) {
+                assertTrue("missed " + offer.id, ids.contains(offer.id));
+            }
+        }
+    }
+
+    private static void upsert(OfferKdTree tree, Map<String, RideOffer> live, RideOffer offer) {
+        tree.upsert(offer);
+        if ("open".equals(offer.status)) {
+            live.put(offer.id, offer);
+        } else {
+            live.remove(offer.id);
+        }
+    }
+
+    // Offers around one campus, some from the rider every request is made by
+    private static RideOffer randomOffer(Random random, String id) {
+        String owner = random.nextInt(20) == 0 ? "rider" : "driver" + random.nextInt(50);
+        int seats = 1 + random.nextInt(3);
+        long time = NOW + (random.nextInt(600) - 300) * 60000L;
+        RideOffer offer = TestPosts.offer(id, owner, time,
+                TestPosts.near(random, START, 0.1), TestPosts.near(random, END, 0.03));
+        offer.seats = seats;
+        offer.pricePerSeat = random.nextInt(20);
+        return offer;
+    }
+
+    private static RideRequest randomRequest(Random random) {
+        long time = NOW + (random.nextInt(300) - 150) * 60000L;
+        RideRequest request = TestPosts.request("r", "rider", time,
+                TestPosts.near(random, START, 0.05), TestPosts.near(random, END, 0.02));
+        request.seats = 1;
+        request.maxBudget = 5 + random.nextInt(15);
+        return request;
+    }
+}
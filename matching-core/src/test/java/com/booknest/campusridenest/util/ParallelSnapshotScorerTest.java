@@ -0,0 +1,81 @@
+package com.booknest.campusridenest.util;
+
+import com.booknest.campusridenest.model.RideMatch;
+import com.booknest.campusridenest.model.RideOffer;
+import com.booknest.campusridenest.model.RideRequest;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.booknest.campusridenest.util.MatchAssertions.assertSameMatches;
+import static com.booknest.campusridenest.util.TestPosts.CAMPUS;
+import static com.booknest.campusridenest.util.TestPosts.NOW;
+import static org.junit.Assert.*;
+
+/**
+ * The fork-join path against the sequential kernel, on a snapshot large
+ * enough to be split.
+ */
+public class ParallelSnapshotScorerTest {
+
+    private final RideMatchScorer scorer = new RideMatchScorer();
+
+    @Test
+    public void forkJoin_returnsTheSequentialMatches() {
+        Random random = new Random(8);
+        int size = 3 * ParallelSnapshotScorer.PARALLEL_THRESHOLD;
+        OfferSnapshot snapshot = new OfferSnapshot(size);
+        for (int i = 0; i < size; i++) {
+            long time = NOW + (random.nextInt(360) - 180) * 60000L;
+            RideOffer offer = TestPosts.offer("o" + i, "driver" + random.nextInt(500), time,
+                    TestPosts.near(random, CAMPUS, 0.05), TestPosts.near(random, CAMPUS, 0.05));
+            offer.seats = 1 + random.nextInt(3);
+            offer.pricePerSeat = random.nextInt(20);
+            snapshot.add(offer);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ParallelSnapshotScorer parallel = new ParallelSnapshotScorer(scorer, pool);
+            for (int i = 0; i < 100; i++) {
+                RideRequest request = TestPosts.request("r" + i, "rider", NOW,
+                        TestPosts.near(random, CAMPUS, 0.03), TestPosts.near(random, CAMPUS, 0.03));
+                request.seats = 1;
+                request.maxBudget = random.nextInt(4) == 0 ? 0 : 5 + random.nextInt(15);
+                int limit = 1 + random.nextInt(20);
+                double radiusKm = random.nextBoolean() ? RideMatchScorer.MAX_PICKUP_DISTANCE_KM
+                        : 2.5 + random.nextDouble() * 10.0;
+
+                MatchStats sequentialStats = new MatchStats();
+                List<RideMatch> expected = topMatchesSequential(request, snapshot, limit,
+                        radiusKm, sequentialStats);
+                MatchStats parallelStats = new MatchStats();
+                List<RideMatch> actual = parallel.topMatches(request, snapshot, limit,
+                        radiusKm, parallelStats);
+
+                String message = "request " + i;
+                assertSameMatches(message, expected, actual, limit);
+
+                // Pruning depends on each worker's threshold, but every offer is counted once
+                assertEquals(message, sequentialStats.rejectedByTime, parallelStats.rejectedByTime);
+                assertEquals(message, sequentialStats.rejectedByBudget,
+                        parallelStats.rejectedByBudget);
+                assertEquals(message, size, parallelStats.rejectedByTime
+                        + parallelStats.rejectedByBudget + parallelStats.rejectedByDistance
+                        + parallelStats.pruned + parallelStats.scored);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private List<RideMatch> topMatchesSequential(RideRequest request, OfferSnapshot snapshot,
+                                                 int limit, double radiusKm, MatchStats stats) {
+        TopKCollector<RideMatch> top = new TopKCollector<>(limit);
+        scorer.scoreSnapshot(request, snapshot, 0, snapshot.size(), radiusKm, top, stats);
+        return top.toSortedList();
+    }
+}
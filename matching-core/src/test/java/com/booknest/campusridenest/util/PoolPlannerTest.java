@@ -0,0 +1,117 @@
+package com.booknest.campusridenest.util;
+
+import com.booknest.campusridenest.model.LatLon;
+import com.booknest.campusridenest.model.PoolProposal;
+import com.booknest.campusridenest.model.RideMatch;
+import com.booknest.campusridenest.model.RideOffer;
+import com.booknest.campusridenest.model.RideRequest;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.booknest.campusridenest.util.TestPosts.NOW;
+import static org.junit.Assert.*;
+
+/**
+ * Compares the branch and bound against every subset of candidate riders.
+ */
+public class PoolPlannerTest {
+
+    private final RideMatchScorer scorer = new RideMatchScorer();
+
+    @Test
+    public void plan_matchesExhaustiveSearch() {
+        Random random = new Random(14);
+        PoolPlanner planner = new PoolPlanner(scorer);
+
+        for (int round = 0; round < 300; round++) {
+            int offerSeats = 1 + random.nextInt(5);
+            RideOffer offer = TestPosts.offer("o", "driver", NOW, new LatLon(40.79, -77.86),
+                    new LatLon(40.79 + random.nextDouble() * 0.3, -77.86));
+            offer.seats = offerSeats;
+            offer.pricePerSeat = random.nextInt(15);
+
+            List<RideRequest> requests = new ArrayList<>();
+            for (int i = 0, n = random.nextInt(11); i < n; i++) {
+                String owner = random.nextInt(8) == 0 ? "driver" : "u" + i;
+                requests.add(randomRequest(random, "r" + i, owner, offer));
+            }
+
+            PoolProposal pool = planner.plan(offer, requests);
+
+            // Every subset of the requests that could ride, scored as the planner does
+            double[] scores = new double[requests.size()];
+            int[] sizes = new int[requests.size()];
+            for (int i = 0; i < requests.size(); i++) {
+                scores[i] = candidateScore(requests.get(i), offer);
+                sizes[i] = Math.max(1, requests.get(i).seats);
+            }
+            double best = 0.0;
+            for (int set = 0; set < (1 << requests.size()); set++) {
+                double total = 0.0;
+                int seats = 0;
+                boolean valid = true;
+                for (int i = 0; i < requests.size() && valid; i++) {
+                    if ((set & (1 << i)) != 0) {
+                        valid = scores[i] > 0;
+                        total += scores[i];
+                        seats += sizes[i];
+                    }
+                }
+                if (valid && seats <= offer.seats) {
+                    best = Math.max(best, total);
+                }
+            }
+
+            assertEquals("round " + round, best, pool.totalScore, 1e-9);
+
+            int seats = 0;
+            double total = 0.0;
+            for (RideMatch rider : pool.riders) {
+                assertFalse("driver's own request", "driver".equals(rider.request.ownerUid));
+                seats += Math.max(1, rider.request.seats);
+                total += rider.matchScore;
+            }
+            assertTrue("over capacity", seats <= offer.seats);
+            assertEquals(seats, pool.seatsFilled);
+            assertEquals(pool.totalScore, total, 1e-9);
+        }
+    }
+
+    // Best of the endpoint and corridor scores, 0 if the request can't ride
+    private double candidateScore(RideRequest request, RideOffer offer) {
+        if ("driver".equals(request.ownerUid) || Math.max(1, request.seats) > offer.seats) {
+            return 0.0;
+        }
+        MatchScratch scratch = new MatchScratch();
+        double score = 0.0;
+        if (scorer.scoreInto(request, offer, 0.0, scratch)) {
+            score = scratch.score;
+        }
+        if (scorer.scoreCorridorInto(request, offer, 0.0, scratch)) {
+            score = Math.max(score, scratch.score);
+        }
+        return score;
+    }
+
+    // Riders near the start or along the route, some too far or too late to match
+    private static RideRequest randomRequest(Random random, String id, String owner,
+                                             RideOffer offer) {
+        double along = random.nextDouble();
+        int seats = 1 + random.nextInt(3);
+        long time = NOW + (random.nextInt(300) - 60) * 60000L;
+        LatLon start = offer.startLocation;
+        LatLon end = offer.endLocation;
+        LatLon pickup = new LatLon(start.getLatitude() + along * 0.1 + random.nextGaussian() * 0.01,
+                start.getLongitude() + random.nextGaussian() * 0.01);
+        LatLon dropoff = new LatLon(end.getLatitude() - random.nextDouble() * 0.05,
+                end.getLongitude() + random.nextGaussian() * 0.01);
+        RideRequest request = TestPosts.request(id, owner, time, pickup, dropoff);
+        request.seats = seats;
+        request.maxBudget = 5 + random.nextInt(15);
+        return request;
+    }
+}
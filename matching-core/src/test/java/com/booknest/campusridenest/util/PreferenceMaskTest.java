@@ -0,0 +1,103 @@
+package com.booknest.campusridenest.util;
+
+import com.booknest.campusridenest.model.RideOffer;
+import com.booknest.campusridenest.model.RideRequest;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.booknest.campusridenest.util.TestPosts.CAMPUS;
+import static com.booknest.campusridenest.util.TestPosts.NOW;
+import static org.junit.Assert.*;
+
+/**
+ * The mask score against the string comparison it replaced, for every
+ * combination of preferences on both sides.
+ */
+public class PreferenceMaskTest {
+
+    private static final String[] MUSIC = {null, "no-preference", "yes", "no"};
+    private static final String[] CONVERSATION = {null, "no-preference", "chatty", "quiet"};
+
+    @Test
+    public void score_matchesStringComparisonForEveryCombination() {
+        List<RideRequest> requests = new ArrayList<>();
+        List<RideOffer> offers = new ArrayList<>();
+        for (int flags = 0; flags < 4; flags++) {
+            for (String music : MUSIC) {
+                for (String conversation : CONVERSATION) {
+                    RideRequest request = TestPosts.request("r", "rider", NOW, CAMPUS, CAMPUS);
+                    request.needsNonSmoking = (flags & 1) != 0;
+                    request.needsNoPets = (flags & 2) != 0;
+                    request.musicPreference = music;
+                    request.conversationLevel = conversation;
+                    requests.add(request);
+
+                    RideOffer offer = TestPosts.offer("o", "driver", NOW, CAMPUS, CAMPUS);
+                    offer.allowsSmoking = (flags & 1) != 0;
+                    offer.allowsPets = (flags & 2) != 0;
+                    offer.musicPreference = music;
+                    offer.conversationLevel = conversation;
+                    offers.add(offer);
+                }
+            }
+        }
+
+        for (RideRequest request : requests) {
+            for (RideOffer offer : offers) {
+                String pair = describe(request) + " / " + describe(offer);
+                assertEquals(pair, baselineScore(request, offer),
+                        PreferenceMask.score(PreferenceMask.of(request), PreferenceMask.of(offer)),
+                        1e-9);
+            }
+        }
+    }
+
+    // RideMatchScorer.calculatePreferenceScore before preferences were masks
+    private static double baselineScore(RideRequest request, RideOffer offer) {
+        int matches = 0;
+        int total = 0;
+
+        total++;
+        if (!request.needsNonSmoking || !offer.allowsSmoking) {
+            matches++;
+        }
+
+        total++;
+        if (!request.needsNoPets || !offer.allowsPets) {
+            matches++;
+        }
+
+        if (request.musicPreference != null && offer.musicPreference != null &&
+                !request.musicPreference.equals("no-preference") &&
+                !offer.musicPreference.equals("no-preference")) {
+            total++;
+            if (request.musicPreference.equals(offer.musicPreference)) {
+                matches++;
+            }
+        }
+
+        if (request.conversationLevel != null && offer.conversationLevel != null &&
+                !request.conversationLevel.equals("no-preference") &&
+                !offer.conversationLevel.equals("no-preference")) {
+            total++;
+            if (request.conversationLevel.equals(offer.conversationLevel)) {
+                matches++;
+            }
+        }
+
+        return total > 0 ? (100.0 * matches / total) : 100.0;
+    }
+
+    private static String describe(RideRequest request) {
+        return request.needsNonSmoking + "," + request.needsNoPets + ","
+                + request.musicPreference + "," + request.conversationLevel;
+    }
+
+    private static String describe(RideOffer offer) {
+        return offer.allowsSmoking + "," + offer.allowsPets + ","
+                + offer.musicPreference + "," + offer.conversationLevel;
+    }
+}
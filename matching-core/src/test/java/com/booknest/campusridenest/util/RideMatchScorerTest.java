@@ -0,0 +1,182 @@
+package com.booknest.campusridenest.util;
+
+import com.booknest.campusridenest.model.LatLon;
+import com.booknest.campusridenest.model.RideMatch;
+import com.booknest.campusridenest.model.RideOffer;
+import com.booknest.campusridenest.model.RideRequest;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static com.booknest.campusridenest.util.TestPosts.NOW;
+import static org.junit.Assert.*;
+
+/**
+ * Edge cases of RideMatchScorer's filters, and its pruned top K against
+ * a full sort.
+ */
+public class RideMatchScorerTest {
+
+    private static final String[] MUSIC = {null, "no-preference", "yes", "no"};
+    private static final String[] CONVERSATION = {null, "no-preference", "chatty", "quiet"};
+
+    private final RideMatchScorer scorer = new RideMatchScorer();
+
+    @Test
+    public void scoreMatch_rejectedRouteReportsRealDistances() {
+        RideRequest request = request(40.7967, -77.8617, 40.7967, -77.8617);
+        // About 20 km north of the pickup
+        RideOffer offer = offer(40.9767, -77.8617, 40.7967, -77.8617);
+
+        RideMatch match = scorer.scoreMatch(request, offer);
+
+        assertEquals(0.0, match.matchScore, 0.0);
+        assertEquals(GeoUtils.calculateDistance(request.pickupLocation, offer.startLocation),
+                match.pickupDistanceKm, 1e-9);
+        assertEquals(0.0, match.dropoffDistanceKm, 1e-9);
+    }
+
+    @Test
+    public void snapshotKernel_acceptsOfferPricedExactlyAtBudget() {
+        RideRequest request = request(40.7967, -77.8617, 40.7967, -77.8617);
+        request.maxBudget = 7.3;
+        RideOffer offer = offer(40.7967, -77.8617, 40.7967, -77.8617);
+        offer.pricePerSeat = 7.3;
+
+        OfferSnapshot snapshot = new OfferSnapshot(1);
+        snapshot.add(offer);
+        List<RideMatch> matches = scorer.topMatches(request, snapshot, 1);
+
+        assertEquals(1, matches.size());
+        assertEquals(scorer.scoreMatch(request, offer).matchScore, matches.get(0).matchScore, 0.0);
+    }
+
+    @Test
+    public void corridor_followsRoutesAcrossTheAntimeridian() {
+        // Fiji-style route from 179.9 E to 179.9 W, rider along it heading east
+        RideOffer offer = offer(-17.0, 179.9, -17.0, -179.9);
+        RideRequest request = request(-17.0, 179.95, -17.0, -179.95);
+
+        MatchScratch scratch = new MatchScratch();
+        assertTrue(scorer.scoreCorridorInto(request, offer, 0.0, scratch));
+        assertEquals(0.0, scratch.pickupDistanceKm, 0.01);
+        assertEquals(0.0, scratch.dropoffDistanceKm, 0.01);
+
+        // Same points, but riding west against the route
+        RideRequest backwards = request(-17.0, -179.95, -17.0, 179.95);
+        assertFalse(scorer.scoreCorridorInto(backwards, offer, 0.0, scratch));
+    }
+
+    @Test
+    public void prunedTopMatches_equalFullSortOfScoreMatch() {
+        Random random = new Random(4);
+        List<RideOffer> offers = new ArrayList<>();
+        OfferSnapshot snapshot = new OfferSnapshot(2000);
+        for (int i = 0; i < 2000; i++) {
+            RideOffer offer = randomOffer(random, "o" + i);
+            offers.add(offer);
+            snapshot.add(offer);
+        }
+
+        for (int i = 0; i < 200; i++) {
+            RideRequest request = randomRequest(random);
+            int limit = 1 + random.nextInt(15);
+
+            // Every offer scored in full, matches sorted by score
+            List<RideMatch> all = new ArrayList<>();
+            Map<RideOffer, RideMatch> full = new HashMap<>();
+            for (RideOffer offer : offers) {
+                RideMatch match = scorer.scoreMatch(request, offer);
+                if (match.matchScore > 0.0) {
+                    all.add(match);
+                    full.put(offer, match);
+                }
+            }
+            all.sort((a, b) -> Double.compare(b.matchScore, a.matchScore));
+            List<RideMatch> expected = all.subList(0, Math.min(limit, all.size()));
+
+            // Offers checked against the current K-th score as it rises
+            TopKCollector<RideMatch> top = new TopKCollector<>(limit);
+            for (RideOffer offer : offers) {
+                RideMatch match = scorer.scoreMatchAbove(request, offer,
+                        Math.max(0.0, top.threshold()));
+                if (match != null) {
+                    top.offer(match, match.matchScore);
+                }
+            }
+
+            String message = "request " + i;
+            assertSameTopK(message, expected, top.toSortedList(), full);
+            assertSameTopK(message, expected, scorer.topMatches(request, snapshot, limit), full);
+        }
+    }
+
+    /**
+     * Same scores rank by rank, and each pruned match carries what
+     * scoreMatch gave for its offer
+     */
+    private static void assertSameTopK(String message, List<RideMatch> expected,
+                                       List<RideMatch> actual, Map<RideOffer, RideMatch> full) {
+        assertEquals(message, expected.size(), actual.size());
+        for (int k = 0; k < expected.size(); k++) {
+            RideMatch match = actual.get(k);
+            assertEquals(message, expected.get(k).matchScore, match.matchScore, 1e-9);
+
+            RideMatch scored = full.get(match.offer);
+            assertNotNull(message, scored);
+            assertEquals(message, scored.matchScore, match.matchScore, 1e-9);
+            assertEquals(message, scored.pickupDistanceKm, match.pickupDistanceKm, 1e-9);
+            assertEquals(message, scored.dropoffDistanceKm, match.dropoffDistanceKm, 1e-9);
+            assertEquals(message, scored.timeDifferenceMinutes, match.timeDifferenceMinutes);
+            assertEquals(message, scored.reasonMask, match.reasonMask);
+        }
+    }
+
+    private static RideOffer randomOffer(Random random, String id) {
+        long time = NOW + (random.nextInt(360) - 180) * 60000L;
+        RideOffer offer = TestPosts.offer(id, "driver" + random.nextInt(50), time,
+                TestPosts.near(random, TestPosts.CAMPUS, 0.03),
+                TestPosts.near(random, TestPosts.CAMPUS, 0.03));
+        offer.seats = 1 + random.nextInt(3);
+        offer.pricePerSeat = random.nextInt(20);
+        offer.allowsSmoking = random.nextBoolean();
+        offer.allowsPets = random.nextBoolean();
+        offer.musicPreference = MUSIC[random.nextInt(MUSIC.length)];
+        offer.conversationLevel = CONVERSATION[random.nextInt(CONVERSATION.length)];
+        return offer;
+    }
+
+    private static RideRequest randomRequest(Random random) {
+        RideRequest request = TestPosts.request("r", "rider", NOW,
+                TestPosts.near(random, TestPosts.CAMPUS, 0.02),
+                TestPosts.near(random, TestPosts.CAMPUS, 0.02));
+        request.seats = 1;
+        request.maxBudget = random.nextInt(4) == 0 ? 0 : 5 + random.nextInt(15);
+        request.needsNonSmoking = random.nextBoolean();
+        request.needsNoPets = random.nextBoolean();
+        request.musicPreference = MUSIC[random.nextInt(MUSIC.length)];
+        request.conversationLevel = CONVERSATION[random.nextInt(CONVERSATION.length)];
+        return request;
+    }
+
+    private static RideRequest request(double pickupLat, double pickupLon,
+                                       double dropoffLat, double dropoffLon) {
+        RideRequest request = TestPosts.request("r1", "rider", NOW,
+                new LatLon(pickupLat, pickupLon), new LatLon(dropoffLat, dropoffLon));
+        request.seats = 1;
+        return request;
+    }
+
+    private static RideOffer offer(double startLat, double startLon,
+                                   double endLat, double endLon) {
+        RideOffer offer = TestPosts.offer("o1", "driver", NOW,
+                new LatLon(startLat, startLon), new LatLon(endLat, endLon));
+        offer.seats = 3;
+        return offer;
+    }
+}
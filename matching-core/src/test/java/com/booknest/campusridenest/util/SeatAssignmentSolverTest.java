@@ -0,0 +1,112 @@
+package com.booknest.campusridenest.util;
+
+import com.booknest.campusridenest.model.LatLon;
+import com.booknest.campusridenest.model.RideMatch;
+import com.booknest.campusridenest.model.RideOffer;
+import com.booknest.campusridenest.model.RideRequest;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static com.booknest.campusridenest.util.TestPosts.NOW;
+import static org.junit.Assert.*;
+
+/**
+ * Compares the auction against exhaustive search on small random instances.
+ */
+public class SeatAssignmentSolverTest {
+
+    private static final LatLon CENTER = new LatLon(40.79, -77.86);
+
+    private final RideMatchScorer scorer = new RideMatchScorer();
+
+    @Test
+    public void assign_isFeasibleAndWithinEpsilonOfOptimal() {
+        Random random = new Random(12);
+        SeatAssignmentSolver solver = new SeatAssignmentSolver(scorer);
+
+        for (int round = 0; round < 300; round++) {
+            List<RideOffer> offers = new ArrayList<>();
+            for (int j = 0, n = 1 + random.nextInt(4); j < n; j++) {
+                String owner = "u" + random.nextInt(6);
+                offers.add(randomOffer(random, "o" + j, owner, 1 + random.nextInt(2)));
+            }
+            List<RideRequest> requests = new ArrayList<>();
+            for (int i = 0, n = 1 + random.nextInt(6); i < n; i++) {
+                requests.add(randomRequest(random, "r" + i, "u" + random.nextInt(6)));
+            }
+
+            List<RideMatch> assignments = solver.assign(requests, offers);
+
+            // Each request at most once, seats respected, no own offers
+            Set<String> assigned = new HashSet<>();
+            Map<String, Integer> taken = new HashMap<>();
+            double total = 0.0;
+            for (RideMatch match : assignments) {
+                assertTrue("request assigned twice", assigned.add(match.request.id));
+                int seats = taken.merge(match.offer.id, 1, Integer::sum);
+                assertTrue("offer over capacity", seats <= match.offer.seats);
+                assertFalse("own offer", match.offer.ownerUid.equals(match.request.ownerUid));
+                total += match.matchScore;
+            }
+
+            double optimal = best(requests, offers, 0, new int[offers.size()]);
+            assertTrue("round " + round + ": " + total + " vs optimal " + optimal,
+                    total >= optimal - requests.size() * SeatAssignmentSolver.DEFAULT_EPSILON - 1e-9);
+            assertTrue("beat the optimum", total <= optimal + 1e-9);
+        }
+    }
+
+    // Best total for requests[i..] given the seats already taken per offer
+    private double best(List<RideRequest> requests, List<RideOffer> offers, int i, int[] taken) {
+        if (i == requests.size()) {
+            return 0.0;
+        }
+        RideRequest request = requests.get(i);
+        double best = best(requests, offers, i + 1, taken);
+        for (int j = 0; j < offers.size(); j++) {
+            RideOffer offer = offers.get(j);
+            if (taken[j] == offer.seats || offer.ownerUid.equals(request.ownerUid)) {
+                continue;
+            }
+            RideMatch match = scorer.scoreMatchAbove(request, offer, 0.0);
+            if (match == null) {
+                continue;
+            }
+            taken[j]++;
+            best = Math.max(best, match.matchScore + best(requests, offers, i + 1, taken));
+            taken[j]--;
+        }
+        return best;
+    }
+
+    // Within a few km and a couple of hours of each other, so most pairs can match
+    private static LatLon near(Random random) {
+        return TestPosts.near(random, CENTER, 0.02);
+    }
+
+    private static RideOffer randomOffer(Random random, String id, String owner, int seats) {
+        long time = NOW + random.nextInt(180) * 60000L;
+        RideOffer offer = TestPosts.offer(id, owner, time, near(random), near(random));
+        offer.seats = seats;
+        offer.pricePerSeat = random.nextInt(20);
+        offer.allowsSmoking = random.nextBoolean();
+        return offer;
+    }
+
+    private static RideRequest randomRequest(Random random, String id, String owner) {
+        long time = NOW + random.nextInt(180) * 60000L;
+        RideRequest request = TestPosts.request(id, owner, time, near(random), near(random));
+        request.seats = 1;
+        request.maxBudget = 10 + random.nextInt(15);
+        request.needsNonSmoking = random.nextBoolean();
+        return request;
+    }
+}
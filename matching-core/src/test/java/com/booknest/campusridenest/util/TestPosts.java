@@ -0,0 +1,92 @@
+package com.booknest.campusridenest.util;
+
+import com.booknest.campusridenest.model.LatLon;
+import com.booknest.campusridenest.model.RideOffer;
+import com.booknest.campusridenest.model.RideRequest;
+
+import java.util.Random;
+
+/**
+ * Posts for the matching tests: open offers and requests with only the
+ * fields every test needs, which each test then adjusts.
+ */
+public final class TestPosts {
+
+    // A fixed departure time, so results don't depend on the clock
+    public static final long NOW = 1_760_000_000_000L;
+
+    public static final LatLon CAMPUS = new LatLon(40.7967, -77.8617);
+
+    private TestPosts() {
+    }
+
+    public static RideOffer offer(String id, String ownerUid, long timeMillis,
+                                  LatLon start, LatLon end) {
+        RideOffer offer = new RideOffer();
+        offer.id = id;
+        offer.ownerUid = ownerUid;
+        offer.status = "open";
+        offer.timeMillis = timeMillis;
+        offer.startLocation = start;
+        offer.endLocation = end;
+        return offer;
+    }
+
+    public static RideRequest request(String id, String ownerUid, long timeMillis,
+                                      LatLon pickup, LatLon dropoff) {
+        RideRequest request = new RideRequest();
+        request.id = id;
+        request.ownerUid = ownerUid;
+        request.status = "open";
+        request.timeMillis = timeMillis;
+        request.pickupLocation = pickup;
+        request.dropoffLocation = dropoff;
+        return request;
+    }
+
+    /**
+     * A point scattered around center with a standard deviation of
+     * {@code degrees} in each coordinate
+     */
+    public static LatLon near(Random random, LatLon center, double degrees) {
+        double lat = center.getLatitude() + random.nextGaussian() * degrees;
+        double lon = center.getLongitude() + random.nextGaussian() * degrees;
+        return new LatLon(lat, lon);
+    }
+
+    /**
+     * Centers anywhere short of the poles, a share of them on the antimeridian
+     */
+    public static LatLon randomCenter(Random random) {
+        double lat = random.nextDouble() * 140.0 - 70.0;
+        double lon = random.nextInt(10) == 0
+                ? 180.0 - random.nextDouble() * 0.2
+                : random.nextDouble() * 360.0 - 180.0;
+        return new LatLon(lat, lon);
+    }
+
+    /**
+     * A point a hair inside radiusKm of center. Half head close to due north,
+     * east, south or west, where the circle touches its bounding box.
+     */
+    public static LatLon edgePoint(Random random, LatLon center, double radiusKm) {
+        double angle = radiusKm * (1 - 1e-9) / GeoUtils.EARTH_RADIUS_KM;
+        double bearing = random.nextBoolean()
+                ? random.nextDouble() * 2 * Math.PI
+                : random.nextInt(4) * Math.PI / 2 + (random.nextDouble() - 0.5) * 0.05;
+        double lat1 = Math.toRadians(center.getLatitude());
+        double lon1 = Math.toRadians(center.getLongitude());
+
+        double lat2 = Math.asin(Math.sin(lat1) * Math.cos(angle)
+                + Math.cos(lat1) * Math.sin(angle) * Math.cos(bearing));
+        double lon2 = lon1 + Math.atan2(Math.sin(bearing) * Math.sin(angle) * Math.cos(lat1),
+                Math.cos(angle) - Math.sin(lat1) * Math.sin(lat2));
+        double lon = Math.toDegrees(lon2);
+        if (lon >= 180.0) {
+            lon -= 360.0;
+        } else if (lon < -180.0) {
+            lon += 360.0;
+        }
+        return new LatLon(Math.toDegrees(lat2), lon);
+    }
+}
@@ -0,0 +1,88 @@
+package com.booknest.campusridenest.util;
+
+import com.booknest.campusridenest.model.RideOffer;
+import com.booknest.campusridenest.model.RideRequest;
+
+import org.junit.Test;
+
+import java.time.DayOfWeek;
+import java.util.List;
+
+import static com.booknest.campusridenest.util.TestPosts.CAMPUS;
+import static com.booknest.campusridenest.util.TestPosts.NOW;
+import static org.junit.Assert.*;
+
+/**
+ * Time-of-week distances, shared days and index keys across the
+ * Sunday to Monday wrap.
+ */
+public class TimeOfWeekTest {
+
+    private static final int SUNDAY_2330 = 6 * TimeOfWeek.MINUTES_PER_DAY + 23 * 60 + 30;
+    private static final int MONDAY_0030 = 30;
+
+    @Test
+    public void distance_wrapsFromSundayToMonday() {
+        assertEquals(60, TimeOfWeek.distance(SUNDAY_2330, MONDAY_0030));
+        assertEquals(60, TimeOfWeek.distance(MONDAY_0030, SUNDAY_2330));
+        assertEquals(1, TimeOfWeek.distance(0, TimeOfWeek.MINUTES_PER_WEEK - 1));
+        assertEquals(TimeOfWeek.MINUTES_PER_WEEK / 2,
+                TimeOfWeek.distance(0, TimeOfWeek.MINUTES_PER_WEEK / 2));
+        assertEquals(0, TimeOfWeek.distance(MONDAY_0030, MONDAY_0030));
+    }
+
+    @Test
+    public void sharedDays_countsDeparturesAcrossTheWrap() {
+        RideRequest monday = weeklyRequest(TimeOfWeek.dayBit(DayOfWeek.MONDAY), 30);
+        RideOffer sunday = weeklyOffer(TimeOfWeek.dayBit(DayOfWeek.SUNDAY), 23 * 60 + 30);
+
+        assertEquals(TimeOfWeek.dayBit(DayOfWeek.MONDAY),
+                TimeOfWeek.sharedDays(monday, sunday, 60));
+        assertEquals(0, TimeOfWeek.sharedDays(monday, sunday, 59));
+        assertEquals(60, TimeOfWeek.minutesApart(monday, sunday));
+
+        // The days are the request's, so a Sunday request gets the Sunday bit
+        RideRequest sundayRequest =
+                weeklyRequest(TimeOfWeek.dayBit(DayOfWeek.SUNDAY), 23 * 60 + 30);
+        RideOffer mondayOffer = weeklyOffer(TimeOfWeek.dayBit(DayOfWeek.MONDAY), 30);
+        assertEquals(TimeOfWeek.dayBit(DayOfWeek.SUNDAY),
+                TimeOfWeek.sharedDays(sundayRequest, mondayOffer, 120));
+    }
+
+    @Test
+    public void searchKeys_coverBucketsOnBothSidesOfTheWrap() {
+        RideRequest monday = weeklyRequest(TimeOfWeek.dayBit(DayOfWeek.MONDAY), 30);
+        List<String> keys = TimeOfWeek.searchKeys(monday, 120, 5.0);
+        String cell = GeoHash.encode(CAMPUS.getLatitude(), CAMPUS.getLongitude(),
+                GeoHash.OD_CELL_PRECISION);
+
+        // 22:30 Sunday to 02:30 Monday: buckets 166, 167, 0, 1 and 2
+        for (int bucket : new int[]{166, 167, 0, 1, 2}) {
+            assertTrue("bucket " + bucket, keys.contains(bucket + ":" + cell));
+        }
+        assertFalse(keys.contains("165:" + cell));
+        assertFalse(keys.contains("3:" + cell));
+
+        // A Sunday 23:30 offer is found by the Monday request and the other way round
+        RideOffer sunday = weeklyOffer(TimeOfWeek.dayBit(DayOfWeek.SUNDAY), 23 * 60 + 30);
+        assertTrue(keys.containsAll(TimeOfWeek.weekKeys(sunday)));
+        assertTrue(TimeOfWeek.searchKeys(sunday, 120, 5.0)
+                .containsAll(TimeOfWeek.weekKeys(monday)));
+    }
+
+    private static RideRequest weeklyRequest(int weekdayMask, int minuteOfDay) {
+        RideRequest request = TestPosts.request("r", "rider", NOW, CAMPUS, CAMPUS);
+        request.weekdayMask = weekdayMask;
+        request.minuteOfDay = minuteOfDay;
+        request.timeZone = "UTC";
+        return request;
+    }
+
+    private static RideOffer weeklyOffer(int weekdayMask, int minuteOfDay) {
+        RideOffer offer = TestPosts.offer("o", "driver", NOW, CAMPUS, CAMPUS);
+        offer.weekdayMask = weekdayMask;
+        offer.minuteOfDay = minuteOfDay;
+        offer.timeZone = "UTC";
+        return offer;
+    }
+}
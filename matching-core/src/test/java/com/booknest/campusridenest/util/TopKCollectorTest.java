@@ -0,0 +1,156 @@
+package com.booknest.campusridenest.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * The bounded heap against a full sort, at the smallest limits, with ties,
+ * and when two heaps are merged as the parallel scorer does.
+ */
+public class TopKCollectorTest {
+
+    @Test
+    public void limitZero_isRejected() {
+        try {
+            new TopKCollector<Integer>(0);
+            fail("limit 0 accepted");
+        } catch (IllegalArgumentException expected) {
+            // An empty top K is a caller error, not an empty result
+        }
+    }
+
+    @Test
+    public void limitOne_keepsTheHighest() {
+        TopKCollector<String> top = new TopKCollector<>(1);
+        assertEquals(Double.NEGATIVE_INFINITY, top.threshold(), 0.0);
+
+        assertTrue(top.offer("a", 40.0));
+        assertTrue(top.isFull());
+        assertEquals(40.0, top.threshold(), 0.0);
+        assertFalse(top.offer("b", 30.0));
+        assertTrue(top.offer("c", 70.0));
+        assertFalse(top.offer("d", 70.0));
+
+        assertEquals(Collections.singletonList("c"), top.toSortedList());
+        assertEquals(70.0, top.threshold(), 0.0);
+    }
+
+    @Test
+    public void ties_keepTheFirstAtTheThreshold() {
+        TopKCollector<String> top = new TopKCollector<>(3);
+        assertTrue(top.offer("a", 50.0));
+        assertTrue(top.offer("b", 50.0));
+        assertTrue(top.offer("c", 50.0));
+
+        // Equal to the threshold is not enough to enter
+        assertFalse(top.offer("d", 50.0));
+        assertEquals(Arrays.asList("a", "b", "c"), sorted(top.toSortedList()));
+
+        assertTrue(top.offer("e", 60.0));
+        List<String> kept = top.toSortedList();
+        assertEquals(3, kept.size());
+        assertEquals("e", kept.get(0));
+        assertFalse(kept.contains("d"));
+        assertEquals(50.0, top.threshold(), 0.0);
+    }
+
+    @Test
+    public void moreInsertsThanLimit_keepTheTopScores() {
+        Random random = new Random(3);
+        for (int round = 0; round < 200; round++) {
+            int limit = 1 + random.nextInt(20);
+            double[] scores = randomScores(random, limit + random.nextInt(500));
+
+            TopKCollector<Integer> top = new TopKCollector<>(limit);
+            for (int i = 0; i < scores.length; i++) {
+                top.offer(i, scores[i]);
+            }
+
+            assertEquals(limit, top.size());
+            assertEquals(topScores(scores, limit), scoresOf(top.toSortedList(), scores));
+        }
+    }
+
+    @Test
+    public void addAll_mergesTwoHeapsIntoTheTopOfBoth() {
+        Random random = new Random(4);
+        for (int round = 0; round < 200; round++) {
+            int limit = 1 + random.nextInt(20);
+            double[] scores = randomScores(random, random.nextInt(300));
+            int split = scores.length == 0 ? 0 : random.nextInt(scores.length + 1);
+
+            TopKCollector<Integer> left = new TopKCollector<>(limit);
+            TopKCollector<Integer> right = new TopKCollector<>(limit);
+            for (int i = 0; i < scores.length; i++) {
+                (i < split ? left : right).offer(i, scores[i]);
+            }
+            right.addAll(left);
+
+            int expected = Math.min(limit, scores.length);
+            assertEquals(expected, right.size());
+            assertEquals(topScores(scores, expected), scoresOf(right.toSortedList(), scores));
+        }
+    }
+
+    @Test
+    public void toSortedList_ordersHighestFirstAndLeavesTheHeap() {
+        Random random = new Random(5);
+        double[] scores = randomScores(random, 100);
+        TopKCollector<Integer> top = new TopKCollector<>(25);
+        for (int i = 0; i < scores.length; i++) {
+            top.offer(i, scores[i]);
+        }
+
+        List<Integer> first = top.toSortedList();
+        for (int k = 1; k < first.size(); k++) {
+            assertTrue(scores[first.get(k - 1)] >= scores[first.get(k)]);
+        }
+        assertEquals(first, top.toSortedList());
+        assertEquals(25, top.size());
+
+        // Still a working heap after being listed
+        double threshold = top.threshold();
+        assertEquals(scores[first.get(first.size() - 1)], threshold, 0.0);
+        assertTrue(top.offer(-1, threshold + 1.0));
+        assertEquals(first.get(0), top.toSortedList().get(0));
+    }
+
+    // Coarse scores so that ties are common
+    private static double[] randomScores(Random random, int n) {
+        double[] scores = new double[n];
+        for (int i = 0; i < n; i++) {
+            scores[i] = random.nextInt(50) * 2.0;
+        }
+        return scores;
+    }
+
+    private static List<Double> topScores(double[] scores, int k) {
+        List<Double> all = new ArrayList<>();
+        for (double score : scores) {
+            all.add(score);
+        }
+        all.sort(Collections.reverseOrder());
+        return all.subList(0, k);
+    }
+
+    private static List<Double> scoresOf(List<Integer> items, double[] scores) {
+        List<Double> result = new ArrayList<>();
+        for (int item : items) {
+            result.add(scores[item]);
+        }
+        return result;
+    }
+
+    private static List<String> sorted(List<String> items) {
+        List<String> copy = new ArrayList<>(items);
+        Collections.sort(copy);
+        return copy;
+    }
+}
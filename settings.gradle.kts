@@ -21,3 +21,6 @@ dependencyResolutionManagement {
 
 rootProject.name = "Campus Ride Nest"
 include(":app")
+include(":matching-core")
+include(":benchmarks")
+include(":batch-matcher")